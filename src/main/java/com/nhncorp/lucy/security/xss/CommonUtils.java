@@ -44,4 +44,24 @@ public class CommonUtils {
 
 		return quotePairStr;
 	}
+
+	/**
+	 * 태그 시작, 끝 문자({@code '<'}, {@code '>'})가 없는 ASCII 문자열인지 확인한다.
+	 * 이런 문자열은 필터링해도 바뀌지 않으므로, 파싱하지 않고 그대로 사용할 수 있다.
+	 * <br/> ASCII 가 아닌 문자는 확인하지 않는다. ({@code '\uFFFF'} 는 파서가 입력의 끝으로 처리한다.)
+	 *
+	 * @param text
+	 * @return	태그 시작, 끝 문자가 없는 ASCII 문자열이면 true.
+	 */
+	public static boolean isPlainAsciiText(String text) {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c >= 0x80 || c == '<' || c == '>') {
+				return false;
+			}
+		}
+
+		return true;
+	}
 }
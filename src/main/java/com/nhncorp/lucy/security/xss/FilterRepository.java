@@ -0,0 +1,300 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 이 클래스는 설정 파일 이름과 주석 사용 여부 별로 생성된 필터 객체를 보관한다.
+ * <br/><br/>
+ * 이미 생성된 필터는 lock 없이 조회되며, 아직 없는 필터는 같은 key 에 대해 한 Thread 만 생성하고 나머지 Thread 는 그 결과를 기다린다.
+ * 생성에 실패하면 보관하지 않으므로 다음 호출에서 다시 생성을 시도한다.
+ * <br/><br/>
+ * {@link #reload(String)} 는 설정 파일을 다시 읽어 새 필터를 만든 뒤, {@link #update(Object, Object)} 로 이미 리턴된 필터 객체에 적용한다.
+ * 새 필터 생성은 요청을 처리하는 Thread 가 아닌 reload 를 호출한 Thread(또는 설정 파일 감시 Thread)에서 수행된다.
+ *
+ * @param <F>	필터 타입.
+ * @author Naver Labs
+ */
+abstract class FilterRepository<F> {
+	private static final Log LOG = LogFactory.getLog(FilterRepository.class);
+	private static final Object NULL_FILE_NAME = new Object();
+
+	private final ConcurrentMap<Object, FutureTask<F>> filters = new ConcurrentHashMap<Object, FutureTask<F>>();
+	private final ConcurrentMap<Object, FutureTask<F>> filtersWithoutComment = new ConcurrentHashMap<Object, FutureTask<F>>();
+
+	// 아래 필드는 reloadLock 으로 보호된다.
+	private final Object reloadLock = new Object();
+	private final Map<String, Long> lastModified = new HashMap<String, Long>();
+	private ScheduledExecutorService watcher;
+
+	/**
+	 * 이 메소드는 필터 객체를 생성한다. 같은 key 에 대해 동시에 호출되지 않는다.
+	 */
+	protected abstract F newFilter(String fileName, boolean withoutComment) throws Exception;
+
+	/**
+	 * 이 메소드는 보관된 필터 객체가 이후 호출부터 fresh 의 설정으로 필터링하도록 한다.
+	 * 요청 처리 중인 Thread 와 동시에 호출되므로, 한 번의 volatile 쓰기로 적용해야 한다.
+	 */
+	protected abstract void update(F filter, F fresh);
+
+	/**
+	 * 이 메소드는 보관된 필터 객체를 리턴하고, 없으면 생성하여 보관한다.
+	 *
+	 * @param fileName	설정 파일 이름.
+	 * @param withoutComment	주석 사용 여부.
+	 * @return	필터 객체.
+	 * @throws Exception	{@link #newFilter(String, boolean)} 에서 발생한 예외.
+	 */
+	F get(final String fileName, final boolean withoutComment) throws Exception {
+		ConcurrentMap<Object, FutureTask<F>> map = withoutComment ? this.filtersWithoutComment : this.filters;
+		Object key = (fileName == null) ? NULL_FILE_NAME : fileName;
+
+		FutureTask<F> task = map.get(key);
+		if (task == null) {
+			FutureTask<F> newTask = new FutureTask<F>(new Callable<F>() {
+				public F call() throws Exception {
+					return newFilter(fileName, withoutComment);
+				}
+			});
+
+			task = map.putIfAbsent(key, newTask);
+			if (task == null) {
+				task = newTask;
+				task.run();
+			}
+		}
+
+		try {
+			return getUninterruptibly(task);
+		} catch (ExecutionException ee) {
+			map.remove(key, task);
+
+			Throwable cause = ee.getCause();
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+
+			throw (Exception)cause;
+		}
+	}
+
+	/**
+	 * 이 메소드는 설정 파일을 다시 읽어, 이미 생성된 필터 객체에 새 설정을 적용한다.
+	 * 주석 사용 여부 별 필터를 모두 만든 뒤에 적용하므로, 하나라도 생성에 실패하면 어느 필터에도 적용하지 않는다.
+	 *
+	 * @param fileName	설정 파일 이름.
+	 * @return	새 설정이 적용된 필터 객체 수.
+	 * @throws Exception	{@link #newFilter(String, boolean)} 에서 발생한 예외.
+	 */
+	int reload(String fileName) throws Exception {
+		Object key = (fileName == null) ? NULL_FILE_NAME : fileName;
+
+		synchronized (this.reloadLock) {
+			F filter = loaded(this.filters, key);
+			F filterWithoutComment = loaded(this.filtersWithoutComment, key);
+
+			F fresh = (filter == null) ? null : newFilter(fileName, false);
+			F freshWithoutComment = (filterWithoutComment == null) ? null : newFilter(fileName, true);
+
+			int count = 0;
+			if (fresh != null) {
+				update(filter, fresh);
+				count++;
+			}
+			if (freshWithoutComment != null) {
+				update(filterWithoutComment, freshWithoutComment);
+				count++;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * 이 메소드는 생성된 필터가 있는 모든 설정 파일을 다시 읽어 적용한다.
+	 *
+	 * @return	새 설정이 적용된 필터 객체 수.
+	 * @throws Exception	{@link #newFilter(String, boolean)} 에서 발생한 예외. 예외가 발생하기 전에 다시 읽은 설정 파일은 적용된 상태로 남는다.
+	 */
+	int reloadAll() throws Exception {
+		synchronized (this.reloadLock) {
+			int count = 0;
+			for (Object key : loadedKeys()) {
+				count += reload((key == NULL_FILE_NAME) ? null : (String)key);
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * 이 메소드는 interval 마다 설정 파일의 변경 시각을 확인하여, 변경된 설정 파일을 다시 읽는 daemon Thread 를 시작한다.
+	 * 이미 시작되어 있으면 중지하고 다시 시작한다.
+	 * <br/><br/>
+	 * 설정 파일은 이 메소드를 호출한 Thread 의 context ClassLoader 로 찾으며, 파일 시스템에 있는 설정 파일만 확인한다.
+	 * extends 로 지정한 상위 설정 파일의 변경은 확인하지 않는다. 다시 읽기에 실패하면 기존 설정을 유지하고 로그를 남긴다.
+	 *
+	 * @param interval	확인 주기. (millisecond, 0 보다 커야 한다.)
+	 */
+	void watch(long interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("interval must be greater than 0 : " + interval);
+		}
+
+		synchronized (this.reloadLock) {
+			unwatch();
+
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			final ClassLoader loader = (classLoader == null) ? FilterRepository.class.getClassLoader() : classLoader;
+			for (Object key : loadedKeys()) {
+				if (key != NULL_FILE_NAME) {
+					this.lastModified.put((String)key, Long.valueOf(lastModified(loader, (String)key)));
+				}
+			}
+
+			this.watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "lucy-xss-config-watcher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.watcher.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					checkModified(loader);
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 이 메소드는 설정 파일 감시 Thread 를 중지한다.
+	 */
+	void unwatch() {
+		synchronized (this.reloadLock) {
+			if (this.watcher != null) {
+				this.watcher.shutdown();
+				this.watcher = null;
+			}
+			this.lastModified.clear();
+		}
+	}
+
+	private void checkModified(ClassLoader loader) {
+		synchronized (this.reloadLock) {
+			for (Object key : loadedKeys()) {
+				if (key == NULL_FILE_NAME) {
+					continue;
+				}
+
+				String fileName = (String)key;
+				Long modified = Long.valueOf(lastModified(loader, fileName));
+				Long previous = this.lastModified.put(fileName, modified);
+				if (previous == null || previous.equals(modified)) {
+					continue;
+				}
+
+				try {
+					reload(fileName);
+					LOG.info("The XSS configuration file [" + fileName + "] is reloaded.");
+				} catch (Exception e) {
+					LOG.error("Cannot reload the XSS configuration file [" + fileName + "].", e);
+				}
+			}
+		}
+	}
+
+	private Set<Object> loadedKeys() {
+		Set<Object> keys = new LinkedHashSet<Object>(this.filters.keySet());
+		keys.addAll(this.filtersWithoutComment.keySet());
+		return keys;
+	}
+
+	/**
+	 * 생성 중인 필터는 생성이 끝날 때까지 기다린다.
+	 *
+	 * @return	생성된 필터, 없거나 생성에 실패했으면 null.
+	 */
+	private F loaded(ConcurrentMap<Object, FutureTask<F>> map, Object key) {
+		FutureTask<F> task = map.get(key);
+		if (task == null) {
+			return null;
+		}
+
+		try {
+			return getUninterruptibly(task);
+		} catch (ExecutionException ee) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return	설정 파일의 변경 시각, 파일 시스템에 있는 파일이 아니면 0.
+	 */
+	private static long lastModified(ClassLoader loader, String fileName) {
+		URL url = loader.getResource(fileName);
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return 0;
+		}
+
+		try {
+			return new File(url.toURI()).lastModified();
+		} catch (URISyntaxException use) {
+			return 0;
+		} catch (IllegalArgumentException iae) {
+			return 0;
+		}
+	}
+
+	int size() {
+		return this.filters.size() + this.filtersWithoutComment.size();
+	}
+
+	private static <F> F getUninterruptibly(FutureTask<F> task) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException ie) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -1,91 +0,0 @@
-/*
- *	Copyright 2014 Naver Corp.
- *
- *	Licensed under the Apache License, Version 2.0 (the "License");
- *	you may not use this file except in compliance with the License.
- *	You may obtain a copy of the License at
- *
- *		http://www.apache.org/licenses/LICENSE-2.0
- *
- *	Unless required by applicable law or agreed to in writing, software
- *	distributed under the License is distributed on an "AS IS" BASIS,
- *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- *	See the License for the specific language governing permissions and
- *	limitations under the License.
- */
-package com.nhncorp.lucy.security.xss;
-
-/**
- * @author Naver Labs
- */
-class FilterRepositoryKey {
-	String fileName;
-	boolean withoutComment;
-
-	/**
-	 * @param fileName
-	 * @param withoutComment
-	 */
-	public FilterRepositoryKey(String fileName, boolean withoutComment) {
-		super();
-		this.fileName = fileName;
-		this.withoutComment = withoutComment;
-	}
-
-	/**
-	 * @return
-	 * @see java.lang.Object#toString()
-	 */
-	@Override
-	public String toString() {
-		return "FilterRepositoryKey [fileName=" + fileName + ", withoutComment=" + withoutComment + "]";
-	}
-
-	/**
-	 * @return
-	 * @see java.lang.Object#hashCode()
-	 */
-	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((fileName == null) ? 0 : fileName.hashCode());
-		result = prime * result + (withoutComment ? 1231 : 1237);
-		return result;
-	}
-
-	/**
-	 * @param obj
-	 * @return
-	 * @see java.lang.Object#equals(java.lang.Object)
-	 */
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj) {
-			return true;
-		}
-
-		if (obj == null) {
-			return false;
-		}
-
-		if (getClass() != obj.getClass()) {
-			return false;
-		}
-
-		FilterRepositoryKey other = (FilterRepositoryKey)obj;
-
-		if (fileName == null) {
-			if (other.fileName != null)
-				return false;
-		} else if (!fileName.equals(other.fileName)) {
-			return false;
-		}
-
-		if (withoutComment != other.withoutComment) {
-			return false;
-		}
-
-		return true;
-	}
-}
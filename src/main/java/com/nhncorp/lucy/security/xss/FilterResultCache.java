@@ -0,0 +1,263 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 이 클래스는 같은 입력을 반복해서 필터링하지 않도록 필터링 결과를 보관한다.
+ * <br/><br/>
+ * 설정 파일에 {@code <resultCache maxChars="..."/>} 를 지정하면 필터 객체마다 하나씩 생성되며, {@code doFilter(String)} 결과를 보관한다.
+ * 입력은 SHA-256 hash 로만 보관하므로 입력 크기와 관계없이 key 크기는 일정하다. 설정을 다시 읽으면 새 설정의 필터 객체와 함께 빈 cache 가 만들어지므로,
+ * 이전 설정으로 필터링한 결과는 사용되지 않는다.
+ * <br/><br/>
+ * 보관하는 결과의 총 문자 수가 maxChars 를 넘으면, 보관된 순서대로 확인하면서 마지막 확인 이후 사용되지 않은 결과부터 버린다. (CLOCK 방식)
+ * 조회와 보관은 lock 없이 수행된다. maxChars 의 1/16 보다 긴 결과는 다른 결과를 많이 버리게 되므로 보관하지 않는다.
+ * <br/><br/>
+ * 필터링 결과가 입력과 설정만으로 정해진다고 가정한다. 호출 시점에 따라 다른 결과를 만드는 Listener 를 사용한다면 cache 를 사용하지 않아야 한다.
+ *
+ * @author Naver Labs
+ */
+public final class FilterResultCache {
+	/**
+	 * 결과 하나를 보관하는 데 드는 key, Entry 객체 크기를 문자 수로 환산한 값.
+	 */
+	private static final int ENTRY_OVERHEAD_CHARS = 64;
+	private static final int HASH_BUFFER_CHARS = 1024;
+
+	private static final ThreadLocal<Hasher> HASHERS = new ThreadLocal<Hasher>() {
+		@Override
+		protected Hasher initialValue() {
+			return new Hasher();
+		}
+	};
+
+	private final long maxChars;
+	private final int maxEntryChars;
+	private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+	private final Queue<Key> clock = new ConcurrentLinkedQueue<Key>();
+	private final AtomicLong chars = new AtomicLong();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param maxChars	보관하는 결과의 최대 총 문자 수.
+	 */
+	FilterResultCache(long maxChars) {
+		if (maxChars <= 0) {
+			throw new IllegalArgumentException("maxChars must be greater than 0 : " + maxChars);
+		}
+
+		this.maxChars = maxChars;
+		this.maxEntryChars = (int)Math.min(Integer.MAX_VALUE, maxChars >> 4);
+	}
+
+	/**
+	 * 이 메소드는 입력의 key 를 만든다.
+	 */
+	Key key(String dirty) {
+		return new Key(HASHERS.get().digest(dirty));
+	}
+
+	/**
+	 * 이 메소드는 보관된 결과를 리턴한다.
+	 *
+	 * @return	보관된 결과, 없으면 null.
+	 */
+	String get(Key key) {
+		Entry entry = this.entries.get(key);
+		if (entry == null) {
+			this.missCount.incrementAndGet();
+			return null;
+		}
+
+		if (!entry.referenced) {
+			entry.referenced = true;
+		}
+		this.hitCount.incrementAndGet();
+		return entry.clean;
+	}
+
+	/**
+	 * 이 메소드는 결과를 보관하고, 총 문자 수가 최대값을 넘으면 오래 사용되지 않은 결과를 버린다.
+	 */
+	void put(Key key, String clean) {
+		if (clean.length() > this.maxEntryChars) {
+			return;
+		}
+
+		Entry entry = new Entry(clean);
+		if (this.entries.putIfAbsent(key, entry) != null) {
+			return;
+		}
+
+		this.clock.offer(key);
+		if (this.chars.addAndGet(entry.chars) > this.maxChars) {
+			this.evict();
+		}
+	}
+
+	private void evict() {
+		while (this.chars.get() > this.maxChars) {
+			Key key = this.clock.poll();
+			if (key == null) {
+				return;
+			}
+
+			Entry entry = this.entries.get(key);
+			if (entry == null) {
+				continue;
+			}
+
+			if (entry.referenced) {
+				// 마지막 확인 이후 사용된 결과는 한 번 더 보관한다.
+				entry.referenced = false;
+				this.clock.offer(key);
+			} else if (this.entries.remove(key, entry)) {
+				this.chars.addAndGet(-entry.chars);
+				this.evictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 이 메소드는 보관된 결과를 모두 버린다.
+	 */
+	public void clear() {
+		Key key;
+		while ((key = this.clock.poll()) != null) {
+			Entry entry = this.entries.remove(key);
+			if (entry != null) {
+				this.chars.addAndGet(-entry.chars);
+			}
+		}
+	}
+
+	/**
+	 * @return	cache 에서 결과를 찾은 횟수.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/**
+	 * @return	cache 에서 결과를 찾지 못한 횟수.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	/**
+	 * @return	보관할 공간이 없어 결과를 버린 횟수.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	/**
+	 * @return	보관된 결과 수.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return	보관된 결과의 총 문자 수. (key 와 객체 크기를 환산한 값 포함)
+	 */
+	public long getChars() {
+		return this.chars.get();
+	}
+
+	/**
+	 * @return	보관하는 결과의 최대 총 문자 수.
+	 */
+	public long getMaxChars() {
+		return this.maxChars;
+	}
+
+	/**
+	 * 입력의 SHA-256 hash.
+	 */
+	static final class Key {
+		private final byte[] hash;
+		private final int hashCode;
+
+		Key(byte[] hash) {
+			this.hash = hash;
+			this.hashCode = (hash[0] << 24) | ((hash[1] & 0xFF) << 16) | ((hash[2] & 0xFF) << 8) | (hash[3] & 0xFF);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(this.hash, ((Key)obj).hash);
+		}
+	}
+
+	private static final class Entry {
+		private final String clean;
+		private final int chars;
+		private volatile boolean referenced;
+
+		Entry(String clean) {
+			this.clean = clean;
+			this.chars = clean.length() + ENTRY_OVERHEAD_CHARS;
+		}
+	}
+
+	/**
+	 * Thread 별로 재사용하는 {@code MessageDigest} 와 문자를 byte 로 옮기는 버퍼.
+	 */
+	private static final class Hasher {
+		private final MessageDigest digest;
+		private final char[] chars = new char[HASH_BUFFER_CHARS];
+		private final byte[] bytes = new byte[HASH_BUFFER_CHARS * 2];
+
+		Hasher() {
+			try {
+				this.digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException nsae) {
+				throw new IllegalStateException(nsae);
+			}
+		}
+
+		byte[] digest(String input) {
+			int length = input.length();
+			for (int offset = 0; offset < length; offset += HASH_BUFFER_CHARS) {
+				int count = Math.min(HASH_BUFFER_CHARS, length - offset);
+				input.getChars(offset, offset + count, this.chars, 0);
+				for (int i = 0; i < count; i++) {
+					this.bytes[i << 1] = (byte)(this.chars[i] >> 8);
+					this.bytes[(i << 1) + 1] = (byte)this.chars[i];
+				}
+				this.digest.update(this.bytes, 0, count << 1);
+			}
+			return this.digest.digest();
+		}
+	}
+}
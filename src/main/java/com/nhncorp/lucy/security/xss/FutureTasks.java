@@ -0,0 +1,138 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 이 클래스는 작업을 나누어 {@code ExecutorService} 에서 병렬로 수행할 때 사용하는 메소드를 제공한다.
+ * <br/><br/>
+ * 결과는 {@link #get(FutureTask)} 로 순서대로 받으며, 아직 시작되지 않은 작업은 결과를 기다리는 Thread 가 직접 수행한다.
+ * 따라서 executor 의 Thread 가 모두 사용 중이거나, executor 의 Thread 에서 호출해도 멈추지 않는다.
+ *
+ * @author Naver Labs
+ */
+final class FutureTasks {
+	/**
+	 * 이 인터페이스는 [from, to) 범위의 입력을 처리하는 작업이다.
+	 */
+	interface Slice {
+		void run(int from, int to) throws IOException;
+	}
+
+	private FutureTasks() {
+	}
+
+	/**
+	 * 이 메소드는 count 개의 입력을 sliceSize 개씩 나누어 executor 에서 병렬로 처리하고, 모두 끝날 때까지 기다린다.
+	 * executor 가 null 이거나 입력이 sliceSize 개 이하이면 호출한 Thread 에서 처리하며, executor 가 거부한 작업도 호출한 Thread 에서 처리한다.
+	 *
+	 * @throws IOException	작업에서 발생한 {@code IOException}.
+	 */
+	static void run(int count, int sliceSize, ExecutorService executor, final Slice slice) throws IOException {
+		if (executor == null || count <= sliceSize) {
+			slice.run(0, count);
+			return;
+		}
+
+		List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>();
+		for (int from = 0; from < count; from += sliceSize) {
+			final int start = from;
+			final int end = Math.min(from + sliceSize, count);
+			tasks.add(new FutureTask<Object>(new Callable<Object>() {
+				public Object call() throws IOException {
+					slice.run(start, end);
+					return null;
+				}
+			}));
+		}
+
+		execute(tasks, executor);
+		try {
+			for (FutureTask<Object> task : tasks) {
+				get(task);
+			}
+		} finally {
+			cancel(tasks);
+		}
+	}
+
+	/**
+	 * 이 메소드는 첫 번째 작업을 제외한 작업들을 executor 에 넘긴다. 첫 번째 작업은 호출한 Thread 가 {@link #get(FutureTask)} 에서 수행한다.
+	 * executor 가 작업을 거부하면 (큐가 가득 찼거나 종료된 경우) 나머지 작업은 넘기지 않으며, 호출한 Thread 가 수행한다.
+	 */
+	static <T> void execute(List<FutureTask<T>> tasks, ExecutorService executor) {
+		for (int i = 1; i < tasks.size(); i++) {
+			try {
+				executor.execute(tasks.get(i));
+			} catch (RejectedExecutionException ree) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 이 메소드는 작업이 아직 시작되지 않았으면 직접 수행하고, 끝날 때까지 기다려 결과를 리턴한다.
+	 * 기다리는 중에 interrupt 되어도 계속 기다리며, 끝난 뒤 interrupt 상태를 복원한다.
+	 *
+	 * @throws IOException	작업에서 발생한 {@code IOException}.
+	 */
+	static <T> T get(FutureTask<T> task) throws IOException {
+		// 이미 수행 중이거나 끝났으면 아무 일도 하지 않는다.
+		task.run();
+
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException ie) {
+					interrupted = true;
+				} catch (ExecutionException ee) {
+					Throwable cause = ee.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException)cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException)cause;
+					} else if (cause instanceof Error) {
+						throw (Error)cause;
+					}
+					throw new XssFilterException(cause);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 이 메소드는 끝나지 않은 작업을 취소한다. 수행 중인 작업은 끝까지 수행된다.
+	 */
+	static <T> void cancel(List<FutureTask<T>> tasks) {
+		for (FutureTask<T> task : tasks) {
+			task.cancel(false);
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import java.io.Writer;
+
+/**
+ * 이 클래스는 {@code String} 을 리턴하는 doFilter 에서 필터링 결과를 모으는 {@code Writer} 이다.
+ * <br/><br/>
+ * {@code StringWriter} 와 달리 동기화하지 않으며, 버퍼에 처음 쓸 때 입력 길이로 버퍼 크기를 잡는다.
+ * Thread 별로 하나씩 유지되어 재사용되며, 사용법은 다음과 같다.
+ * <pre>
+ * ...
+ * 	OutputBuffer writer = OutputBuffer.acquire(dirty.length());
+ * 	try {
+ * 		...
+ * 		return writer.toString();
+ * 	} finally {
+ * 		writer.release();
+ * 	}
+ * ...
+ * </pre>
+ * 필터링 중에 같은 Thread 에서 다시 필터링을 수행하면 (예: 주석 내 태그 필터링) 새로운 버퍼가 생성된다.
+ * <br/><br/>
+ * {@link #track(String)} 으로 입력을 지정하면, 결과가 입력과 같은 동안은 버퍼에 복사하지 않고 입력과 비교만 한다.
+ * 결과가 입력과 같으면 버퍼를 늘리지 않으며, {@link #toString()} 은 입력 문자열 객체를 그대로 리턴한다.
+ *
+ * @author Naver Labs
+ *
+ */
+final class OutputBuffer extends Writer {
+	/**
+	 * 재사용을 위해 유지하는 최대 크기. 이보다 큰 버퍼는 release 시 버린다.
+	 * 버퍼는 Thread 별로 유지되므로, 큰 결과가 Thread 마다 남지 않도록 입력 버퍼({@code ParseContext})와 같은 크기로 제한한다.
+	 */
+	static final int MAX_RETAINED_CHARS = 1 << 16;
+
+	private static final ThreadLocal<OutputBuffer> BUFFERS = new ThreadLocal<OutputBuffer>() {
+		@Override
+		protected OutputBuffer initialValue() {
+			return new OutputBuffer();
+		}
+	};
+
+	private boolean inUse;
+	private char[] buffer = new char[0];
+	private int count;
+
+	/**
+	 * 버퍼를 처음 늘릴 때 잡는 크기. 입력을 그대로 리턴하는 경우에는 버퍼를 늘리지 않는다.
+	 */
+	private int initialCapacity;
+
+	/**
+	 * 결과와 비교할 입력. 지금까지의 결과가 입력의 앞부분과 같을 때만 null 이 아니며, 그 동안은 버퍼에 결과를 복사하지 않는다.
+	 */
+	private String source;
+
+	private OutputBuffer() {
+	}
+
+	/**
+	 * 이 메소드는 현재 Thread 의 버퍼를 리턴한다. 이미 사용 중이면 새로운 버퍼를 리턴한다.
+	 * 사용이 끝나면 반드시 {@link #release()} 를 호출해야 한다.
+	 *
+	 * @param length	입력 길이. 결과는 보통 입력보다 조금 길어지므로, 버퍼에 처음 쓸 때 여유를 두고 버퍼를 잡는다.
+	 * @return	{@code OutputBuffer}.
+	 */
+	static OutputBuffer acquire(int length) {
+		OutputBuffer output = BUFFERS.get();
+		if (output.inUse) {
+			output = new OutputBuffer();
+		}
+
+		output.inUse = true;
+		output.initialCapacity = length + (length >> 2) + 16;
+		return output;
+	}
+
+	/**
+	 * 이 메소드는 버퍼 사용을 끝낸다. 너무 큰 버퍼는 버린다.
+	 */
+	void release() {
+		if (this.buffer.length > MAX_RETAINED_CHARS) {
+			this.buffer = new char[0];
+		}
+
+		this.count = 0;
+		this.initialCapacity = 0;
+		this.source = null;
+		this.inUse = false;
+	}
+
+	/**
+	 * 이 메소드는 버퍼를 비워 다음 결과를 모을 수 있게 한다. 여러 입력을 차례로 필터링할 때 사용한다.
+	 */
+	void reset() {
+		this.count = 0;
+		this.source = null;
+	}
+
+	/**
+	 * 이 메소드는 결과와 비교할 입력을 지정한다. 버퍼가 비어 있을 때 호출해야 한다.
+	 *
+	 * @param source	필터링 입력.
+	 */
+	void track(String source) {
+		this.source = source;
+	}
+
+	int capacity() {
+		return this.buffer.length;
+	}
+
+	@Override
+	public void write(int c) {
+		if (this.source != null) {
+			if (this.count < this.source.length() && this.source.charAt(this.count) == c) {
+				this.count++;
+				return;
+			}
+			this.detach();
+		}
+
+		if (this.count == this.buffer.length) {
+			this.ensureCapacity(this.count + 1);
+		}
+
+		this.buffer[this.count++] = (char)c;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		if (this.source != null) {
+			if (this.matches(cbuf, off, len)) {
+				this.count += len;
+				return;
+			}
+			this.detach();
+		}
+
+		this.ensureCapacity(this.count + len);
+		System.arraycopy(cbuf, off, this.buffer, this.count, len);
+		this.count += len;
+	}
+
+	@Override
+	public void write(String str) {
+		this.write(str, 0, str.length());
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		if (this.source != null) {
+			if (this.source.regionMatches(this.count, str, off, len)) {
+				this.count += len;
+				return;
+			}
+			this.detach();
+		}
+
+		this.ensureCapacity(this.count + len);
+		str.getChars(off, off + len, this.buffer, this.count);
+		this.count += len;
+	}
+
+	@Override
+	public OutputBuffer append(CharSequence csq) {
+		String str = String.valueOf(csq);
+		this.write(str, 0, str.length());
+		return this;
+	}
+
+	@Override
+	public OutputBuffer append(char c) {
+		this.write(c);
+		return this;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public String toString() {
+		if (this.source != null) {
+			return (this.count == this.source.length()) ? this.source : this.source.substring(0, this.count);
+		}
+
+		return new String(this.buffer, 0, this.count);
+	}
+
+	private boolean matches(char[] cbuf, int off, int len) {
+		if (this.count + len > this.source.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < len; i++) {
+			if (this.source.charAt(this.count + i) != cbuf[off + i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 결과가 입력과 달라지면 지금까지 같았던 입력의 앞부분을 버퍼에 복사하고 비교를 멈춘다.
+	 */
+	private void detach() {
+		if (this.count > this.buffer.length) {
+			// 버퍼의 내용은 사용하지 않으므로 복사하지 않는다.
+			this.buffer = new char[this.newCapacity(this.count)];
+		}
+
+		this.source.getChars(0, this.count, this.buffer, 0);
+		this.source = null;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (Math.max(capacity, this.initialCapacity) > this.buffer.length) {
+			char[] tmp = new char[this.newCapacity(capacity)];
+			System.arraycopy(this.buffer, 0, tmp, 0, this.count);
+			this.buffer = tmp;
+		}
+	}
+
+	private int newCapacity(int capacity) {
+		return Math.max(Math.max(capacity, this.initialCapacity), this.buffer.length << 1);
+	}
+}
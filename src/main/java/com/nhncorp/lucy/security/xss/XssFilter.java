@@ -18,9 +18,12 @@ package com.nhncorp.lucy.security.xss;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -66,16 +69,67 @@ public final class XssFilter implements LucyXssFilter {
 	private static final String REMOVE_TAG_INFO_END = ") -->";
 	private static final String CONFIG = "lucy-xss-superset.xml";
 	private static final String IE_HACK_EXTENSION = "IEHackExtension";
+	private static final Object END_TAG = new Object();
+	/**
+	 * 여러 입력을 병렬로 필터링할 때 한 작업이 처리하는 입력 수.
+	 */
+	private static final int BATCH_SLICE_SIZE = 256;
 	private boolean withoutComment;
 	private String service;
 	private String blockingPrefix;
 	private boolean blockingPrefixEnabled;
 	private boolean filteringTagInCommentEnabled;
+	private boolean compiledTokenizer;
+	private int maxNestingDepth;
 
 	private XssFilter commentFilter;
 	private XssConfiguration config;
+	private FilterResultCache resultCache;
+
+	/**
+	 * 필터링에 사용할 설정이 적용된 필터 객체. 설정을 다시 읽으면 새 필터 객체로 바뀌며,
+	 * 필터링 중인 호출은 시작할 때 읽은 필터 객체로 끝까지 수행된다.
+	 */
+	private volatile XssFilter current = this;
+
+	private static final FilterRepository<XssFilter> instanceMap = new FilterRepository<XssFilter>() {
+		@Override
+		protected XssFilter newFilter(String fileName, boolean withoutComment) throws Exception {
+			XssFilter filter = new XssFilter(XssConfiguration.newInstance(fileName));
+			filter.service = filter.config.getService();
+			filter.blockingPrefixEnabled = filter.config.isEnableBlockingPrefix();
+			filter.blockingPrefix = filter.config.getBlockingPrefix();
+
+			filter.withoutComment = withoutComment;
+
+			filter.filteringTagInCommentEnabled = filter.config.isFilteringTagInCommentEnabled();
+			filter.compiledTokenizer = filter.config.isCompiledTokenizer();
+			filter.maxNestingDepth = filter.config.getMaxNestingDepth();
+
+			if (filter.filteringTagInCommentEnabled && ! filter.config.isNoTagAllowedInComment()) {
+
+				filter.commentFilter = XssFilter.getCommentFilterInstance(filter.config);
+
+			}
+
+			if (filter.config.getResultCacheMaxChars() > 0) {
+				filter.resultCache = new FilterResultCache(filter.config.getResultCacheMaxChars());
+			}
+
+			return filter;
+		}
 
-	private static final Map<FilterRepositoryKey, XssFilter> instanceMap = new HashMap<FilterRepositoryKey, XssFilter>();
+		@Override
+		protected void update(XssFilter filter, XssFilter fresh) {
+			FilterResultCache previous = filter.current.resultCache;
+			filter.current = fresh;
+
+			// 이전 설정으로 필터링한 결과는 더 이상 사용되지 않는다.
+			if (previous != null) {
+				previous.clear();
+			}
+		}
+	};
 
 	private XssFilter(XssConfiguration config) {
 		this.config = config;
@@ -111,38 +165,62 @@ public final class XssFilter implements LucyXssFilter {
 	 */
 	public static XssFilter getInstance(String fileName, boolean withoutComment) throws XssFilterException {
 		try {
-			synchronized (XssFilter.class) {
-				FilterRepositoryKey key = new FilterRepositoryKey(fileName, withoutComment);
-
-				XssFilter filter = instanceMap.get(key);
-				if (filter != null) {
-					filter.withoutComment = withoutComment;
-					return filter;
-				}
-				filter = new XssFilter(XssConfiguration.newInstance(fileName));
-				filter.service = filter.config.getService();
-				filter.blockingPrefixEnabled = filter.config.isEnableBlockingPrefix();
-				filter.blockingPrefix = filter.config.getBlockingPrefix();
-
-				filter.withoutComment = withoutComment;
-
-				filter.filteringTagInCommentEnabled = filter.config.isFilteringTagInCommentEnabled();
-
-				if (filter.filteringTagInCommentEnabled && ! filter.config.isNoTagAllowedInComment()) {
-
-					filter.commentFilter = XssFilter.getCommentFilterInstance(filter.config);
-
-				}
+			return instanceMap.get(fileName, withoutComment);
+		} catch (Exception e) {
+			throw new XssFilterException(e);
+		}
+	}
 
-				instanceMap.put(key, filter);
+	/**
+	 * 이 메소드는 설정파일을 다시 읽어, 이미 리턴된 XssFilter 객체에 새 설정을 적용한다. <br/>
+	 * 새 설정은 한 번에 적용되며, 필터링 중인 호출은 이전 설정으로 끝까지 수행된다.
+	 * 설정파일 로딩에 실패하면 이전 설정을 유지한다.
+	 *
+	 * @param fileName
+	 *            XSS Filter 설정파일
+	 * @throws XssFilterException
+	 *             설정파일 로딩 실패 시 발생(malformed인 경우).
+	 */
+	public static void reload(String fileName) throws XssFilterException {
+		try {
+			instanceMap.reload(fileName);
+		} catch (Exception e) {
+			throw new XssFilterException(e);
+		}
+	}
 
-				return filter;
-			}
+	/**
+	 * 이 메소드는 XssFilter 객체가 생성된 모든 설정파일을 다시 읽어 적용한다.
+	 *
+	 * @throws XssFilterException
+	 *             설정파일 로딩 실패 시 발생(malformed인 경우).
+	 */
+	public static void reloadAll() throws XssFilterException {
+		try {
+			instanceMap.reloadAll();
 		} catch (Exception e) {
 			throw new XssFilterException(e);
 		}
 	}
 
+	/**
+	 * 이 메소드는 interval(millisecond) 마다 설정파일의 변경 여부를 확인하여, 변경된 설정파일을 다시 읽는 daemon Thread 를 시작한다. <br/>
+	 * 파일 시스템에 있는 설정파일만 확인하며, extends 로 지정한 상위 설정파일의 변경은 확인하지 않는다.
+	 *
+	 * @param interval
+	 *            확인 주기(millisecond)
+	 */
+	public static void startConfigWatcher(long interval) {
+		instanceMap.watch(interval);
+	}
+
+	/**
+	 * 이 메소드는 {@link #startConfigWatcher(long)} 로 시작한 Thread 를 중지한다.
+	 */
+	public static void stopConfigWatcher() {
+		instanceMap.unwatch();
+	}
+
 	/**
 	 * 이 메소드는 주석 내 태그 필터링을 위한 XssFilter 객체를 리턴한다.
 	 *
@@ -157,6 +235,8 @@ public final class XssFilter implements LucyXssFilter {
 		filter.blockingPrefix = filter.config.getBlockingPrefix();
 		filter.withoutComment = true;
 		filter.filteringTagInCommentEnabled = true;
+		filter.compiledTokenizer = filter.config.isCompiledTokenizer();
+		filter.maxNestingDepth = filter.config.getMaxNestingDepth();
 
 		return filter;
 	}
@@ -167,7 +247,17 @@ public final class XssFilter implements LucyXssFilter {
 	 * @return {@link XssConfiguration} 객체
 	 */
 	public XssConfiguration getConfig() {
-		return this.config;
+		return this.current.config;
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilter(String)} 결과를 보관하는 {@link FilterResultCache} 객체를 반환한다.
+	 * 설정파일에 {@code resultCache} 를 지정하지 않았으면 null 을 반환한다.
+	 *
+	 * @return {@link FilterResultCache} 객체
+	 */
+	public FilterResultCache getResultCache() {
+		return this.current.resultCache;
 	}
 
 	/**
@@ -175,14 +265,44 @@ public final class XssFilter implements LucyXssFilter {
 	 * 변환하거나, 삭제하는 기능을 제공한다. <br/> {@code "lucy-xss.xml"} 설정(사용자 설정 파일)에 따라 필터링을 수행한다.
 	 * 사용자 설정 파일을 명시적으로 지정하지 않는 getInstance() 로 필터 객체를 생성했을 경우, lucy-xss-superset.xml 설정을 사용한다.
 	 *
+	 * <br/><br/>
+	 * 필터링 결과가 입력과 같으면 입력 문자열 객체를 그대로 리턴하므로, {@code clean == dirty} 로 입력이 바뀌지 않았는지 확인할 수 있다.
+	 *
 	 * @param dirty
 	 *            XSS({@code Cross Site Scripting})이 포함된 위험한 코드.
 	 * @return 신뢰할 수 있는 코드.
 	 */
 	public String doFilter(String dirty) {
-		StringWriter writer = new StringWriter();
-		doFilter(dirty, writer);
-		return writer.toString();
+		if (dirty != null && CommonUtils.isPlainAsciiText(dirty)) {
+			return dirty;
+		}
+
+		XssFilter filter = this.current;
+		if (filter.resultCache == null || StringUtils.isEmpty(dirty)) {
+			return filter.filter(dirty);
+		}
+
+		FilterResultCache.Key key = filter.resultCache.key(dirty);
+		String clean = filter.resultCache.get(key);
+		if (clean == null) {
+			clean = filter.filter(dirty);
+			filter.resultCache.put(key, clean);
+		} else if (clean.equals(dirty)) {
+			// 보관된 결과는 처음 필터링한 입력 객체이므로, 입력이 바뀌지 않았으면 이번 입력 객체를 리턴한다.
+			return dirty;
+		}
+		return clean;
+	}
+
+	private String filter(String dirty) {
+		OutputBuffer writer = OutputBuffer.acquire((dirty == null) ? 0 : dirty.length());
+		try {
+			writer.track(dirty);
+			this.doFilter(dirty, writer);
+			return writer.toString();
+		} finally {
+			writer.release();
+		}
 	}
 
 	/**
@@ -196,26 +316,123 @@ public final class XssFilter implements LucyXssFilter {
 	 * @return 신뢰할 수 있는 코드.
 	 */
 	public void doFilter(String dirty, Writer writer) {
-		StringWriter logWriter = new StringWriter();
+		XssFilter filter = this.current;
+		if (filter != this) {
+			filter.doFilter(dirty, writer);
+			return;
+		}
+
+		this.doFilter(dirty, writer, new ArrayList<Object>());
+	}
 
+	private void doFilter(String dirty, Writer writer, List<Object> stack) {
 		if (StringUtils.isEmpty(dirty)) {
 			LOG.debug("Source string is empty. doFilter() method end.");
 			return;
 		}
 
-		Collection<Content> contents = MarkupParser.parse(dirty);
+		Collection<Content> contents = MarkupParser.parse(dirty, this.compiledTokenizer);
 
 		if (isEmpty(contents)) {
 			return;
 		}
 
 		try {
-			this.serialize(writer, contents);
+			this.serialize(writer, contents, stack);
 		} catch (IOException ioe) {
 			// ignore
 		}
 	}
 
+	/**
+	 * 이 메소드는 여러 입력을 차례로 필터링하여, 입력과 같은 순서의 결과 목록을 리턴한다. <br/>
+	 * 각 결과는 {@link #doFilter(String)} 와 같으며, 출력 버퍼 등 필터링에 사용하는 객체를 입력마다 새로 만들지 않고 재사용한다.
+	 * 제목, 닉네임과 같이 짧은 문자열을 한 번에 많이 필터링할 때 사용한다.
+	 *
+	 * @param dirty
+	 *            XSS({@code Cross Site Scripting})이 포함된 위험한 코드 목록.
+	 * @return 신뢰할 수 있는 코드 목록.
+	 */
+	public List<String> doFilterAll(List<String> dirty) {
+		return this.doFilterAll(dirty, null);
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilterAll(List)} 와 같으며, 입력이 많으면 나누어 executor 에서 병렬로 필터링한다.
+	 *
+	 * @param dirty
+	 *            XSS({@code Cross Site Scripting})이 포함된 위험한 코드 목록.
+	 * @param executor
+	 *            필터링을 수행할 {@code ExecutorService}. null 이면 호출한 Thread 에서 필터링하며, executor 가 거부한 입력도 호출한 Thread 에서 필터링한다.
+	 * @return 신뢰할 수 있는 코드 목록.
+	 */
+	public List<String> doFilterAll(List<String> dirty, ExecutorService executor) {
+		String[] clean = new String[dirty.size()];
+		this.doFilterAll(dirty.toArray(new String[clean.length]), clean, executor);
+		return Arrays.asList(clean);
+	}
+
+	/**
+	 * 이 메소드는 dirty[i] 를 필터링한 결과를 clean[i] 에 담는다. 각 결과는 {@link #doFilter(String)} 와 같다.
+	 *
+	 * @param dirty
+	 *            XSS({@code Cross Site Scripting})이 포함된 위험한 코드 배열.
+	 * @param clean
+	 *            신뢰할 수 있는 코드를 담을 배열. dirty 보다 짧으면 안 된다.
+	 */
+	public void doFilterAll(String[] dirty, String[] clean) {
+		this.doFilterAll(dirty, clean, null);
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilterAll(String[], String[])} 와 같으며, 입력이 많으면 나누어 executor 에서 병렬로 필터링한다.
+	 * 호출한 Thread 도 아직 시작되지 않은 작업을 직접 수행한다.
+	 *
+	 * @param dirty
+	 *            XSS({@code Cross Site Scripting})이 포함된 위험한 코드 배열.
+	 * @param clean
+	 *            신뢰할 수 있는 코드를 담을 배열. dirty 보다 짧으면 안 된다.
+	 * @param executor
+	 *            필터링을 수행할 {@code ExecutorService}. null 이면 호출한 Thread 에서 필터링하며, executor 가 거부한 입력도 호출한 Thread 에서 필터링한다.
+	 */
+	public void doFilterAll(final String[] dirty, final String[] clean, ExecutorService executor) {
+		if (clean.length < dirty.length) {
+			throw new IllegalArgumentException("clean.length(" + clean.length + ") < dirty.length(" + dirty.length + ")");
+		}
+
+		final XssFilter filter = this.current;
+		try {
+			FutureTasks.run(dirty.length, BATCH_SLICE_SIZE, executor, new FutureTasks.Slice() {
+				public void run(int from, int to) {
+					filter.doFilterAll(dirty, clean, from, to);
+				}
+			});
+		} catch (IOException ioe) {
+			LOG.error(ioe.getMessage(), ioe);
+		}
+	}
+
+	private void doFilterAll(String[] dirty, String[] clean, int from, int to) {
+		OutputBuffer writer = OutputBuffer.acquire(0);
+		List<Object> stack = new ArrayList<Object>();
+		try {
+			for (int i = from; i < to; i++) {
+				if (dirty[i] != null && CommonUtils.isPlainAsciiText(dirty[i])) {
+					clean[i] = dirty[i];
+					continue;
+				}
+
+				writer.reset();
+				writer.track(dirty[i]);
+				stack.clear();
+				this.doFilter(dirty[i], writer, stack);
+				clean[i] = writer.toString();
+			}
+		} finally {
+			writer.release();
+		}
+	}
+
 	/**
 	 * 이 메소드는 특정 Tag 내 특정 Attribute의 값에 삽입되는 XSS({@code Cross Site Scripting})이
 	 * 포함된 위험한 코드를 신뢰할 수 있는 코드로 변환하거나, 삭제하는 기능을 제공한다. <br/>
@@ -235,28 +452,40 @@ public final class XssFilter implements LucyXssFilter {
 			return "";
 		}
 
+		XssFilter filter = this.current;
+		if (filter != this) {
+			return filter.doFilter(tagName, attName, dirtyAttValue);
+		}
+
+		// 태그를 만들어 파싱하지 않고, 파싱 결과와 같은 Element 를 바로 만들어 검사한다.
+		Element element = MarkupParser.newElement(tagName, attName, dirtyAttValue);
+		if (element != null) {
+			String value = this.filterAttribute(element, attName);
+			return (value == null) ? "" : value;
+		}
+
+		return this.doFilterByParsing(tagName, attName, dirtyAttValue);
+	}
+
+	/**
+	 * {@code <tagName attName=dirtyAttValue></tagName>} 을 파싱하여 Attribute 값을 필터링한다.
+	 */
+	String doFilterByParsing(String tagName, String attName, String dirtyAttValue) {
 		StringBuilder dirty = new StringBuilder();
 		dirty.append('<').append(tagName);
 		dirty.append(' ').append(attName).append('=').append(dirtyAttValue);
 		dirty.append('>').append("</").append(tagName).append('>');
 
-		Collection<Content> contents = MarkupParser.parse(dirty.toString());
+		Collection<Content> contents = MarkupParser.parse(dirty.toString(), this.compiledTokenizer);
 		if (isEmpty(contents)) {
 			return "";
 		}
 
 		for (Content content : contents) {
 			if (content instanceof Element) {
-				Element tag = Element.class.cast(content);
-				this.checkRule(tag);
-
-				Attribute att = tag.getAttribute(attName);
-				if (att != null) {
-					if (att.isDisabled()) {
-						return "";
-					} else {
-						return att.getValue();
-					}
+				String value = this.filterAttribute(Element.class.cast(content), attName);
+				if (value != null) {
+					return value;
 				}
 			}
 		}
@@ -264,30 +493,125 @@ public final class XssFilter implements LucyXssFilter {
 		return "";
 	}
 
+	/**
+	 * @return	필터링된 Attribute 값, Attribute 가 없으면 null.
+	 */
+	private String filterAttribute(Element tag, String attName) {
+		this.checkRule(tag);
+
+		Attribute att = tag.getAttribute(attName);
+		if (att != null) {
+			if (att.isDisabled()) {
+				return "";
+			} else {
+				return att.getValue();
+			}
+		}
+
+		return null;
+	}
+
 	private boolean isEmpty(Collection<Content> contents) {
 		return contents == null || contents.isEmpty();
 	}
 
-	private void serialize(Writer writer, Collection<Content> contents) throws IOException {
-		for (Content content : contents) {
+	/**
+	 * 재귀 호출 없이 작업 stack 으로 트리를 순회하므로, 중첩 깊이와 상관없이 Thread stack 을 일정하게 사용한다.
+	 * 종료 태그를 써야 하는 Element 는 하위 내용보다 먼저 {@code END_TAG} 와 함께 stack 에 넣어 하위 내용 뒤에 처리한다.
+	 * 중첩 깊이가 maxNestingDepth 에 이르면, 그 아래의 Element 는 종료 태그를 바로 쓰고 하위 내용을 형제로 펼쳐 쓴다.
+	 */
+	private void serialize(Writer writer, Collection<Content> contents, List<Object> stack) throws IOException {
+		this.push(stack, contents);
+
+		int depth = 0;
+		while (!stack.isEmpty()) {
+			Object item = stack.remove(stack.size() - 1);
+			if (item == END_TAG) {
+				depth--;
+				this.serializeEndTag(writer, Element.class.cast(stack.remove(stack.size() - 1)));
+				continue;
+			}
+
+			Content content = Content.class.cast(item);
 			if (content instanceof Text || content instanceof Description) {
 				content.serialize(writer);
 			} else if (content instanceof Comment) {
 				this.serialize(writer, Comment.class.cast(content));
-			} else if (content instanceof IEHackExtensionElement) {
-				this.serialize(writer, IEHackExtensionElement.class.cast(content));
 			} else if (content instanceof Element) {
-				this.serialize(writer, Element.class.cast(content));
+				Element element = Element.class.cast(content);
+				boolean hasEndTag;
+				if (element instanceof IEHackExtensionElement) {
+					hasEndTag = this.serializeStartTag(writer, IEHackExtensionElement.class.cast(element));
+				} else {
+					hasEndTag = this.serializeStartTag(writer, element);
+				}
+
+				if (hasEndTag && this.maxNestingDepth > 0 && depth >= this.maxNestingDepth) {
+					this.serializeEndTag(writer, element);
+				} else if (hasEndTag) {
+					stack.add(element);
+					stack.add(END_TAG);
+					depth++;
+				}
+
+				if (!element.isEmpty()) {
+					this.push(stack, element.getContents());
+				}
+			}
+		}
+	}
+
+	/**
+	 * contents 를 앞에서부터 꺼낼 수 있도록 역순으로 stack 에 넣는다.
+	 */
+	private void push(List<Object> stack, Collection<Content> contents) {
+		List<Content> list = (contents instanceof List) ? (List<Content>)contents : new ArrayList<Content>(contents);
+		for (ListIterator<Content> it = list.listIterator(list.size()); it.hasPrevious();) {
+			stack.add(it.previous());
+		}
+	}
+
+	private void serializeEndTag(Writer writer, Element element) throws IOException {
+		if (element instanceof IEHackExtensionElement) {
+			this.serializeEndTag(writer, IEHackExtensionElement.class.cast(element));
+			return;
+		}
+
+		if (element.isClosed()) {
+			if (element.isDisabled() && !this.blockingPrefixEnabled) {
+				writer.write("&lt;/");
+				writer.write(element.getName());
+				writer.write("&gt;");
+			} else {
+				writer.write("</");
+				writer.write(element.getName());
+				writer.write('>');
 			}
 		}
+	}
 
+	private void serializeEndTag(Writer writer, IEHackExtensionElement ie) throws IOException {
+		if (ie.isClosed()) {
+			// 중첩 IE Hack 태그 처리 로직(메일서비스개발랩 요구사항)
+			// IE Hack 시작 태그의 종류 판별 및 태그맞춤 cf) 시작 스트링이 <!-- 인지 <! 인지에 따라 IE Hack 닫는 태그 달라짐.
+			String stdName = ie.getName().replaceAll("-->", ">").replaceFirst("<!--\\s*", "<!--").replaceAll("]\\s*>", "]>");
+
+			if(stdName.indexOf("<!--") != -1) {
+				writer.write("<![endif]-->");
+			} else {
+				writer.write("<![endif]>");
+			}
+		}
 	}
 
 	private void serialize(Writer writer, Comment comment) throws IOException {
 		comment.serializeFilteringTagInComment(writer, this.filteringTagInCommentEnabled, this.commentFilter);
 	}
 
-	private void serialize(Writer writer, IEHackExtensionElement ie) throws IOException {
+	/**
+	 * @return	하위 내용 뒤에 종료 태그를 써야 하면 true.
+	 */
+	private boolean serializeStartTag(Writer writer, IEHackExtensionElement ie) throws IOException {
 
 		ElementRule iEHExRule = this.config.getElementRule(IE_HACK_EXTENSION);
 
@@ -300,7 +624,7 @@ public final class XssFilter implements LucyXssFilter {
 		}
 
 		if (writer == null) {
-			return;
+			return false;
 		}
 
 		if (ie.isDisabled()) { // IE Hack 태그가 비활성화 되어 있으면, 태그 삭제.
@@ -310,34 +634,20 @@ public final class XssFilter implements LucyXssFilter {
 				writer.write(REMOVE_TAG_INFO_END);
 			}
 
-			if (!ie.isEmpty()) {
-				this.serialize(writer, ie.getContents());
-			}
+			return false;
 		} else {
 			// \s : A whitespace character, short for [ \t\n\x0b\r\f]
 			// * : Occurs zero or more times, is short for {0,}
 			ie.serialize(writer);
 
-			if (!ie.isEmpty()) {
-				this.serialize(writer, ie.getContents());
-			}
-
-			if (ie.isClosed()) {
-				// 중첩 IE Hack 태그 처리 로직(메일서비스개발랩 요구사항)
-				// IE Hack 시작 태그의 종류 판별 및 태그맞춤 cf) 시작 스트링이 <!-- 인지 <! 인지에 따라 IE Hack 닫는 태그 달라짐.
-				String stdName = ie.getName().replaceAll("-->", ">").replaceFirst("<!--\\s*", "<!--").replaceAll("]\\s*>", "]>");
-
-				if(stdName.indexOf("<!--") != -1) {
-					writer.write("<![endif]-->");
-				} else {
-					writer.write("<![endif]>");
-				}
-			}
+			return true;
 		}
 	}
 
-	private void serialize(Writer writer, Element element) throws IOException {
-		boolean hasAttrXss = false;
+	/**
+	 * @return	하위 내용 뒤에 종료 태그를 써야 하면 true.
+	 */
+	private boolean serializeStartTag(Writer writer, Element element) throws IOException {
 		checkRuleRemove(element);
 
 		if (element.isRemoved()) {
@@ -347,9 +657,7 @@ public final class XssFilter implements LucyXssFilter {
 				writer.write(REMOVE_TAG_INFO_END);
 			}
 
-			if (!element.isEmpty()) {
-				this.serialize(writer, element.getContents());
-			}
+			return false;
 		} else {
 			//TODO 코드 리뷰 필요
 			// v1.3.3 & v1.5.1 BEFORE if (!element.isDisabled()) {
@@ -372,37 +680,18 @@ public final class XssFilter implements LucyXssFilter {
 				}
 			}
 
-			if (!element.isDisabled() && !this.withoutComment && element.existDisabledAttribute()) {
-				writer.write(BAD_ATT_INFO_START);
-			}
-
 			Collection<Attribute> atts = element.getAttributes();
 
-			StringWriter attrSw = new StringWriter();
-			StringWriter attrXssSw = new StringWriter();
-
-			if (atts != null && !atts.isEmpty()) {
+			// 허용되지 않은 속성은 태그 앞의 주석에, 나머지 속성은 태그 이름 뒤에 바로 쓴다.
+			if (!element.isDisabled() && !this.withoutComment && element.existDisabledAttribute()) {
+				writer.write(BAD_ATT_INFO_START);
 				for (Attribute att : atts) {
-					if (!element.isDisabled() && att.isDisabled()) {
-						hasAttrXss = true;
-
-						if (!this.withoutComment) {
-							attrXssSw.write(' ');
-							att.serialize(attrXssSw);
-						}
-					} else {
-						attrSw.write(' ');
-						att.serialize(attrSw);
+					if (att.isDisabled()) {
+						writer.write(' ');
+						att.serialize(writer);
 					}
 				}
-			}
-
-			if (hasAttrXss) {
-				String attrXssString = attrXssSw.toString();
-				if (!this.withoutComment) {
-					writer.write(attrXssString);
-					writer.write(BAD_ATT_INFO_END);
-				}
+				writer.write(BAD_ATT_INFO_END);
 			}
 
 			if (!element.isDisabled()) {
@@ -410,7 +699,14 @@ public final class XssFilter implements LucyXssFilter {
 				writer.write(element.getName());
 			}
 
-			writer.write(attrSw.toString());
+			if (atts != null) {
+				for (Attribute att : atts) {
+					if (element.isDisabled() || !att.isDisabled()) {
+						writer.write(' ');
+						att.serialize(writer);
+					}
+				}
+			}
 
 			if (element.isStartClosed()) {
 
@@ -421,21 +717,7 @@ public final class XssFilter implements LucyXssFilter {
 				writer.write(element.isDisabled() ? "&gt;" : ">");
 			}
 
-			if (!element.isEmpty()) {
-				this.serialize(writer, element.getContents());
-			}
-
-			if (element.isClosed()) {
-				if (element.isDisabled() && !this.blockingPrefixEnabled) {
-					writer.write("&lt;/");
-					writer.write(element.getName());
-					writer.write("&gt;");
-				} else {
-					writer.write("</");
-					writer.write(element.getName());
-					writer.write('>');
-				}
-			}
+			return true;
 		}
 	}
 
@@ -15,16 +15,35 @@
  */
 package com.nhncorp.lucy.security.xss;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -34,6 +53,7 @@ import com.nhncorp.lucy.security.xss.config.AttributeRule;
 import com.nhncorp.lucy.security.xss.config.ElementRule;
 import com.nhncorp.lucy.security.xss.config.XssConfiguration;
 import com.nhncorp.lucy.security.xss.config.XssSaxConfiguration;
+import com.nhncorp.lucy.security.xss.listener.ParamName;
 import com.nhncorp.lucy.security.xss.listener.SecurityUtils;
 import com.nhncorp.lucy.security.xss.listener.WhiteUrlList;
 import com.nhncorp.lucy.security.xss.markup.Attribute;
@@ -44,7 +64,9 @@ import com.nhncorp.lucy.security.xss.markup.IEHackExtensionElement;
 import com.nhncorp.lucy.security.xss.markup.MarkupSaxParser;
 import com.nhncorp.lucy.security.xss.markup.Text;
 import com.nhncorp.lucy.security.xss.markup.rule.CharArraySegment;
+import com.nhncorp.lucy.security.xss.markup.rule.ParseContext;
 import com.nhncorp.lucy.security.xss.markup.rule.Token;
+import com.nhncorp.lucy.security.xss.markup.rule.TokenReader;
 
 /**
  * 이 클래스는 {@code Cross Site Scripting} 코드가 삽입된 {@code String} 데이터를 신뢰할 수 있는 코드로
@@ -77,6 +99,18 @@ public final class XssSaxFilter implements LucyXssFilter {
 	private static final String ELELMENT_REMOVE_NELO_MSG = " (Removed Element)";*/
 	private static final String CONFIG = "lucy-xss-superset-sax.xml";
 	private static final String IE_HACK_EXTENSION = "IEHackExtension";
+	/**
+	 * filterFile 에서 한번에 memory-map 하는 입력 파일의 크기.
+	 */
+	private static final int MAP_WINDOW_SIZE = 8 * 1024 * 1024;
+	/**
+	 * 병렬 필터링 시 구간 크기의 하한. 이보다 작은 구간은 나누는 비용이 더 크다.
+	 */
+	private static final int MIN_PARALLEL_CHUNK_SIZE = 4 * 1024;
+	/**
+	 * 여러 입력을 병렬로 필터링할 때 한 작업이 처리하는 입력 수.
+	 */
+	private static final int BATCH_SLICE_SIZE = 256;
 	private boolean withoutComment;
 	//private boolean isNeloLogEnabled;
 	private String service;
@@ -86,25 +120,74 @@ public final class XssSaxFilter implements LucyXssFilter {
 	private String blockingPrefix;
 	private boolean blockingPrefixEnabled;
 	private boolean filteringTagInCommentEnabled;
+	private boolean compiledTokenizer;
+	private int maxTokenSize;
 
 	private XssSaxFilter commentFilter;
 	private XssSaxConfiguration config;
+	private FilterResultCache resultCache;
+	/**
+	 * 미리 필터링한 보안 param. {@link ParamName#ordinal()} 순서이며, allowNetworking 은 값이 internal 인 결과이다. Listener 때문에 미리 만들 수 없으면 null.
+	 */
+	private String[] securityParams;
+	private String allowNetworkingAllParam;
+
+	/**
+	 * 필터링에 사용할 설정이 적용된 필터 객체. 설정을 다시 읽으면 새 필터 객체로 바뀌며,
+	 * 필터링 중인 호출은 시작할 때 읽은 필터 객체로 끝까지 수행된다.
+	 */
+	private volatile XssSaxFilter current = this;
+
+	private static final FilterRepository<XssSaxFilter> instanceMap = new FilterRepository<XssSaxFilter>() {
+		@Override
+		protected XssSaxFilter newFilter(String fileName, boolean withoutComment) throws Exception {
+			XssSaxFilter filter = new XssSaxFilter(XssSaxConfiguration.newInstance(fileName));
+			filter.withoutComment = withoutComment;
+//			filter.isNeloLogEnabled = filter.config.enableNeloAsyncLog();
+			filter.service = filter.config.getService();
+			filter.blockingPrefixEnabled = filter.config.isEnableBlockingPrefix();
+			filter.blockingPrefix = filter.config.getBlockingPrefix();
 
-	private static final Map<FilterRepositoryKey, XssSaxFilter> instanceMap = new HashMap<FilterRepositoryKey, XssSaxFilter>();
+		/*	filter.neloElementMSG = ELELMENT_NELO_MSG;
+			filter.neloAttrMSG = ATTRIBUTE_NELO_MSG;
+			filter.neloElementRemoveMSG = ELELMENT_REMOVE_NELO_MSG;*/
 
-	private static final Pattern[] PARAMLIST = {Pattern.compile("['\"]?\\s*(?i:invokeURLs)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:autostart)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:allowScriptAccess)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:allowNetworking)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:autoplay)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:enablehref)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:enablejavascript)\\s*['\"]?"),
-		Pattern.compile("['\"]?\\s*(?i:nojava)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:AllowHtmlPopupwindow)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:enableHtmlAccess)\\s*['\"]?")};
+			filter.filteringTagInCommentEnabled = filter.config.isFilteringTagInCommentEnabled();
+			filter.compiledTokenizer = filter.config.isCompiledTokenizer();
+			filter.maxTokenSize = filter.config.getMaxTokenSize();
 
-	private static final Pattern[] URLNAMES = {Pattern.compile("['\"]?\\s*(?i:url)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:href)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:src)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:movie)\\s*['\"]?")};
+			if (filter.filteringTagInCommentEnabled && ! filter.config.isNoTagAllowedInComment()) {
 
-	private static boolean containsURLName(String name) {
-		for (Pattern pattern : URLNAMES) {
-			if (pattern.matcher(name).matches()) {
-				return true;
+				filter.commentFilter = XssSaxFilter.getCommentFilterInstance(filter.config);
+
+			}
+
+			if (filter.config.getResultCacheMaxChars() > 0) {
+				filter.resultCache = new FilterResultCache(filter.config.getResultCacheMaxChars());
 			}
+
+			filter.prepareSecurityParams();
+			return filter;
 		}
-		return false;
-	}
+
+		@Override
+		protected void update(XssSaxFilter filter, XssSaxFilter fresh) {
+			FilterResultCache previous = filter.current.resultCache;
+			filter.current = fresh;
+
+			// 이전 설정으로 필터링한 결과는 더 이상 사용되지 않는다.
+			if (previous != null) {
+				previous.clear();
+			}
+		}
+	};
+
+	/**
+	 * object 태그를 닫기 전에 없으면 추가하는 보안 param. allowNetworking 의 값은 data 속성과 url param 의 값에 따라 정해진다.
+	 */
+	private static final ParamName[] SECURITY_PARAMS = ParamName.securityParams();
+	private static final String ALLOW_NETWORKING_ALL = "\"all\"";
+	private static final String ALLOW_NETWORKING_INTERNAL = "\"internal\"";
 
 	private boolean isWhiteUrl(String url) {
 		WhiteUrlList list = WhiteUrlList.getInstance();
@@ -156,41 +239,62 @@ public final class XssSaxFilter implements LucyXssFilter {
 		}
 		 **/
 		try {
-			synchronized (XssSaxFilter.class) {
-				FilterRepositoryKey key = new FilterRepositoryKey(fileName, withoutComment);
-
-				XssSaxFilter filter = instanceMap.get(key);
-				if (filter != null) {
-					return filter;
-				}
-
-				filter = new XssSaxFilter(XssSaxConfiguration.newInstance(fileName));
-				filter.withoutComment = withoutComment;
-//				filter.isNeloLogEnabled = filter.config.enableNeloAsyncLog();
-				filter.service = filter.config.getService();
-				filter.blockingPrefixEnabled = filter.config.isEnableBlockingPrefix();
-				filter.blockingPrefix = filter.config.getBlockingPrefix();
-
-			/*	filter.neloElementMSG = ELELMENT_NELO_MSG;
-				filter.neloAttrMSG = ATTRIBUTE_NELO_MSG;
-				filter.neloElementRemoveMSG = ELELMENT_REMOVE_NELO_MSG;*/
-
-				filter.filteringTagInCommentEnabled = filter.config.isFilteringTagInCommentEnabled();
-
-				if (filter.filteringTagInCommentEnabled && ! filter.config.isNoTagAllowedInComment()) {
-
-					filter.commentFilter = XssSaxFilter.getCommentFilterInstance(filter.config);
+			return instanceMap.get(fileName, withoutComment);
+		} catch (Exception e) {
+			throw new XssFilterException(e.getMessage());
+		}
+	}
 
-				}
+	/**
+	 * 이 메소드는 설정파일을 다시 읽어, 이미 리턴된 XssSaxFilter 객체에 새 설정을 적용한다. <br/>
+	 * 새 설정은 한 번에 적용되며, 필터링 중인 호출은 이전 설정으로 끝까지 수행된다.
+	 * 설정파일 로딩에 실패하면 이전 설정을 유지한다.
+	 *
+	 * @param fileName
+	 *            XSS Filter 설정파일
+	 * @throws XssFilterException
+	 *             설정파일 로딩 실패 시 발생(malformed인 경우).
+	 */
+	public static void reload(String fileName) throws XssFilterException {
+		try {
+			instanceMap.reload(fileName);
+		} catch (Exception e) {
+			throw new XssFilterException(e.getMessage());
+		}
+	}
 
-				instanceMap.put(key, filter);
-				return filter;
-			}
+	/**
+	 * 이 메소드는 XssSaxFilter 객체가 생성된 모든 설정파일을 다시 읽어 적용한다.
+	 *
+	 * @throws XssFilterException
+	 *             설정파일 로딩 실패 시 발생(malformed인 경우).
+	 */
+	public static void reloadAll() throws XssFilterException {
+		try {
+			instanceMap.reloadAll();
 		} catch (Exception e) {
 			throw new XssFilterException(e.getMessage());
 		}
 	}
 
+	/**
+	 * 이 메소드는 interval(millisecond) 마다 설정파일의 변경 여부를 확인하여, 변경된 설정파일을 다시 읽는 daemon Thread 를 시작한다. <br/>
+	 * 파일 시스템에 있는 설정파일만 확인하며, extends 로 지정한 상위 설정파일의 변경은 확인하지 않는다.
+	 *
+	 * @param interval
+	 *            확인 주기(millisecond)
+	 */
+	public static void startConfigWatcher(long interval) {
+		instanceMap.watch(interval);
+	}
+
+	/**
+	 * 이 메소드는 {@link #startConfigWatcher(long)} 로 시작한 Thread 를 중지한다.
+	 */
+	public static void stopConfigWatcher() {
+		instanceMap.unwatch();
+	}
+
 	/**
 	 * 이 메소드는 주석 내 태그 필터링을 위한 XssSaxFilter 객체를 리턴한다.
 	 *
@@ -212,7 +316,10 @@ public final class XssSaxFilter implements LucyXssFilter {
 		filter.neloElementRemoveMSG = ELELMENT_REMOVE_NELO_MSG;*/
 
 		filter.filteringTagInCommentEnabled = true;
+		filter.compiledTokenizer = filter.config.isCompiledTokenizer();
+		filter.maxTokenSize = filter.config.getMaxTokenSize();
 
+		filter.prepareSecurityParams();
 		return filter;
 	}
 
@@ -222,7 +329,17 @@ public final class XssSaxFilter implements LucyXssFilter {
 	 * @return {@link XssConfiguration} 객체
 	 */
 	public XssSaxConfiguration getConfig() {
-		return this.config;
+		return this.current.config;
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilter(String)} 결과를 보관하는 {@link FilterResultCache} 객체를 반환한다.
+	 * 설정파일에 {@code resultCache} 를 지정하지 않았으면 null 을 반환한다.
+	 *
+	 * @return {@link FilterResultCache} 객체
+	 */
+	public FilterResultCache getResultCache() {
+		return this.current.resultCache;
 	}
 
 	/**
@@ -230,14 +347,44 @@ public final class XssSaxFilter implements LucyXssFilter {
 	 * 변환하거나, 삭제하는 기능을 제공한다. <br/> {@code "lucy-xss-sax.xml"} 설정(사용자 설정 파일)에 따라 필터링을 수행한다.
 	 * 사용자 설정 파일을 명시적으로 지정하지 않는 getInstance() 로 필터 객체를 생성했을 경우, lucy-xss-superset-sax.xml 설정을 사용한다.
 	 *
+	 * <br/><br/>
+	 * 필터링 결과가 입력과 같으면 입력 문자열 객체를 그대로 리턴하므로, {@code clean == dirty} 로 입력이 바뀌지 않았는지 확인할 수 있다.
+	 *
 	 * @param dirty
 	 *            XSS({@code Cross Site Scripting})이 포함된 위험한 코드.
 	 * @return 신뢰할 수 있는 코드.
 	 */
 	public String doFilter(String dirty) {
-		StringWriter writer = new StringWriter();
-		doFilter(dirty, writer);
-		return writer.toString();
+		if (dirty != null && CommonUtils.isPlainAsciiText(dirty)) {
+			return dirty;
+		}
+
+		XssSaxFilter filter = this.current;
+		if (filter.resultCache == null || dirty == null || dirty.length() == 0) {
+			return filter.filter(dirty);
+		}
+
+		FilterResultCache.Key key = filter.resultCache.key(dirty);
+		String clean = filter.resultCache.get(key);
+		if (clean == null) {
+			clean = filter.filter(dirty);
+			filter.resultCache.put(key, clean);
+		} else if (clean.equals(dirty)) {
+			// 보관된 결과는 처음 필터링한 입력 객체이므로, 입력이 바뀌지 않았으면 이번 입력 객체를 리턴한다.
+			return dirty;
+		}
+		return clean;
+	}
+
+	private String filter(String dirty) {
+		OutputBuffer writer = OutputBuffer.acquire((dirty == null) ? 0 : dirty.length());
+		try {
+			writer.track(dirty);
+			this.doFilter(dirty, writer);
+			return writer.toString();
+		} finally {
+			writer.release();
+		}
 	}
 
 	/**
@@ -250,6 +397,12 @@ public final class XssSaxFilter implements LucyXssFilter {
 	 * @param writer 필터링 결과를 write 할 writer 객체. 이 메소드가 종료되면 writer 객체에 신뢰할 수 있는 코드가 담겨진다.
 	 */
 	public void doFilter(String dirty, Writer writer) {
+		XssSaxFilter filter = this.current;
+		if (filter != this) {
+			filter.doFilter(dirty, writer);
+			return;
+		}
+
 		StringWriter neloLogWriter = new StringWriter();
 
 		if (dirty == null || dirty.length() == 0) {
@@ -282,6 +435,12 @@ public final class XssSaxFilter implements LucyXssFilter {
 	 * @param writer 필터링 결과를 write 할 writer 객체. 이 메소드가 종료되면 writer 객체에 신뢰할 수 있는 코드가 담겨진다.
 	 */
 	public void doFilter(char[] dirty, int offset, int count, Writer writer) {
+		XssSaxFilter filter = this.current;
+		if (filter != this) {
+			filter.doFilter(dirty, offset, count, writer);
+			return;
+		}
+
 		StringWriter neloLogWriter = new StringWriter();
 
 		if (dirty == null || dirty.length == 0 || count == 0) {
@@ -303,6 +462,298 @@ public final class XssSaxFilter implements LucyXssFilter {
 		}*/
 	}
 
+	/**
+	 * 이 메소드는 {@link #doFilter(String)} 와 같은 결과를 리턴하며, 큰 입력은 구간으로 나누어 executor 에서 병렬로 필터링한다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드.
+	 * @param executor 구간 필터링을 수행할 {@code ExecutorService}.
+	 * @param minChunkSize 구간의 최소 크기(문자 수). 입력이 이 크기의 2배보다 작으면 병렬로 필터링하지 않는다.
+	 * @return 신뢰할 수 있는 코드.
+	 * @see #doFilter(String, Writer, ExecutorService, int)
+	 */
+	public String doFilter(String dirty, ExecutorService executor, int minChunkSize) {
+		OutputBuffer writer = OutputBuffer.acquire((dirty == null) ? 0 : dirty.length());
+		try {
+			writer.track(dirty);
+			doFilter(dirty, writer, executor, minChunkSize);
+			return writer.toString();
+		} finally {
+			writer.release();
+		}
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilter(String, Writer)} 와 같은 결과를 writer 에 쓰며, 큰 입력은 구간으로 나누어 executor 에서 병렬로 필터링한다.
+	 * <br/><br/>
+	 * 입력은 태그가 시작될 것으로 보이는 위치({@code '<'} 다음에 영문자 또는 {@code '/'})에서 나누며, 각 구간은 순차 필터링과 같이 입력 끝까지를 대상으로
+	 * Tokenizing 하되 다음 구간의 시작 위치에 이르면 멈춘다. 구간 결과는 순서대로 이어 붙인다.
+	 * 앞 구간의 마지막 토큰이 다음 구간의 시작 위치에서 끝나지 않았거나(주석, 속성 값 내부 등에서 나눈 경우), object 태그가 닫히지 않은 상태로 끝나면
+	 * 다음 구간의 결과는 버리고 호출한 Thread 에서 이어서 순차 필터링하므로, 결과는 항상 순차 필터링과 같다.
+	 * <br/><br/>
+	 * 호출한 Thread 도 아직 시작되지 않은 구간을 직접 필터링하므로, executor 의 Thread 가 모두 사용 중이어도 멈추지 않으며, executor 가 작업을 거부하면 나머지 구간도 직접 필터링한다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드.
+	 * @param writer 필터링 결과를 write 할 writer 객체.
+	 * @param executor 구간 필터링을 수행할 {@code ExecutorService}.
+	 * @param minChunkSize 구간의 최소 크기(문자 수). 입력이 이 크기의 2배보다 작으면 병렬로 필터링하지 않는다.
+	 */
+	public void doFilter(String dirty, Writer writer, ExecutorService executor, int minChunkSize) {
+		XssSaxFilter filter = this.current;
+		if (filter != this) {
+			filter.doFilter(dirty, writer, executor, minChunkSize);
+			return;
+		}
+
+		int chunkSize = Math.max(minChunkSize, MIN_PARALLEL_CHUNK_SIZE);
+		if (dirty == null || executor == null || dirty.length() < chunkSize * 2) {
+			this.doFilter(dirty, writer);
+			return;
+		}
+
+		try {
+			this.parallelParseAndFilter(dirty.toCharArray(), chunkSize, writer, executor);
+		} catch (IOException ioe) {
+			LOG.error(ioe.getMessage(), ioe);
+		}
+	}
+
+	/**
+	 * 이 메소드는 여러 입력을 차례로 필터링하여, 입력과 같은 순서의 결과 목록을 리턴한다. <br/>
+	 * 각 결과는 {@link #doFilter(String)} 와 같으며, 출력 버퍼, 파싱 Context, object 태그 처리용 stack 을 입력마다 새로 만들지 않고 재사용한다.
+	 * 제목, 닉네임과 같이 짧은 문자열을 한 번에 많이 필터링할 때 사용한다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드 목록.
+	 * @return 신뢰할 수 있는 코드 목록.
+	 */
+	public List<String> doFilterAll(List<String> dirty) {
+		return this.doFilterAll(dirty, null);
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilterAll(List)} 와 같으며, 입력이 많으면 나누어 executor 에서 병렬로 필터링한다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드 목록.
+	 * @param executor 필터링을 수행할 {@code ExecutorService}. null 이면 호출한 Thread 에서 필터링하며, executor 가 거부한 입력도 호출한 Thread 에서 필터링한다.
+	 * @return 신뢰할 수 있는 코드 목록.
+	 */
+	public List<String> doFilterAll(List<String> dirty, ExecutorService executor) {
+		String[] clean = new String[dirty.size()];
+		this.doFilterAll(dirty.toArray(new String[clean.length]), clean, executor);
+		return Arrays.asList(clean);
+	}
+
+	/**
+	 * 이 메소드는 dirty[i] 를 필터링한 결과를 clean[i] 에 담는다. 각 결과는 {@link #doFilter(String)} 와 같다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드 배열.
+	 * @param clean 신뢰할 수 있는 코드를 담을 배열. dirty 보다 짧으면 안 된다.
+	 */
+	public void doFilterAll(String[] dirty, String[] clean) {
+		this.doFilterAll(dirty, clean, null);
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilterAll(String[], String[])} 와 같으며, 입력이 많으면 나누어 executor 에서 병렬로 필터링한다.
+	 * 호출한 Thread 도 아직 시작되지 않은 작업을 직접 수행한다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드 배열.
+	 * @param clean 신뢰할 수 있는 코드를 담을 배열. dirty 보다 짧으면 안 된다.
+	 * @param executor 필터링을 수행할 {@code ExecutorService}. null 이면 호출한 Thread 에서 필터링하며, executor 가 거부한 입력도 호출한 Thread 에서 필터링한다.
+	 */
+	public void doFilterAll(final String[] dirty, final String[] clean, ExecutorService executor) {
+		if (clean.length < dirty.length) {
+			throw new IllegalArgumentException("clean.length(" + clean.length + ") < dirty.length(" + dirty.length + ")");
+		}
+
+		final XssSaxFilter filter = this.current;
+		try {
+			FutureTasks.run(dirty.length, BATCH_SLICE_SIZE, executor, new FutureTasks.Slice() {
+				public void run(int from, int to) {
+					filter.doFilterAll(dirty, clean, from, to);
+				}
+			});
+		} catch (IOException ioe) {
+			LOG.error(ioe.getMessage(), ioe);
+		}
+	}
+
+	private void doFilterAll(String[] dirty, String[] clean, int from, int to) {
+		OutputBuffer writer = OutputBuffer.acquire(0);
+		StringWriter neloLogWriter = new StringWriter();
+		LinkedList<Element> stackForObjectTag = new LinkedList<Element>();
+		LinkedList<String> stackForAllowNetworkingValue = new LinkedList<String>();
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			for (int i = from; i < to; i++) {
+				if (dirty[i] != null && CommonUtils.isPlainAsciiText(dirty[i])) {
+					clean[i] = dirty[i];
+					continue;
+				}
+
+				writer.reset();
+				writer.track(dirty[i]);
+				if (dirty[i] != null && dirty[i].length() > 0) {
+					stackForObjectTag.clear();
+					stackForAllowNetworkingValue.clear();
+					try {
+						this.doParseAndFilter(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue, context.input(dirty[i]));
+					} catch (IOException ioe) {
+						LOG.error(ioe.getMessage(), ioe);
+					}
+				}
+				clean[i] = writer.toString();
+			}
+		} finally {
+			context.release();
+			writer.release();
+		}
+	}
+
+	/**
+	 * 이 메소드는 XSS({@code Cross Site Scripting})이 포함된 위험한 코드에 대하여 신뢰할 수 있는 코드로
+	 * 변환하거나, 삭제하는 기능을 제공한다. <br/> {@code "lucy-xss-sax.xml"} 설정(사용자 설정 파일)에 따라 필터링을 수행한다.
+	 * <br/><br/>
+	 * reader 로부터 입력을 버퍼 단위로 읽으며 필터링 결과를 writer 에 쓰므로, 전체 입력을 메모리에 올리지 않는다.
+	 * 사용하는 메모리는 버퍼 크기와 가장 긴 토큰의 길이로 제한되며, 토큰이 설정의 최대 토큰 크기(tokenizer 요소의 maxTokenSize 속성)를 넘으면
+	 * 그 위치에서 토큰을 잘라 필터링한다. 스트림 입력은 tokenizer 설정과 관계없이 compiled tokenizer 로 Tokenizing 한다.
+	 * <br/> reader 와 writer 는 닫지 않는다.
+	 *
+	 * @param reader XSS({@code Cross Site Scripting})이 포함된 위험한 코드를 읽을 reader 객체.
+	 * @param writer 필터링 결과를 write 할 writer 객체.
+	 * @throws IOException reader 읽기 또는 writer 쓰기 실패 시.
+	 */
+	public void doFilter(Reader reader, Writer writer) throws IOException {
+		XssSaxFilter filter = this.current;
+		if (filter != this) {
+			filter.doFilter(reader, writer);
+			return;
+		}
+
+		if (reader == null) {
+			LOG.debug("target reader is null. doFilter() method end.");
+			return;
+		}
+
+		StringWriter neloLogWriter = new StringWriter();
+		LinkedList<Element> stackForObjectTag = new LinkedList<Element>();
+		LinkedList<String> stackForAllowNetworkingValue = new LinkedList<String>();
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			TokenReader tokens = new TokenReader(reader, context, TokenReader.DEFAULT_BUFFER_SIZE, this.maxTokenSize);
+			Token token;
+			while ((token = tokens.nextToken()) != null) {
+				this.filterToken(token, writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue);
+			}
+		} finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * 이 메소드는 {@link #doFilter(Reader, Writer)} 와 같이 입력 스트림을 버퍼 단위로 필터링하여 결과를 출력 스트림에 쓴다.
+	 * <br/> 입력과 출력 모두 cs 로 인코딩 되며, 스트림은 닫지 않는다.
+	 *
+	 * @param in XSS({@code Cross Site Scripting})이 포함된 위험한 코드를 읽을 입력 스트림.
+	 * @param cs 입력, 출력 스트림의 {@code Charset}.
+	 * @param out 필터링 결과를 write 할 출력 스트림.
+	 * @throws IOException 입력 읽기 또는 출력 쓰기 실패 시.
+	 */
+	public void doFilter(InputStream in, Charset cs, OutputStream out) throws IOException {
+		if (in == null) {
+			LOG.debug("target stream is null. doFilter() method end.");
+			return;
+		}
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, cs));
+		this.doFilter(new InputStreamReader(in, cs), writer);
+		writer.flush();
+	}
+
+	/**
+	 * 이 메소드는 {@code CharBuffer} 의 position 부터 limit 까지를 필터링하여 결과를 out 에 쓴다.
+	 * <br/> 배열 기반의 {@code CharBuffer} 는 배열을 복사하지 않고 바로 Tokenizing 하며,
+	 * direct 또는 읽기 전용 {@code CharBuffer} 는 {@link #doFilter(Reader, Writer)} 와 같이 버퍼 단위로 읽는다.
+	 * 필터링이 끝나면 dirty 의 position 은 limit 으로 이동한다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드.
+	 * @param out 필터링 결과를 append 할 객체.
+	 * @throws IOException out 쓰기 실패 시.
+	 */
+	public void doFilter(CharBuffer dirty, Appendable out) throws IOException {
+		XssSaxFilter filter = this.current;
+		if (filter != this) {
+			filter.doFilter(dirty, out);
+			return;
+		}
+
+		if (dirty == null || !dirty.hasRemaining()) {
+			LOG.debug("target buffer is empty. doFilter() method end.");
+			return;
+		}
+
+		Writer writer = (out instanceof Writer) ? Writer.class.cast(out) : new AppendableWriter(out);
+		if (dirty.hasArray()) {
+			this.parseAndFilter(dirty.array(), dirty.arrayOffset() + dirty.position(), dirty.remaining(), writer, new StringWriter());
+			dirty.position(dirty.limit());
+		} else {
+			this.doFilter(new CharBufferReader(dirty), writer);
+		}
+	}
+
+	/**
+	 * 이 메소드는 {@code ByteBuffer} 의 position 부터 limit 까지를 decoder 로 조금씩 decoding 하면서 필터링하고,
+	 * 결과를 decoder 와 같은 {@code Charset} 으로 조금씩 encoding 하여 out 에 쓴다.
+	 * <br/> 전체 입력을 {@code String} 으로 decoding 하지 않으며, {@link #doFilter(Reader, Writer)} 와 같이 버퍼 단위로 Tokenizing 한다.
+	 * 필터링이 끝나면 dirty 의 position 은 limit 으로 이동하며, out 은 닫지 않는다.
+	 *
+	 * @param dirty XSS({@code Cross Site Scripting})이 포함된 위험한 코드.
+	 * @param decoder dirty 를 decoding 할 {@code CharsetDecoder}.
+	 * @param out 필터링 결과를 write 할 channel.
+	 * @throws IOException decoding 실패 또는 out 쓰기 실패 시.
+	 */
+	public void doFilter(ByteBuffer dirty, CharsetDecoder decoder, WritableByteChannel out) throws IOException {
+		if (dirty == null || !dirty.hasRemaining()) {
+			LOG.debug("target buffer is empty. doFilter() method end.");
+			return;
+		}
+
+		Writer writer = Channels.newWriter(out, decoder.charset().newEncoder(), TokenReader.DEFAULT_BUFFER_SIZE);
+		this.doFilter(Channels.newReader(new ByteBufferChannel(dirty), decoder.reset(), TokenReader.DEFAULT_BUFFER_SIZE), writer);
+		writer.flush();
+	}
+
+	/**
+	 * 이 메소드는 입력 파일을 필터링하여 결과를 출력 파일에 쓴다.
+	 * <br/> 입력 파일은 일정 크기의 구간 단위로 memory-map 하여 decoding, Tokenizing 하고, 결과는 조금씩 encoding 하여 출력 파일에 쓰므로
+	 * 파일 크기와 관계없이 Heap 사용량은 버퍼 크기와 가장 긴 토큰의 길이로 제한된다.
+	 * 잘못된 byte 나 출력 Charset 으로 표현할 수 없는 문자는 {@code InputStreamReader}, {@code OutputStreamWriter} 와 같이 대체 문자로 바꾼다.
+	 * <br/> 출력 파일이 이미 있으면 덮어쓴다.
+	 *
+	 * @param in XSS({@code Cross Site Scripting})이 포함된 위험한 코드가 담긴 입력 파일.
+	 * @param out 필터링 결과를 write 할 출력 파일.
+	 * @param cs 입력, 출력 파일의 {@code Charset}.
+	 * @throws IOException 입력 파일 읽기 또는 출력 파일 쓰기 실패 시.
+	 */
+	public void filterFile(File in, File out, Charset cs) throws IOException {
+		FileInputStream input = new FileInputStream(in);
+		try {
+			FileOutputStream output = new FileOutputStream(out);
+			try {
+				CharsetDecoder decoder = cs.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+				Reader reader = Channels.newReader(new MappedFileChannel(input.getChannel()), decoder, TokenReader.DEFAULT_BUFFER_SIZE);
+				Writer writer = Channels.newWriter(output.getChannel(), cs.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE), TokenReader.DEFAULT_BUFFER_SIZE);
+				this.doFilter(reader, writer);
+				writer.flush();
+			} finally {
+				output.close();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
 	/**
 	 * @param writer
 	 * @param neloLogWriter
@@ -313,8 +764,13 @@ public final class XssSaxFilter implements LucyXssFilter {
 			LinkedList<Element> stackForObjectTag = new LinkedList<Element>();
 			LinkedList<String> stackForAllowNetworkingValue = new LinkedList<String>();
 
-			CharArraySegment charArraySegment = new CharArraySegment(dirty);
-			doParseAndFilter(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue, charArraySegment);
+			ParseContext context = ParseContext.acquire();
+			try {
+				CharArraySegment charArraySegment = context.input(dirty);
+				doParseAndFilter(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue, charArraySegment);
+			} finally {
+				context.release();
+			}
 		}
 	}
 
@@ -330,8 +786,118 @@ public final class XssSaxFilter implements LucyXssFilter {
 			LinkedList<Element> stackForObjectTag = new LinkedList<Element>();
 			LinkedList<String> stackForAllowNetworkingValue = new LinkedList<String>();
 
-			CharArraySegment charArraySegment = new CharArraySegment(dirty, offset, count);
-			doParseAndFilter(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue, charArraySegment);
+			ParseContext context = ParseContext.acquire();
+			try {
+				CharArraySegment charArraySegment = context.input(dirty, offset, count);
+				doParseAndFilter(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue, charArraySegment);
+			} finally {
+				context.release();
+			}
+		}
+	}
+
+	private void parallelParseAndFilter(char[] dirty, int chunkSize, Writer writer, ExecutorService executor) throws IOException {
+		List<Integer> starts = new ArrayList<Integer>();
+		starts.add(Integer.valueOf(0));
+		for (int pos = chunkSize; pos < dirty.length - chunkSize; pos += chunkSize) {
+			pos = nextTagStart(dirty, pos);
+			if (pos < 0 || pos >= dirty.length - chunkSize) {
+				break;
+			}
+			starts.add(Integer.valueOf(pos));
+		}
+
+		List<FutureTask<Chunk>> tasks = new ArrayList<FutureTask<Chunk>>(starts.size());
+		for (int i = 0; i < starts.size(); i++) {
+			int limit = (i + 1 < starts.size()) ? starts.get(i + 1).intValue() : dirty.length;
+			tasks.add(new FutureTask<Chunk>(new Chunk(dirty, starts.get(i).intValue(), limit)));
+		}
+
+		FutureTasks.execute(tasks, executor);
+		try {
+			int pos = 0;
+			LinkedList<Element> stackForObjectTag = new LinkedList<Element>();
+			LinkedList<String> stackForAllowNetworkingValue = new LinkedList<String>();
+			for (FutureTask<Chunk> task : tasks) {
+				Chunk chunk = FutureTasks.get(task);
+
+				if (pos == chunk.start && stackForObjectTag.isEmpty() && stackForAllowNetworkingValue.isEmpty()) {
+					writer.write(chunk.output);
+					pos = chunk.end;
+					stackForObjectTag = chunk.stackForObjectTag;
+					stackForAllowNetworkingValue = chunk.stackForAllowNetworkingValue;
+				} else if (pos < chunk.limit) {
+					pos = this.parseAndFilter(dirty, pos, chunk.limit, writer, stackForObjectTag, stackForAllowNetworkingValue);
+				}
+			}
+		} finally {
+			FutureTasks.cancel(tasks);
+		}
+	}
+
+	/**
+	 * @return	from 이후에 태그가 시작될 것으로 보이는 위치, 없으면 -1.
+	 */
+	private static int nextTagStart(char[] dirty, int from) {
+		for (int i = from; i < dirty.length - 1; i++) {
+			if (dirty[i] == '<') {
+				char next = dirty[i + 1];
+				if (next == '/' || (next >= 'a' && next <= 'z') || (next >= 'A' && next <= 'Z')) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 입력 전체를 대상으로 start 부터 Tokenizing 하여, 토큰의 시작 위치가 limit 에 이를 때까지 필터링한다.
+	 *
+	 * @return	마지막으로 필터링한 토큰의 끝 위치.
+	 */
+	private int parseAndFilter(char[] dirty, int start, int limit, Writer writer, LinkedList<Element> stackForObjectTag, LinkedList<String> stackForAllowNetworkingValue) throws IOException {
+		StringWriter neloLogWriter = new StringWriter();
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			CharArraySegment charArraySegment = context.input(dirty, start, dirty.length - start);
+			Token token;
+			while (start + charArraySegment.pos() < limit && (token = MarkupSaxParser.parse(charArraySegment, this.compiledTokenizer)) != null) {
+				this.filterToken(token, writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue);
+			}
+			return start + charArraySegment.pos();
+		} finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * 병렬 필터링에서 [start, limit) 에서 시작하는 토큰을 필터링한 결과.
+	 */
+	private final class Chunk implements Callable<Chunk> {
+		private final char[] dirty;
+		private final int start;
+		private final int limit;
+		private int end;
+		private String output;
+		private LinkedList<Element> stackForObjectTag = new LinkedList<Element>();
+		private LinkedList<String> stackForAllowNetworkingValue = new LinkedList<String>();
+
+		Chunk(char[] dirty, int start, int limit) {
+			this.dirty = dirty;
+			this.start = start;
+			this.limit = limit;
+		}
+
+		public Chunk call() throws IOException {
+			OutputBuffer writer = OutputBuffer.acquire(this.limit - this.start);
+			try {
+				this.end = parseAndFilter(this.dirty, this.start, this.limit, writer, this.stackForObjectTag, this.stackForAllowNetworkingValue);
+				this.output = writer.toString();
+				return this;
+			} finally {
+				writer.release();
+			}
 		}
 	}
 
@@ -345,144 +911,158 @@ public final class XssSaxFilter implements LucyXssFilter {
 	 */
 	private void doParseAndFilter(Writer writer, StringWriter neloLogWriter, LinkedList<Element> stackForObjectTag, LinkedList<String> stackForAllowNetworkingValue, CharArraySegment charArraySegment) throws IOException {
 		Token token;
-		while ((token = MarkupSaxParser.parse(charArraySegment)) != null) {
-			String tokenName = token.getName();
+		while ((token = MarkupSaxParser.parse(charArraySegment, this.compiledTokenizer)) != null) {
+			this.filterToken(token, writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue);
+		}
+	}
 
-			if ("description".equals(tokenName)) {
+	/**
+	 * 토큰 하나를 필터링하여 writer 에 쓴다. object 태그 관련 상태는 stack 으로 다음 토큰에 전달된다.
+	 *
+	 * @param token
+	 * @param writer
+	 * @param neloLogWriter
+	 * @param stackForObjectTag
+	 * @param stackForAllowNetworkingValue
+	 * @throws IOException
+	 */
+	private void filterToken(Token token, Writer writer, StringWriter neloLogWriter, LinkedList<Element> stackForObjectTag, LinkedList<String> stackForAllowNetworkingValue) throws IOException {
+		int tokenId = token.getId();
 
-				String description = token.getText();
-				Description content = new Description(description);
-				content.serialize(writer);
+		if (tokenId == Token.DESCRIPTION) {
 
-			} else if ("comment".equals(tokenName)) {
-				String comment = token.getText();
-				if (comment != null && comment.length() != 0) {
-					comment = comment.substring(4, comment.length() - 3);
-				}
+			String description = token.getText();
+			Description content = new Description(description);
+			content.serialize(writer);
 
-				Comment content = new Comment(comment);
-				content.serializeFilteringTagInComment(writer, this.filteringTagInCommentEnabled, this.commentFilter);
+		} else if (tokenId == Token.COMMENT) {
+			String comment = token.getText();
+			if (comment != null && comment.length() != 0) {
+				comment = comment.substring(4, comment.length() - 3);
+			}
 
-				//content.serialize(writer);
+			Comment content = new Comment(comment);
+			content.serializeFilteringTagInComment(writer, this.filteringTagInCommentEnabled, this.commentFilter);
 
-			} else if ("iEHExStartTag".endsWith(tokenName)) {
-				IEHackExtensionElement iehackElement = new IEHackExtensionElement(token.getText());
-				checkIEHackRule(iehackElement);
+			//content.serialize(writer);
 
-				if (iehackElement.isDisabled()) { // IE Hack 태그가 비활성화 되어 있으면, 태그 삭제.
-				/*	if (this.isNeloLogEnabled) {
-						neloLogWriter.write(this.neloElementRemoveMSG);
-						neloLogWriter.write(iehackElement.getName() + "\n");
-					}*/
-					if (!this.withoutComment) {
-						writer.write(REMOVE_TAG_INFO_START);
-						writer.write(iehackElement.getName().replaceAll("<", "&lt;").replaceFirst(">", "&gt;"));
-						writer.write(REMOVE_TAG_INFO_END);
-					}
+		} else if (tokenId == Token.IE_HACK_START_TAG) {
+			IEHackExtensionElement iehackElement = new IEHackExtensionElement(token.getText());
+			checkIEHackRule(iehackElement);
+
+			if (iehackElement.isDisabled()) { // IE Hack 태그가 비활성화 되어 있으면, 태그 삭제.
+			/*	if (this.isNeloLogEnabled) {
+					neloLogWriter.write(this.neloElementRemoveMSG);
+					neloLogWriter.write(iehackElement.getName() + "\n");
+				}*/
+				if (!this.withoutComment) {
+					writer.write(REMOVE_TAG_INFO_START);
+					writer.write(iehackElement.getName().replaceAll("<", "&lt;").replaceFirst(">", "&gt;"));
+					writer.write(REMOVE_TAG_INFO_END);
 				}
+			}
 
-				iehackElement.serialize(writer);
+			iehackElement.serialize(writer);
 
-			} else if ("startTag".equals(tokenName)) {
-				Token tagNameToken = token.getChild("tagName");
-				if (tagNameToken == null) {
-					continue;
-				}
+		} else if (tokenId == Token.START_TAG) {
+			Token tagNameToken = token.getChildById(Token.TAG_NAME);
+			if (tagNameToken == null) {
+				return;
+			}
 
-				String tagName = tagNameToken.getText();
-				Element element = new Element(tagName);
-				List<Token> attTokens = token.getChildren("attribute");
-				if (attTokens != null) {
-					for (Token attToken : attTokens) {
-						if (attToken != null) {
-							Token attName = attToken.getChild("attName");
-							Token attValue = attToken.getChild("attValue");
-							if (attName != null && attValue == null) {
-								element.putAttribute(new Attribute(attName.getText()));
-							} else if (attName != null && attValue != null) {
-								String text = attValue.getText();
-								text = CommonUtils.getQuotePair(text);
-								element.putAttribute(new Attribute(attName.getText(), text));
-							}
+			String tagName = tagNameToken.getText();
+			Element element = new Element(tagName);
+			List<Token> attTokens = token.getChildrenById(Token.ATTRIBUTE);
+			if (attTokens != null) {
+				for (Token attToken : attTokens) {
+					if (attToken != null) {
+						Token attName = attToken.getChildById(Token.ATT_NAME);
+						Token attValue = attToken.getChildById(Token.ATT_VALUE);
+						if (attName != null && attValue == null) {
+							element.putAttribute(new Attribute(attName.getText()));
+						} else if (attName != null && attValue != null) {
+							String text = attValue.getText();
+							text = CommonUtils.getQuotePair(text);
+							element.putAttribute(new Attribute(attName.getText(), text));
 						}
 					}
 				}
+			}
 
-				Token closeStartEnd = token.getChild("closeStartEnd");
+			Token closeStartEnd = token.getChildById(Token.CLOSE_START_END);
 
-				if (closeStartEnd != null) {
-					element.setStartClose(true);
+			if (closeStartEnd != null) {
+				element.setStartClose(true);
 
-				}
+			}
 
-				doObjectParamStartTagProcess(stackForObjectTag, stackForAllowNetworkingValue, element);
+			doObjectParamStartTagProcess(stackForObjectTag, stackForAllowNetworkingValue, element);
 
-				this.serialize(writer, element, neloLogWriter);
+			this.serialize(writer, element, neloLogWriter);
 
-			} else if ("iEHExEndTag".endsWith(tokenName)) {
-				IEHackExtensionElement ie = new IEHackExtensionElement(token.getText());
-				checkIEHackRule(ie);
+		} else if (tokenId == Token.IE_HACK_END_TAG) {
+			IEHackExtensionElement ie = new IEHackExtensionElement(token.getText());
+			checkIEHackRule(ie);
 
-				if (!ie.isDisabled()) { // IE Hack 태그가 비활성화 되어 있으면, end 태그 삭제.
-					// 중첩 IE Hack 태그 처리 로직(메일서비스개발랩 요구사항)
-					String stdName = ie.getName();
-					if (stdName != null) {
-						stdName = stdName.replaceFirst("<!--", "<!");
-					}
-					writer.write(stdName); // <!--[endif]--> 일 경우 IE에서 핵이 그데로 노출되는 문제 방지하기 위해 변환.
+			if (!ie.isDisabled()) { // IE Hack 태그가 비활성화 되어 있으면, end 태그 삭제.
+				// 중첩 IE Hack 태그 처리 로직(메일서비스개발랩 요구사항)
+				String stdName = ie.getName();
+				if (stdName != null) {
+					stdName = stdName.replaceFirst("<!--", "<!");
 				}
-			} else if ("endTag".equals(tokenName)) {
-				Token tagNameToken = token.getChild("tagName");
+				writer.write(stdName); // <!--[endif]--> 일 경우 IE에서 핵이 그데로 노출되는 문제 방지하기 위해 변환.
+			}
+		} else if (tokenId == Token.END_TAG) {
+			Token tagNameToken = token.getChildById(Token.TAG_NAME);
 
-				if (tagNameToken == null) {
-					continue;
-				}
+			if (tagNameToken == null) {
+				return;
+			}
 
-				String tagName = tagNameToken.getText();
+			String tagName = tagNameToken.getText();
 
-				boolean isObjectDisabled = false;
-				if ("object".equalsIgnoreCase(tagName) && stackForObjectTag.size() > 0) {
-					isObjectDisabled = doObjectEndTagProcess(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue);
+			boolean isObjectDisabled = false;
+			if ("object".equalsIgnoreCase(tagName) && stackForObjectTag.size() > 0) {
+				isObjectDisabled = doObjectEndTagProcess(writer, neloLogWriter, stackForObjectTag, stackForAllowNetworkingValue);
 
-				}
+			}
 
-				Element element = new Element(tagName);
+			Element element = new Element(tagName);
 
-				checkRuleRemove(element);
+			checkRuleRemove(element);
 
-				if (!element.isRemoved()) {
-					if (isObjectDisabled) {
-						element.setEnabled(false);
-					}
+			if (!element.isRemoved()) {
+				if (isObjectDisabled) {
+					element.setEnabled(false);
+				}
 
-					//TODO 코드 리뷰 필요
-					// v1.3.3 & v1.5.2 BEFORE if (!element.isDisabled()) {
-					if (!element.isDisabled() || this.blockingPrefixEnabled) {
-						checkRule(element);
-					}
+				//TODO 코드 리뷰 필요
+				// v1.3.3 & v1.5.2 BEFORE if (!element.isDisabled()) {
+				if (!element.isDisabled() || this.blockingPrefixEnabled) {
+					checkRule(element);
+				}
 
-					if (element.isDisabled()) {
-						if (this.blockingPrefixEnabled) { //BlockingPrefix를 사용하는 설정인 경우, <, > 에 대한 Escape 대신에 Element 이름을 조작하여 동작을 막는다.
-							element.setName(this.blockingPrefix + element.getName());
-							element.setEnabled(true);
-							writer.write("</");
-							writer.write(element.getName());
-							writer.write('>');
-						} else { //BlockingPrefix를 사용하지 않는 설정인 경우, <, > 에 대한 Escape 처리.
-							writer.write("&lt;/");
-							writer.write(element.getName());
-							writer.write("&gt;");
-						}
-					} else {
+				if (element.isDisabled()) {
+					if (this.blockingPrefixEnabled) { //BlockingPrefix를 사용하는 설정인 경우, <, > 에 대한 Escape 대신에 Element 이름을 조작하여 동작을 막는다.
+						element.setName(this.blockingPrefix + element.getName());
+						element.setEnabled(true);
 						writer.write("</");
 						writer.write(element.getName());
 						writer.write('>');
+					} else { //BlockingPrefix를 사용하지 않는 설정인 경우, <, > 에 대한 Escape 처리.
+						writer.write("&lt;/");
+						writer.write(element.getName());
+						writer.write("&gt;");
 					}
+				} else {
+					writer.write("</");
+					writer.write(element.getName());
+					writer.write('>');
 				}
-			} else {
-				Text content = new Text(token.getText());
-				content.serialize(writer);
 			}
+		} else {
+			Text content = new Text(token.getText());
+			content.serialize(writer);
 		}
 	}
 
@@ -513,9 +1093,9 @@ public final class XssSaxFilter implements LucyXssFilter {
 			}
 
 			if (isDataWhiteUrl) {
-				stackForAllowNetworkingValue.push("\"all\""); // data속성의 url 값이 white url이면 allowNetworking 디폴트는 설정은 all
+				stackForAllowNetworkingValue.push(ALLOW_NETWORKING_ALL); // data속성의 url 값이 white url이면 allowNetworking 디폴트는 설정은 all
 			} else {
-				stackForAllowNetworkingValue.push("\"internal\""); // allowNetworking 디폴트는 설정은 internal
+				stackForAllowNetworkingValue.push(ALLOW_NETWORKING_INTERNAL); // allowNetworking 디폴트는 설정은 internal
 			}
 		} else if (stackForObjectTag.size() > 0 && "param".equalsIgnoreCase(element.getName())) {
 			Attribute nameAttr = element.getAttribute("name");
@@ -523,14 +1103,14 @@ public final class XssSaxFilter implements LucyXssFilter {
 
 			if (nameAttr != null && valueAttr != null) {
 				stackForObjectTag.push(element);
-				if (containsURLName(nameAttr.getValue())) {
+				if (ParamName.isUrlName(nameAttr.getValue())) {
 					stackForAllowNetworkingValue.pop();
 					boolean whiteUrl = isWhiteUrl(valueAttr.getValue());
 
 					if (whiteUrl) {
-						stackForAllowNetworkingValue.push("\"all\""); // whiteUrl 일 경우 allowNetworking 설정은 all 로 변경
+						stackForAllowNetworkingValue.push(ALLOW_NETWORKING_ALL); // whiteUrl 일 경우 allowNetworking 설정은 all 로 변경
 					} else {
-						stackForAllowNetworkingValue.push("\"internal\""); // whiteUrl 이 아닐 경우 allowNetworking 설정은 internal 로 변경
+						stackForAllowNetworkingValue.push(ALLOW_NETWORKING_INTERNAL); // whiteUrl 이 아닐 경우 allowNetworking 설정은 internal 로 변경
 					}
 				}
 			}
@@ -545,7 +1125,7 @@ public final class XssSaxFilter implements LucyXssFilter {
 	 * @throws IOException
 	 */
 	private boolean doObjectEndTagProcess(Writer writer, StringWriter neloLogWriter, LinkedList<Element> stackForObjectTag, LinkedList<String> stackForAllowNetworkingValue) throws IOException {
-		List<String> paramNameList = new ArrayList<String>();
+		int existParams = 0;
 
 		Element item = null;
 
@@ -556,7 +1136,10 @@ public final class XssSaxFilter implements LucyXssFilter {
 			} else {
 				Attribute nameAttr = item.getAttribute("name");
 				if (nameAttr != null) {
-					paramNameList.add(nameAttr.getValue());
+					ParamName paramName = ParamName.of(nameAttr.getValue());
+					if (paramName != null && paramName.isSecurityParam()) {
+						existParams |= 1 << paramName.ordinal();
+					}
 				}
 			}
 
@@ -568,110 +1151,74 @@ public final class XssSaxFilter implements LucyXssFilter {
 			return true;
 		}
 
-		// PARAMLIST (보안 파라미터(param) 설정)에 없는 param(paramNameList)을 확인해서 object 태그를 닫기 전에 추가해준다.
-		for (int index = 0; index < PARAMLIST.length; index++) {
-			Pattern pattern = PARAMLIST[index];
+		// SECURITY_PARAMS (보안 파라미터(param) 설정)에 없는 param 을 object 태그를 닫기 전에 추가해준다.
+		for (ParamName param : SECURITY_PARAMS) {
+			if ((existParams & (1 << param.ordinal())) != 0) {
+				continue;
+			}
 
-			boolean exist = false;
-			for (String paramName : paramNameList) {
-				if (pattern.matcher(paramName).matches()) {
-					exist = true;
-					break;
-				}
+			String value = param.getSecureValue();
+			if (param == ParamName.ALLOW_NETWORKING) {
+				value = stackForAllowNetworkingValue.size() == 0 ? ALLOW_NETWORKING_INTERNAL : stackForAllowNetworkingValue.pop();
 			}
 
-			if (!exist) {
-				// 해당 패턴의 param 추가
-				switch (index) {
-					// <param name="invokeURLs" value="false" />
-					case 0:
-						Element invokeURLs = new Element("param");
-						invokeURLs.putAttribute("name", "\"invokeURLs\"");
-						invokeURLs.putAttribute("value", "\"false\"");
-						this.serialize(writer, invokeURLs, neloLogWriter);
-						break;
-
-						// <param name="autostart" value="false" />
-					case 1:
-						Element autostart = new Element("param");
-						autostart.putAttribute("name", "\"autostart\"");
-						autostart.putAttribute("value", "\"false\"");
-						this.serialize(writer, autostart, neloLogWriter);
-						break;
-
-						// <param name="allowScriptAccess" value="never" />
-					case 2:
-						Element allowScriptAccess = new Element("param");
-						allowScriptAccess.putAttribute("name", "\"allowScriptAccess\"");
-						allowScriptAccess.putAttribute("value", "\"never\"");
-						this.serialize(writer, allowScriptAccess, neloLogWriter);
-						break;
-
-						// <param name="allowNetworking" value="all|internal" />
-
-					case 3:
-						Element allowNetworking = new Element("param");
-						allowNetworking.putAttribute("name", "\"allowNetworking\"");
-						allowNetworking.putAttribute("value", stackForAllowNetworkingValue.size() == 0 ? "\"internal\"" : stackForAllowNetworkingValue.pop());
-						this.serialize(writer, allowNetworking, neloLogWriter);
-						break;
-
-						// <param name="autoplay" value="false" />
-					case 4:
-						Element autoplay = new Element("param");
-						autoplay.putAttribute("name", "\"autoplay\"");
-						autoplay.putAttribute("value", "\"false\"");
-						this.serialize(writer, autoplay, neloLogWriter);
-						break;
-
-						// <param name="enablehref" value="flase" />
-					case 5:
-						Element enablehref = new Element("param");
-						enablehref.putAttribute("name", "\"enablehref\"");
-						enablehref.putAttribute("value", "\"false\"");
-						this.serialize(writer, enablehref, neloLogWriter);
-						break;
-
-						// <param name="enablejavascript" value="flase" />
-					case 6:
-						Element enablejavascript = new Element("param");
-						enablejavascript.putAttribute("name", "\"enablejavascript\"");
-						enablejavascript.putAttribute("value", "\"false\"");
-						this.serialize(writer, enablejavascript, neloLogWriter);
-						break;
-
-						// <param name="nojava" value="true" />
-					case 7:
-						Element nojava = new Element("param");
-						nojava.putAttribute("name", "\"nojava\"");
-						nojava.putAttribute("value", "\"true\"");
-						this.serialize(writer, nojava, neloLogWriter);
-						break;
-
-						// <param name="AllowHtmlPopupwindow" value="false" />
-					case 8:
-						Element allowHtmlPopupwindow = new Element("param");
-						allowHtmlPopupwindow.putAttribute("name", "\"AllowHtmlPopupwindow\"");
-						allowHtmlPopupwindow.putAttribute("value", "\"false\"");
-						this.serialize(writer, allowHtmlPopupwindow, neloLogWriter);
-						break;
-
-						// <param name="enableHtmlAccess" value="false" />
-					case 9:
-						Element enableHtmlAccess = new Element("param");
-						enableHtmlAccess.putAttribute("name", "\"enableHtmlAccess\"");
-						enableHtmlAccess.putAttribute("value", "\"false\"");
-						this.serialize(writer, enableHtmlAccess, neloLogWriter);
-						break;
-					default:
-						System.out.println("발생 할 수 없는 로직입니다.");
-				}
+			if (this.securityParams == null) {
+				this.serializeParam(writer, param.getParamName(), value, neloLogWriter);
+			} else if (param == ParamName.ALLOW_NETWORKING && ALLOW_NETWORKING_ALL.equals(value)) {
+				writer.write(this.allowNetworkingAllParam);
+			} else {
+				writer.write(this.securityParams[param.ordinal()]);
 			}
 		}
 
 		return false;
 	}
 
+	/**
+	 * object 태그를 닫기 전에 추가하는 보안 param 들을 설정에 따라 필터링한 결과를 미리 만든다.
+	 * param 태그나 name, value 속성에 Listener 가 있으면 결과가 매번 같다고 볼 수 없으므로 만들지 않는다.
+	 */
+	private void prepareSecurityParams() {
+		if (hasListener(this.config.getElementRule("param")) || hasListener(this.config.getAttributeRule("name")) || hasListener(this.config.getAttributeRule("value"))) {
+			return;
+		}
+
+		try {
+			String[] params = new String[ParamName.values().length];
+			for (ParamName param : SECURITY_PARAMS) {
+				String value = (param == ParamName.ALLOW_NETWORKING) ? ALLOW_NETWORKING_INTERNAL : param.getSecureValue();
+				params[param.ordinal()] = this.serializeParam(param.getParamName(), value);
+			}
+
+			this.allowNetworkingAllParam = this.serializeParam(ParamName.ALLOW_NETWORKING.getParamName(), ALLOW_NETWORKING_ALL);
+			this.securityParams = params;
+		} catch (IOException ioe) {
+			// StringWriter 에 쓰므로 발생하지 않는다. 발생하면 매번 serialize 한다.
+			LOG.error(ioe.getMessage(), ioe);
+		}
+	}
+
+	private String serializeParam(String name, String value) throws IOException {
+		StringWriter writer = new StringWriter();
+		this.serializeParam(writer, name, value, new StringWriter());
+		return writer.toString();
+	}
+
+	private void serializeParam(Writer writer, String name, String value, StringWriter neloLogWriter) throws IOException {
+		Element param = new Element("param");
+		param.putAttribute("name", "\"" + name + "\"");
+		param.putAttribute("value", value);
+		this.serialize(writer, param, neloLogWriter);
+	}
+
+	private static boolean hasListener(ElementRule rule) {
+		return rule != null && rule.hasListener();
+	}
+
+	private static boolean hasListener(AttributeRule rule) {
+		return rule != null && rule.hasListener();
+	}
+
 	private void serialize(Writer writer, IEHackExtensionElement ie, StringWriter neloLogWriter) throws IOException {
 		checkIEHackRule(ie);
 
@@ -723,7 +1270,6 @@ public final class XssSaxFilter implements LucyXssFilter {
 	}
 
 	private void serialize(Writer writer, Element element, StringWriter neloLogWriter) throws IOException {
-		boolean hasAttrXss = false;
 		checkRuleRemove(element);
 
 		if (element.isRemoved()) {
@@ -767,44 +1313,18 @@ public final class XssSaxFilter implements LucyXssFilter {
 				}
 			}
 
-			if (!element.isDisabled() && !this.withoutComment && element.existDisabledAttribute()) {
-				writer.write(BAD_ATT_INFO_START);
-			}
-
 			Collection<Attribute> atts = element.getAttributes();
 
-			StringWriter attrSw = new StringWriter();
-			StringWriter attrXssSw = new StringWriter();
-
-			if (atts != null && !atts.isEmpty()) {
+			// 허용되지 않은 속성은 태그 앞의 주석에, 나머지 속성은 태그 이름 뒤에 바로 쓴다.
+			if (!element.isDisabled() && !this.withoutComment && element.existDisabledAttribute()) {
+				writer.write(BAD_ATT_INFO_START);
 				for (Attribute att : atts) {
-
-					if (!element.isDisabled() && att.isDisabled()) {
-
-						hasAttrXss = true;
-						if (!this.withoutComment) {
-							attrXssSw.write(' ');
-							att.serialize(attrXssSw);
-						}
-					} else {
-						attrSw.write(' ');
-						att.serialize(attrSw);
+					if (att.isDisabled()) {
+						writer.write(' ');
+						att.serialize(writer);
 					}
 				}
-			}
-
-			if (hasAttrXss) {
-				String attrXssString = attrXssSw.toString();
-				/*if (this.isNeloLogEnabled) {
-					neloLogWriter.write(this.neloAttrMSG);
-					neloLogWriter.write(element.getName());
-					neloLogWriter.write(attrXssString + "\n");
-				}*/
-
-				if (!this.withoutComment) {
-					writer.write(attrXssString);
-					writer.write(BAD_ATT_INFO_END);
-				}
+				writer.write(BAD_ATT_INFO_END);
 			}
 
 			if (!element.isDisabled()) {
@@ -812,7 +1332,14 @@ public final class XssSaxFilter implements LucyXssFilter {
 				writer.write(element.getName());
 			}
 
-			writer.write(attrSw.toString());
+			if (atts != null) {
+				for (Attribute att : atts) {
+					if (element.isDisabled() || !att.isDisabled()) {
+						writer.write(' ');
+						att.serialize(writer);
+					}
+				}
+			}
 
 			if (element.isStartClosed()) {
 
@@ -894,4 +1421,142 @@ public final class XssSaxFilter implements LucyXssFilter {
 
 		tagRule.excuteListener(element);
 	}
+
+	/**
+	 * {@code Appendable} 에 쓰는 {@code Writer}. 문자열 전체를 쓰는 경우, {@code StringBuilder} 에 쓰는 경우는 문자 단위 복사를 피한다.
+	 */
+	private static final class AppendableWriter extends Writer {
+		private final Appendable out;
+
+		AppendableWriter(Appendable out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			this.out.append((char)c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			if (this.out instanceof StringBuilder) {
+				StringBuilder.class.cast(this.out).append(cbuf, off, len);
+			} else {
+				this.out.append(CharBuffer.wrap(cbuf, off, len));
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			if (off == 0 && len == str.length()) {
+				this.out.append(str);
+			} else {
+				this.out.append(str, off, off + len);
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * {@code CharBuffer} 를 읽는 {@code Reader}. 읽은 만큼 position 이 이동한다.
+	 */
+	private static final class CharBufferReader extends Reader {
+		private final CharBuffer in;
+
+		CharBufferReader(CharBuffer in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (!this.in.hasRemaining()) {
+				return -1;
+			}
+
+			int count = Math.min(len, this.in.remaining());
+			this.in.get(cbuf, off, count);
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * {@code ByteBuffer} 를 읽는 channel. 읽은 만큼 position 이 이동한다.
+	 */
+	private static class ByteBufferChannel implements ReadableByteChannel {
+		private ByteBuffer in;
+
+		ByteBufferChannel(ByteBuffer in) {
+			this.in = in;
+		}
+
+		public int read(ByteBuffer dst) throws IOException {
+			if (!this.in.hasRemaining()) {
+				this.in = this.next();
+				if (this.in == null || !this.in.hasRemaining()) {
+					return -1;
+				}
+			}
+
+			int count = Math.min(dst.remaining(), this.in.remaining());
+			ByteBuffer slice = this.in.duplicate();
+			slice.limit(slice.position() + count);
+			dst.put(slice);
+			this.in.position(this.in.position() + count);
+			return count;
+		}
+
+		/**
+		 * 현재 buffer 를 모두 읽은 뒤 이어서 읽을 buffer 를 리턴한다.
+		 *
+		 * @return	다음 buffer, 없으면 null.
+		 */
+		ByteBuffer next() throws IOException {
+			return null;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+	}
+
+	/**
+	 * 파일을 {@link #MAP_WINDOW_SIZE} 크기의 구간 단위로 memory-map 하여 읽는 channel.
+	 * 다 읽은 구간은 참조하지 않으므로 GC 시 unmap 된다.
+	 */
+	private static final class MappedFileChannel extends ByteBufferChannel {
+		private final FileChannel file;
+		private long position;
+
+		MappedFileChannel(FileChannel file) {
+			super(ByteBuffer.allocate(0));
+			this.file = file;
+		}
+
+		@Override
+		ByteBuffer next() throws IOException {
+			long size = this.file.size();
+			if (this.position >= size) {
+				return null;
+			}
+
+			long length = Math.min(MAP_WINDOW_SIZE, size - this.position);
+			ByteBuffer window = this.file.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+			this.position += length;
+			return window;
+		}
+	}
 }
@@ -240,6 +240,10 @@ public final class AttributeRule {
 		return Collections.unmodifiableList(this.listeners);
 	}
 
+	public boolean hasListener() {
+		return this.listeners != null && !this.listeners.isEmpty();
+	}
+
 	public void addExceptionTag(String exceptionTag) {
 		exceptionTagList.add(exceptionTag.toLowerCase());
 	}
@@ -72,6 +72,10 @@ public final class ElementRule {
 		return Collections.unmodifiableList(this.listeners);
 	}
 
+	public boolean hasListener() {
+		return this.listeners != null && !this.listeners.isEmpty();
+	}
+
 	public void checkEndTag(Element element) {
 		if (element == null) {
 			return;
@@ -55,6 +55,9 @@ public final class XssConfiguration {
 	private String blockingPrefix = "diabled_";
 	private boolean filteringTagInCommentEnabled = true;
 	private String filteringTagInCommentType = "strict";
+	private String tokenizerType = "interpreter";
+	private int maxNestingDepth;
+	private long resultCacheMaxChars;
 
 	private Map<String, Set<String>> childElementRef; //elementGroup - key Element Group을 하위에 포함할 수 있는 Element
 	private Map<String, Set<String>> childElementGroupRef; // elementGroup - key Group에 포함되는 ChildGroup
@@ -169,6 +172,21 @@ public final class XssConfiguration {
 				config.enableFilteringTagInComment(Element.class.cast(list.item(i)));
 			}
 
+			list = root.getElementsByTagName("tokenizer");
+			for (int i = 0; list.getLength() > 0 && i < list.getLength(); i++) {
+				config.enableTokenizer(Element.class.cast(list.item(i)));
+			}
+
+			list = root.getElementsByTagName("nesting");
+			for (int i = 0; list.getLength() > 0 && i < list.getLength(); i++) {
+				config.enableNesting(Element.class.cast(list.item(i)));
+			}
+
+			list = root.getElementsByTagName("resultCache");
+			for (int i = 0; list.getLength() > 0 && i < list.getLength(); i++) {
+				config.enableResultCache(Element.class.cast(list.item(i)));
+			}
+
 		} finally {
 			if (is != null) {
 				try {
@@ -686,4 +704,55 @@ public final class XssConfiguration {
 	public boolean isNoTagAllowedInComment() {
 		return "strict".endsWith(this.filteringTagInCommentType);
 	}
+
+	private void enableTokenizer(Element element) {
+		String type = element.getAttribute("type");
+
+		if (type != null && !type.isEmpty()) {
+			this.tokenizerType = type;
+			//interpreter or compiled
+		}
+	}
+
+	public boolean isCompiledTokenizer() {
+		return "compiled".equalsIgnoreCase(this.tokenizerType);
+	}
+
+	private void enableNesting(Element element) {
+		String maxDepth = element.getAttribute("maxDepth");
+
+		if (maxDepth != null && !maxDepth.isEmpty()) {
+			int depth = Integer.parseInt(maxDepth.trim());
+			if (depth <= 0) {
+				throw new IllegalArgumentException("maxDepth must be greater than 0: " + maxDepth);
+			}
+			this.maxNestingDepth = depth;
+		}
+	}
+
+	/**
+	 * 필터링 결과에서 허용하는 Element 의 최대 중첩 깊이. (0 이면 제한 없음)
+	 */
+	public int getMaxNestingDepth() {
+		return this.maxNestingDepth;
+	}
+
+	private void enableResultCache(Element element) {
+		String maxChars = element.getAttribute("maxChars");
+
+		if (maxChars != null && !maxChars.isEmpty()) {
+			long chars = Long.parseLong(maxChars.trim());
+			if (chars <= 0) {
+				throw new IllegalArgumentException("maxChars must be greater than 0: " + maxChars);
+			}
+			this.resultCacheMaxChars = chars;
+		}
+	}
+
+	/**
+	 * 필터링 결과 cache 에 보관하는 결과의 최대 총 문자 수. (0 이면 cache 를 사용하지 않음)
+	 */
+	public long getResultCacheMaxChars() {
+		return this.resultCacheMaxChars;
+	}
 }
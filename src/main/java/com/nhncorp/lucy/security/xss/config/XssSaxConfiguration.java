@@ -29,6 +29,7 @@ import org.xml.sax.SAXException;
 
 import com.nhncorp.lucy.security.xss.event.AttributeListener;
 import com.nhncorp.lucy.security.xss.event.ElementListener;
+import com.nhncorp.lucy.security.xss.markup.rule.TokenReader;
 
 /**
  * 이 클래스는 XSS Filter 설정 내용을 나타낸다. <br/>
@@ -48,6 +49,9 @@ public final class XssSaxConfiguration {
 	private String blockingPrefix = "diabled_";
 	private boolean filteringTagInCommentEnabled = true;
 	private String filteringTagInCommentType = "strict";
+	private String tokenizerType = "interpreter";
+	private int maxTokenSize = TokenReader.DEFAULT_MAX_TOKEN_SIZE;
+	private long resultCacheMaxChars;
 
 	private XssSaxConfiguration() {
 		this.tags = new HashMap<String, ElementRule>();
@@ -131,6 +135,16 @@ public final class XssSaxConfiguration {
 				config.enableFilteringTagInComment(Element.class.cast(list.item(i)));
 			}
 
+			list = root.getElementsByTagName("tokenizer");
+			for (int i = 0; list.getLength() > 0 && i < list.getLength(); i++) {
+				config.enableTokenizer(Element.class.cast(list.item(i)));
+			}
+
+			list = root.getElementsByTagName("resultCache");
+			for (int i = 0; list.getLength() > 0 && i < list.getLength(); i++) {
+				config.enableResultCache(Element.class.cast(list.item(i)));
+			}
+
 		} finally {
 			if (is != null) {
 				try {
@@ -363,4 +377,53 @@ public final class XssSaxConfiguration {
 	public boolean isNoTagAllowedInComment() {
 		return "strict".endsWith(this.filteringTagInCommentType);
 	}
+
+	private void enableTokenizer(Element element) {
+		String type = element.getAttribute("type");
+
+		if (type != null && !type.isEmpty()) {
+			this.tokenizerType = type;
+			//interpreter or compiled
+		}
+
+		String maxTokenSize = element.getAttribute("maxTokenSize");
+
+		if (maxTokenSize != null && !maxTokenSize.isEmpty()) {
+			int size = Integer.parseInt(maxTokenSize.trim());
+			if (size <= 0) {
+				throw new IllegalArgumentException("maxTokenSize must be greater than 0: " + maxTokenSize);
+			}
+			this.maxTokenSize = size;
+		}
+	}
+
+	public boolean isCompiledTokenizer() {
+		return "compiled".equalsIgnoreCase(this.tokenizerType);
+	}
+
+	/**
+	 * 스트림 입력을 필터링할 때, 토큰 하나를 읽기 위해 버퍼링하는 최대 문자 수.
+	 */
+	public int getMaxTokenSize() {
+		return this.maxTokenSize;
+	}
+
+	private void enableResultCache(Element element) {
+		String maxChars = element.getAttribute("maxChars");
+
+		if (maxChars != null && !maxChars.isEmpty()) {
+			long chars = Long.parseLong(maxChars.trim());
+			if (chars <= 0) {
+				throw new IllegalArgumentException("maxChars must be greater than 0: " + maxChars);
+			}
+			this.resultCacheMaxChars = chars;
+		}
+	}
+
+	/**
+	 * 필터링 결과 cache 에 보관하는 결과의 최대 총 문자 수. (0 이면 cache 를 사용하지 않음)
+	 */
+	public long getResultCacheMaxChars() {
+		return this.resultCacheMaxChars;
+	}
 }
@@ -16,7 +16,6 @@
 package com.nhncorp.lucy.security.xss.listener;
 
 import java.util.List;
-import java.util.regex.Pattern;
 
 import com.nhncorp.lucy.security.xss.event.ElementListener;
 import com.nhncorp.lucy.security.xss.markup.Attribute;
@@ -31,39 +30,10 @@ import com.nhncorp.lucy.security.xss.markup.Element;
 public class ObjectSecurityListener implements ElementListener {
 	ContentTypeCacheRepo contentTypeCacheRepo = new ContentTypeCacheRepo();
 
-	private static final Pattern INVOKEURLS = Pattern.compile("['\"]?\\s*(?i:invokeURLs)\\s*['\"]?");
-	private static final Pattern AUTOSTART = Pattern.compile("['\"]?\\s*(?i:autostart)\\s*['\"]?");
-	private static final Pattern ALLOWSCRIPTACCESS = Pattern.compile("['\"]?\\s*(?i:allowScriptAccess)\\s*['\"]?");
-	private static final Pattern ALLOWNETWORKING = Pattern.compile("['\"]?\\s*(?i:allowNetworking)\\s*['\"]?");
-	private static final Pattern AUTOPLAY = Pattern.compile("['\"]?\\s*(?i:autoplay)\\s*['\"]?");
-	private static final Pattern ENABLEHREF = Pattern.compile("['\"]?\\s*(?i:enablehref)\\s*['\"]?");
-	private static final Pattern ENABLEJAVASCRIPT = Pattern.compile("['\"]?\\s*(?i:enablejavascript)\\s*['\"]?");
-	private static final Pattern NOJAVA = Pattern.compile("['\"]?\\s*(?i:nojava)\\s*['\"]?");
-	private static final Pattern ALLOWHTMLPOPUPWINDOW = Pattern.compile("['\"]?\\s*(?i:AllowHtmlPopupwindow)\\s*['\"]?");
-	private static final Pattern ENABLEHTMLACCESS = Pattern.compile("['\"]?\\s*(?i:enableHtmlAccess)\\s*['\"]?");
-
-	private static final Pattern[] URLNAMES = {Pattern.compile("['\"]?\\s*(?i:url)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:href)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:src)\\s*['\"]?"), Pattern.compile("['\"]?\\s*(?i:movie)\\s*['\"]?")};
-
-	private static boolean containsURLName(String name) {
-		for (Pattern pattern : URLNAMES) {
-			if (pattern.matcher(name).matches()) {
-				return true;
-			}
-		}
-		return false;
-	}
+	private static final ParamName[] SECURITY_PARAMS = ParamName.securityParams();
 
 	public void handleElement(Element element) {
-		boolean invokeURLsExisted = false;
-		boolean autostartExisted = false;
-		boolean allowScriptAccessExisted = false;
-		boolean allowNetworkingExisted = false;
-		boolean autoplayExisted = false;
-		boolean enablehrefExisted = false;
-		boolean enablejavascriptExisted = false;
-		boolean nojavaExisted = false;
-		boolean allowHtmlPopupwindowExisted = false;
-		boolean enableHtmlAccessExisted = false;
+		int existParams = 0;
 
 		String allowNetworkingValue = "\"internal\"";
 		boolean isWhiteUrl = false;
@@ -96,7 +66,7 @@ public class ObjectSecurityListener implements ElementListener {
 
 		if (elements != null) {
 			for (Element param : elements) {
-				if ("param".equalsIgnoreCase(param.getName()) && containsURLName(param.getAttributeValue("name"))) {
+				if ("param".equalsIgnoreCase(param.getName()) && ParamName.isUrlName(param.getAttributeValue("name"))) {
 
 					String srcUrl = param.getAttributeValue("value");
 
@@ -126,120 +96,22 @@ public class ObjectSecurityListener implements ElementListener {
 					continue;
 				}
 
-				String name = param.getAttributeValue("name");
-				if (INVOKEURLS.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					invokeURLsExisted = true;
-				} else if (AUTOSTART.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					autostartExisted = true;
-				} else if (ALLOWSCRIPTACCESS.matcher(name).matches()) {
-					param.putAttribute("value", "\"never\"");
-					allowScriptAccessExisted = true;
-				} else if (ALLOWNETWORKING.matcher(name).matches()) {
-					param.putAttribute("value", allowNetworkingValue);
-					allowNetworkingExisted = true;
-				} else if (AUTOPLAY.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					autoplayExisted = true;
-				} else if (ENABLEHREF.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					enablehrefExisted = true;
-				} else if (ENABLEJAVASCRIPT.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					enablejavascriptExisted = true;
-				} else if (NOJAVA.matcher(name).matches()) {
-					param.putAttribute("value", "\"true\"");
-					nojavaExisted = true;
-				} else if (ALLOWHTMLPOPUPWINDOW.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					allowHtmlPopupwindowExisted = true;
-				} else if (ENABLEHTMLACCESS.matcher(name).matches()) {
-					param.putAttribute("value", "\"false\"");
-					enableHtmlAccessExisted = true;
+				ParamName paramName = ParamName.of(param.getAttributeValue("name"));
+				if (paramName != null && paramName.isSecurityParam()) {
+					param.putAttribute("value", (paramName == ParamName.ALLOW_NETWORKING) ? allowNetworkingValue : paramName.getSecureValue());
+					existParams |= 1 << paramName.ordinal();
 				}
 			}
 		}
 
-		// <param name="invokeURLs" value="false" />
-		if (!invokeURLsExisted) {
-			Element invokeURLs = new Element("param");
-			invokeURLs.putAttribute("name", "\"invokeURLs\"");
-			invokeURLs.putAttribute("value", "\"false\"");
-			element.addContent(invokeURLs);
-		}
-
-		// <param name="autostart" value="false" />
-		if (!autostartExisted) {
-			Element autostart = new Element("param");
-			autostart.putAttribute("name", "\"autostart\"");
-			autostart.putAttribute("value", "\"false\"");
-			element.addContent(autostart);
-		}
-
-		// <param name="allowScriptAccess" value="never" />
-		if (!allowScriptAccessExisted) {
-			Element allowScriptAccess = new Element("param");
-			allowScriptAccess.putAttribute("name", "\"allowScriptAccess\"");
-			allowScriptAccess.putAttribute("value", "\"never\"");
-			element.addContent(allowScriptAccess);
-		}
-
-		// <param name="allowNetworking" value="all|internal" />
-
-		if (!allowNetworkingExisted) {
-			Element allowNetworking = new Element("param");
-			allowNetworking.putAttribute("name", "\"allowNetworking\"");
-			allowNetworking.putAttribute("value", allowNetworkingValue);
-			element.addContent(allowNetworking);
-		}
-
-		// <param name="autoplay" value="false" />
-		if (!autoplayExisted) {
-			Element autoplay = new Element("param");
-			autoplay.putAttribute("name", "\"autoplay\"");
-			autoplay.putAttribute("value", "\"false\"");
-			element.addContent(autoplay);
-		}
-
-		// <param name="enablehref" value="flase" />
-		if (!enablehrefExisted) {
-			Element enablehref = new Element("param");
-			enablehref.putAttribute("name", "\"enablehref\"");
-			enablehref.putAttribute("value", "\"false\"");
-			element.addContent(enablehref);
-		}
-
-		// <param name="enablejavascript" value="flase" />
-		if (!enablejavascriptExisted) {
-			Element enablejavascript = new Element("param");
-			enablejavascript.putAttribute("name", "\"enablejavascript\"");
-			enablejavascript.putAttribute("value", "\"false\"");
-			element.addContent(enablejavascript);
-		}
-
-		// <param name="nojava" value="true" />
-		if (!nojavaExisted) {
-			Element nojava = new Element("param");
-			nojava.putAttribute("name", "\"nojava\"");
-			nojava.putAttribute("value", "\"true\"");
-			element.addContent(nojava);
-		}
-
-		// <param name="AllowHtmlPopupwindow" value="false" />
-		if (!allowHtmlPopupwindowExisted) {
-			Element allowHtmlPopupwindow = new Element("param");
-			allowHtmlPopupwindow.putAttribute("name", "\"AllowHtmlPopupwindow\"");
-			allowHtmlPopupwindow.putAttribute("value", "\"false\"");
-			element.addContent(allowHtmlPopupwindow);
-		}
-
-		// <param name="enableHtmlAccess" value="false" />
-		if (!enableHtmlAccessExisted) {
-			Element enableHtmlAccess = new Element("param");
-			enableHtmlAccess.putAttribute("name", "\"enableHtmlAccess\"");
-			enableHtmlAccess.putAttribute("value", "\"false\"");
-			element.addContent(enableHtmlAccess);
+		// 없는 보안 param 을 추가한다. (예: <param name="invokeURLs" value="false" />, <param name="allowNetworking" value="all|internal" />)
+		for (ParamName paramName : SECURITY_PARAMS) {
+			if ((existParams & (1 << paramName.ordinal())) == 0) {
+				Element param = new Element("param");
+				param.putAttribute("name", "\"" + paramName.getParamName() + "\"");
+				param.putAttribute("value", (paramName == ParamName.ALLOW_NETWORKING) ? allowNetworkingValue : paramName.getSecureValue());
+				element.addContent(param);
+			}
 		}
 	}
 
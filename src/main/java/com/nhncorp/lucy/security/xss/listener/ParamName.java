@@ -0,0 +1,224 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.listener;
+
+/**
+ * 이 클래스는 object 태그 안의 param 이름(name 속성 값)을 분류한다.
+ * <br/><br/>
+ * 정규식 {@code ['"]?\s*(?i:이름)\s*['"]?} 과 같이 앞뒤의 따옴표 하나와 공백을 무시하고, ASCII 문자의 대소문자를 구분하지 않고 비교한다.
+ * 이름을 길이로 먼저 나누므로 (같은 길이의 이름은 최대 2개) 정규식을 여러 번 수행하지 않으며, 비교 중에 문자열을 새로 만들지 않는다.
+ *
+ * @author Naver Labs
+ *
+ */
+public enum ParamName {
+	INVOKE_URLS("invokeURLs", "\"false\""),
+	AUTOSTART("autostart", "\"false\""),
+	ALLOW_SCRIPT_ACCESS("allowScriptAccess", "\"never\""),
+	/**
+	 * 값은 object 의 data 속성, URL param 이 white url 인지에 따라 정해진다.
+	 */
+	ALLOW_NETWORKING("allowNetworking", null),
+	AUTOPLAY("autoplay", "\"false\""),
+	ENABLE_HREF("enablehref", "\"false\""),
+	ENABLE_JAVASCRIPT("enablejavascript", "\"false\""),
+	NOJAVA("nojava", "\"true\""),
+	ALLOW_HTML_POPUPWINDOW("AllowHtmlPopupwindow", "\"false\""),
+	ENABLE_HTML_ACCESS("enableHtmlAccess", "\"false\""),
+	URL("url"),
+	HREF("href"),
+	SRC("src"),
+	MOVIE("movie");
+
+	/**
+	 * 길이 별 이름 목록.
+	 */
+	private static final ParamName[][] BY_LENGTH;
+
+	static {
+		int maxLength = 0;
+		for (ParamName param : values()) {
+			maxLength = Math.max(maxLength, param.lowerCase.length());
+		}
+
+		BY_LENGTH = new ParamName[maxLength + 1][];
+		for (ParamName param : values()) {
+			ParamName[] bucket = BY_LENGTH[param.lowerCase.length()];
+			if (bucket == null) {
+				bucket = new ParamName[] {param};
+			} else {
+				ParamName[] tmp = new ParamName[bucket.length + 1];
+				System.arraycopy(bucket, 0, tmp, 0, bucket.length);
+				tmp[bucket.length] = param;
+				bucket = tmp;
+			}
+			BY_LENGTH[param.lowerCase.length()] = bucket;
+		}
+	}
+
+	private final String paramName;
+	private final String lowerCase;
+	private final String secureValue;
+	private final boolean url;
+
+	private ParamName(String paramName, String secureValue) {
+		this(paramName, secureValue, false);
+	}
+
+	private ParamName(String paramName) {
+		this(paramName, null, true);
+	}
+
+	private ParamName(String paramName, String secureValue, boolean url) {
+		this.paramName = paramName;
+		this.lowerCase = toLowerCase(paramName);
+		this.secureValue = secureValue;
+		this.url = url;
+	}
+
+	/**
+	 * @return	param 이름. (예: invokeURLs)
+	 */
+	public String getParamName() {
+		return this.paramName;
+	}
+
+	/**
+	 * @return	보안 param 에 설정하는 따옴표로 감싼 값. 값이 정해져 있지 않은 allowNetworking 과 URL param 은 null.
+	 */
+	public String getSecureValue() {
+		return this.secureValue;
+	}
+
+	/**
+	 * @return	object 태그에 없으면 추가하는 보안 param 이면 true.
+	 */
+	public boolean isSecurityParam() {
+		return !this.url;
+	}
+
+	/**
+	 * @return	값이 URL 인 param (url, href, src, movie) 이면 true.
+	 */
+	public boolean isUrl() {
+		return this.url;
+	}
+
+	/**
+	 * 이 메소드는 param 이름에 해당하는 {@code ParamName} 을 리턴한다.
+	 *
+	 * @param name	param 의 name 속성 값.
+	 * @return	해당하는 이름이 없으면 null.
+	 */
+	public static ParamName of(String name) {
+		if (name == null) {
+			return null;
+		}
+
+		int start = 0;
+		int end = name.length();
+		if (start < end && isQuote(name.charAt(start))) {
+			start++;
+		}
+		while (start < end && isWhitespace(name.charAt(start))) {
+			start++;
+		}
+		if (start < end && isQuote(name.charAt(end - 1))) {
+			end--;
+		}
+		while (start < end && isWhitespace(name.charAt(end - 1))) {
+			end--;
+		}
+
+		int length = end - start;
+		if (length >= BY_LENGTH.length || BY_LENGTH[length] == null) {
+			return null;
+		}
+
+		for (ParamName param : BY_LENGTH[length]) {
+			if (param.matches(name, start)) {
+				return param;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @param name	param 의 name 속성 값.
+	 * @return	값이 URL 인 param 이면 true.
+	 */
+	public static boolean isUrlName(String name) {
+		ParamName param = of(name);
+		return param != null && param.url;
+	}
+
+	/**
+	 * @return	보안 param 목록. object 태그에 추가하는 순서와 같다.
+	 */
+	public static ParamName[] securityParams() {
+		int count = 0;
+		for (ParamName param : values()) {
+			if (!param.url) {
+				count++;
+			}
+		}
+
+		ParamName[] params = new ParamName[count];
+		count = 0;
+		for (ParamName param : values()) {
+			if (!param.url) {
+				params[count++] = param;
+			}
+		}
+		return params;
+	}
+
+	private boolean matches(String name, int offset) {
+		for (int i = 0; i < this.lowerCase.length(); i++) {
+			char c = name.charAt(offset + i);
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			if (c != this.lowerCase.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isQuote(char c) {
+		return c == '"' || c == '\'';
+	}
+
+	/**
+	 * 정규식의 {@code \s} 와 같은 공백 문자.
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static String toLowerCase(String text) {
+		char[] chars = text.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (chars[i] >= 'A' && chars[i] <= 'Z') {
+				chars[i] += 'a' - 'A';
+			}
+		}
+		return new String(chars);
+	}
+}
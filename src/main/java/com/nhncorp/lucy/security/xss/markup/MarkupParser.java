@@ -21,14 +21,19 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.nhncorp.lucy.security.xss.CommonUtils;
 import com.nhncorp.lucy.security.xss.markup.rule.CharArraySegment;
+import com.nhncorp.lucy.security.xss.markup.rule.CompiledGrammar;
+import com.nhncorp.lucy.security.xss.markup.rule.ParseContext;
 import com.nhncorp.lucy.security.xss.markup.rule.ParsingGrammar;
 import com.nhncorp.lucy.security.xss.markup.rule.Token;
+import com.nhncorp.lucy.security.xss.markup.rule.TokenReader;
 
 /**
  * 이 클래스는 Markup이 포함된 Data({@code String or InputStream})을 {@link com.nhncorp.lucy.security.xss.markup.Content Content}의
@@ -62,6 +67,7 @@ import com.nhncorp.lucy.security.xss.markup.rule.Token;
  */
 public final class MarkupParser {
 	private static ParsingGrammar grammar = ParsingGrammar.getInstance();
+	private static CompiledGrammar compiledGrammar = CompiledGrammar.getInstance();
 
 	private MarkupParser() {
 	}
@@ -73,56 +79,95 @@ public final class MarkupParser {
 	 * @return	{@code Collection<Content>}.
 	 */
 	public static Collection<Content> parse(String input) {
+		return parse(input, false);
+	}
+
+	/**
+	 * 이 메소드는 Markup이 포함된 {@code String} 데이터를 {@code Collection<Content>} 형태로 파싱을 수행한다.
+	 *
+	 * @param input	Markup이 포함된 {@code String} 데이터.
+	 * @param compiled	true 이면 {@link CompiledGrammar CompiledGrammar} 로 Tokenizing 을 수행한다.
+	 * @return	{@code Collection<Content>}.
+	 */
+	public static Collection<Content> parse(String input, boolean compiled) {
 
 		if (input == null || input.length() == 0) {
 			return null;
 		}
 
-		LinkedList<Content> result = new LinkedList<Content>();
+		TreeBuilder builder = new TreeBuilder();
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			CharArraySegment charArraySegment = context.input(input);
+			Token token;
+			while ((token = (compiled ? compiledGrammar.nextToken(charArraySegment) : grammar.nextToken(charArraySegment))) != null) {
+				builder.add(token);
+			}
+		} finally {
+			context.release();
+		}
+
+		return builder.getResult();
+	}
+
+	/**
+	 * 이 클래스는 토큰을 순서대로 받아 {@code Collection<Content>} 를 만든다.
+	 * <br/><br/>
+	 * 닫히지 않은 Element 는 열린 순서대로 stack 에 쌓이고, 각 Element 의 파싱 결과 내 위치와 함께 기록된다.
+	 * 태그 이름(대소문자 무시)별, IE Hack 별로 stack 위치를 따로 유지하므로, 종료 태그는 stack 을 훑지 않고 짝을 찾는다.
+	 * 짝을 찾으면 해당 Element 뒤의 결과를 한 번에 하위로 옮기고, 그 위에 열려 있던 Element 들은 stack 에서 제거한다.
+	 * 짝이 없는 종료 태그는 {@link Text Text} 로 추가된다.
+	 */
+	private static final class TreeBuilder {
+		private final List<Content> result = new ArrayList<Content>();
+		private final Map<String, IndexStack> openByName = new HashMap<String, IndexStack>();
+		private final IndexStack openIEHacks = new IndexStack();
+		private Element[] open = new Element[16];
+		private int[] starts = new int[16];
+		private IndexStack[] owners = new IndexStack[16];
+		private int depth;
+
+		Collection<Content> getResult() {
+			return this.result;
+		}
 
-		LinkedList<Element> stack = null;
-		//		Token root = grammar.tokenize(input);
-		//		List<Token> children = root.getChildren();
-		//		for (Token t : children) {
-		CharArraySegment charArraySegment = new CharArraySegment(input);
-		Token token;
-		while ((token = grammar.nextToken(charArraySegment)) != null) {
-			String tokenName = token.getName();
-			if ("description".equals(tokenName)) {
+		/**
+		 * 토큰 하나를 파싱 결과에 추가한다.
+		 */
+		void add(Token token) {
+			int tokenId = token.getId();
+			if (tokenId == Token.DESCRIPTION) {
 
 				String description = token.getText();
-				result.add(new Description(description));
+				this.result.add(new Description(description));
 
-			} else if ("comment".equals(tokenName)) {
+			} else if (tokenId == Token.COMMENT) {
 				String comment = token.getText();
 				if (comment != null && comment.length() != 0) {
 					comment = comment.substring(4, comment.length() - 3);
 				}
-				result.add(new Comment(comment));
+				this.result.add(new Comment(comment));
 
-			} else if ("iEHExStartTag".endsWith(tokenName)) {
+			} else if (tokenId == Token.IE_HACK_START_TAG) {
 
+				// IE Hack 이름은 '<' 로 시작하므로 종료 태그 이름과 같을 수 없다.
 				Element element = new IEHackExtensionElement(token.getText());
+				this.push(element, this.openIEHacks);
+				this.result.add(element);
 
-				if (stack == null) {
-					stack = new LinkedList<Element>();
-				}
-
-				stack.addFirst(element);
-				result.add(element);
-
-			} else if ("startTag".equals(tokenName)) {
-				Token tagNameToken = token.getChild("tagName");
+			} else if (tokenId == Token.START_TAG) {
+				Token tagNameToken = token.getChildById(Token.TAG_NAME);
 				if (tagNameToken == null) {
-					continue;
+					return;
 				}
 
 				Element element = new Element(tagNameToken.getText());
-				List<Token> attTokens = token.getChildren("attribute");
+				List<Token> attTokens = token.getChildrenById(Token.ATTRIBUTE);
 				if (attTokens != null) {
 					for (Token attToken : attTokens) {
-						Token attName = attToken.getChild("attName");
-						Token attValue = attToken.getChild("attValue");
+						Token attName = attToken.getChildById(Token.ATT_NAME);
+						Token attValue = attToken.getChildById(Token.ATT_VALUE);
 						if (attName != null && attValue == null) {
 							element.putAttribute(new Attribute(attName.getText()));
 						} else if (attName != null && attValue != null) {
@@ -133,110 +178,143 @@ public final class MarkupParser {
 					}
 				}
 
-				Token closeStartEnd = token.getChild("closeStartEnd");
+				Token closeStartEnd = token.getChildById(Token.CLOSE_START_END);
 
 				if (closeStartEnd == null) {
-
-					if (stack == null) {
-						stack = new LinkedList<Element>();
+					String key = nameKey(element.getName());
+					IndexStack owner = this.openByName.get(key);
+					if (owner == null) {
+						owner = new IndexStack();
+						this.openByName.put(key, owner);
 					}
 
-					stack.addFirst(element);
+					this.push(element, owner);
 
 				} else {
 					element.setStartClose(true);
 
 				}
 
-				result.add(element);
-
-			} else if ("iEHExEndTag".endsWith(tokenName)) {
-
-				boolean flag = false;
-				if (stack != null) {
-					LinkedList<Element> tmp = new LinkedList<Element>();
-					Element element;
-					while (!stack.isEmpty() && (element = stack.removeFirst()) != null) {
-						if (element instanceof IEHackExtensionElement) {
-							Content content;
-							while (!result.isEmpty() && (content = result.getLast()) != null) {
-								if (content instanceof Element && content == element) {
-									element.setClose(true);
-									tmp.clear();
-									break;
-								} else {
-									if (stack.contains(content)) {
-										stack.remove(content);
-									}
-
-									element.addContent(0, result.removeLast());
-								}
-							}
-							flag = true;
-							break;
-						} else {
-							tmp.add(element);
-						}
-					}
+				this.result.add(element);
 
-					if (tmp != null && !tmp.isEmpty()) {
-						stack = tmp;
-					}
-				}
+			} else if (tokenId == Token.IE_HACK_END_TAG) {
 
-				if (!flag) {
-					result.add(new Text(token.getText()));
+				if (!this.close(this.openIEHacks)) {
+					this.result.add(new Text(token.getText()));
 				}
 
-			} else if ("endTag".equals(tokenName)) {
-				Token tagNameToken = token.getChild("tagName");
-				boolean flag = false;
+			} else if (tokenId == Token.END_TAG) {
+				Token tagNameToken = token.getChildById(Token.TAG_NAME);
 				if (tagNameToken == null) {
-					continue;
+					return;
 				}
 
-				String tagName = tagNameToken.getText();
-
-				if (stack != null) {
-					LinkedList<Element> tmp = new LinkedList<Element>();
-					Element element;
-					while (!stack.isEmpty() && (element = stack.removeFirst()) != null) {
-						if (tagName.equalsIgnoreCase(element.getName())) {
-							Content content;
-							while (!result.isEmpty() && (content = result.getLast()) != null) {
-								if (content instanceof Element && content == element) {
-									element.setClose(true);
-									tmp.clear();
-									break;
-								} else {
-									if (stack.contains(content)) {
-										stack.remove(content);
-									}
-
-									element.addContent(0, result.removeLast());
-								}
-							}
-							flag = true;
-							break;
-						} else {
-							tmp.add(element);
-						}
-					}
+				if (!this.close(this.openByName.get(nameKey(tagNameToken.getText())))) {
+					this.result.add(new Text(token.getText()));
+				}
+			} else {
+				this.result.add(new Text(token.getText()));
+			}
+		}
+
+		private void push(Element element, IndexStack owner) {
+			if (this.depth == this.open.length) {
+				int length = this.depth << 1;
+				Element[] open = new Element[length];
+				int[] starts = new int[length];
+				IndexStack[] owners = new IndexStack[length];
+				System.arraycopy(this.open, 0, open, 0, this.depth);
+				System.arraycopy(this.starts, 0, starts, 0, this.depth);
+				System.arraycopy(this.owners, 0, owners, 0, this.depth);
+				this.open = open;
+				this.starts = starts;
+				this.owners = owners;
+			}
+
+			this.open[this.depth] = element;
+			this.starts[this.depth] = this.result.size();
+			this.owners[this.depth] = owner;
+			owner.push(this.depth);
+			this.depth++;
+		}
+
+		/**
+		 * owner 에서 가장 최근에 열린 Element 를 닫는다. 그 뒤의 결과는 하위로 옮겨지고,
+		 * 그 위에 열려 있던 Element 들은 닫히지 않은 채로 stack 에서 제거된다.
+		 *
+		 * @return	닫을 Element 가 없으면 false.
+		 */
+		private boolean close(IndexStack owner) {
+			if (owner == null || owner.isEmpty()) {
+				return false;
+			}
+
+			int index = owner.peek();
+			Element element = this.open[index];
+			List<Content> children = this.result.subList(this.starts[index] + 1, this.result.size());
+			element.addContents(children);
+			children.clear();
+			element.setClose(true);
+
+			while (this.depth > index) {
+				this.depth--;
+				this.owners[this.depth].pop();
+				this.open[this.depth] = null;
+				this.owners[this.depth] = null;
+			}
+
+			return true;
+		}
 
-					if (tmp != null && !tmp.isEmpty()) {
-						stack = tmp;
+		/**
+		 * 태그 이름은 ASCII 문자로만 이루어지므로, ASCII 소문자로 바꾼 이름은 {@code equalsIgnoreCase} 와 같은 기준이 된다.
+		 */
+		private static String nameKey(String name) {
+			for (int i = 0; i < name.length(); i++) {
+				char c = name.charAt(i);
+				if (c >= 'A' && c <= 'Z') {
+					char[] chars = name.toCharArray();
+					for (int j = i; j < chars.length; j++) {
+						if (chars[j] >= 'A' && chars[j] <= 'Z') {
+							chars[j] += 'a' - 'A';
+						}
 					}
+					return new String(chars);
 				}
+			}
 
-				if (!flag) {
-					result.add(new Text(token.getText()));
-				}
-			} else {
-				result.add(new Text(token.getText()));
+			return name;
+		}
+	}
+
+	/**
+	 * 열린 Element 의 stack 위치 목록.
+	 */
+	private static final class IndexStack {
+		private int[] indexes = new int[4];
+		private int size;
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		int peek() {
+			return this.indexes[this.size - 1];
+		}
+
+		void push(int index) {
+			if (this.size == this.indexes.length) {
+				int[] tmp = new int[this.size << 1];
+				System.arraycopy(this.indexes, 0, tmp, 0, this.size);
+				this.indexes = tmp;
 			}
+
+			this.indexes[this.size++] = index;
 		}
 
-		return result;
+		void pop() {
+			this.size--;
+		}
 	}
 
 	/**
@@ -248,7 +326,46 @@ public final class MarkupParser {
 	 * @throws IOException	{@code InputStream}에 대한 I/O error 발생 시.
 	 */
 	public static Collection<Content> parse(InputStream stream, Charset cs) throws IOException {
-		return parse(read(new InputStreamReader(stream, cs)));
+		return parse(stream, cs, false);
+	}
+
+	/**
+	 * 이 메소드는 Markup이 포함된 {@code InputStream} 데이터를 {@code Collection<Content>} 형태로 파싱을 수행한다.
+	 * <br/><br/>
+	 * compiled 가 true 이면 전체 입력을 읽어 두지 않고 {@link TokenReader TokenReader} 로 버퍼 단위로 읽으며 Tokenizing 한다.
+	 * 이 경우 토큰이 {@link TokenReader#DEFAULT_MAX_TOKEN_SIZE 최대 토큰 크기}를 넘으면 (예: 닫히지 않은 주석) 결과가
+	 * {@link #parse(String, boolean)} 와 다를 수 있다. false 이면 전체 입력을 읽은 뒤 {@link #parse(String, boolean)} 와 같이 파싱한다.
+	 *
+	 * @param stream	Markup이 포함된 {@code InputStream}.
+	 * @param cs	{@code InputStream}의 {@code Charset}.
+	 * @param compiled	true 이면 {@link CompiledGrammar CompiledGrammar} 로 Tokenizing 을 수행한다.
+	 * @return	{@code Collection<Content>}.
+	 * @throws IOException	{@code InputStream}에 대한 I/O error 발생 시.
+	 */
+	public static Collection<Content> parse(InputStream stream, Charset cs, boolean compiled) throws IOException {
+		Reader reader = new InputStreamReader(stream, cs);
+		if (!compiled) {
+			return parse(read(reader), false);
+		}
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			TokenReader tokens = new TokenReader(reader, context);
+			Token token = tokens.nextToken();
+			if (token == null) {
+				return null;
+			}
+
+			TreeBuilder builder = new TreeBuilder();
+			do {
+				builder.add(token);
+			} while ((token = tokens.nextToken()) != null);
+
+			return builder.getResult();
+		} finally {
+			context.release();
+			reader.close();
+		}
 	}
 
 	private static String read(Reader reader) throws IOException {
@@ -266,6 +383,118 @@ public final class MarkupParser {
 		return buffer.toString();
 	}
 
+	/**
+	 * 이 메소드는 {@code <tagName attName=attValue></tagName>} 을 파싱한 결과와 같은 {@link Element Element} 를 토큰 분리 없이 만든다.
+	 * <br/><br/>
+	 * 각 부분이 파싱 룰의 tagName, attName, attValue 에 그대로 하나씩 대응하는 경우에만 만들며,
+	 * 속성 값이 여러 토큰으로 나뉘거나 태그 밖으로 넘치는 등 그렇지 않은 경우에는 null 을 리턴한다.
+	 *
+	 * @param tagName	Tag 이름.
+	 * @param attName	Attribute 이름.
+	 * @param attValue	Attribute 값.
+	 * @return	닫힌 {@link Element Element}, 파싱 결과와 같게 만들 수 없으면 null.
+	 */
+	public static Element newElement(String tagName, String attName, String attValue) {
+		if (!isTagName(tagName) || !isAttName(attName) || !isAttValue(attValue)) {
+			return null;
+		}
+
+		Element element = new Element(tagName);
+		element.putAttribute(new Attribute(attName, CommonUtils.getQuotePair(attValue)));
+		element.setClose(true);
+		return element;
+	}
+
+	/**
+	 * tagName ::= (([#x41-#x7A] - [#x5B-#x60])+ | '_' | ':') (([#x41-#x7A] - [#x5B-#x60])+ | [#x30-#x39]+ | '.' | '-' | '_' | ':')*
+	 */
+	private static boolean isTagName(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '_' || c == ':' || i > 0 && (c >= '0' && c <= '9' || c == '.' || c == '-'))) {
+				return false;
+			}
+		}
+
+		return name.length() > 0;
+	}
+
+	/**
+	 * attName ::= [^/=&lt;&gt;#x20#x9#xD#xA#xB#xC]+
+	 */
+	private static boolean isAttName(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c == '/' || c == '=' || c == '<' || c == '>' || isSpace(c) || isOutside(c)) {
+				return false;
+			}
+		}
+
+		return name.length() > 0;
+	}
+
+	/**
+	 * 값 전체가 attValue 의 첫 번째로 맞는 선택지 하나에 대응하는지 확인한다.
+	 * <pre>
+	 * attValue ::= ('"' [^"&lt;]*  '"') | ("'" [^'&lt;]* "'") | ("`" [^`&lt;]* "`")
+	 * 		|([^"'`&lt;&gt;#x20#x9#xD#xA#xB#xC]+ ["'`]?)|[^&lt;&gt;#x20#x9#xD#xA#xB#xC]*
+	 * </pre>
+	 */
+	private static boolean isAttValue(String value) {
+		int length = value.length();
+		if (length == 0) {
+			return false;
+		}
+
+		char first = value.charAt(0);
+		if (isQuote(first)) {
+			for (int i = 1; i < length; i++) {
+				char c = value.charAt(i);
+				if (c == first) {
+					return i == length - 1;
+				} else if (c == '<' || isOutside(c)) {
+					break;
+				}
+			}
+
+			// 닫는 따옴표가 없으면 마지막 선택지로 맞춰진다.
+			for (int i = 1; i < length; i++) {
+				char c = value.charAt(i);
+				if (c == '<' || c == '>' || isSpace(c) || isOutside(c)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		int i = 0;
+		while (i < length) {
+			char c = value.charAt(i);
+			if (isQuote(c) || c == '<' || c == '>' || isSpace(c) || isOutside(c)) {
+				break;
+			}
+			i++;
+		}
+
+		return i > 0 && (i == length || i == length - 1 && isQuote(value.charAt(i)));
+	}
+
+	private static boolean isQuote(char c) {
+		return c == '"' || c == '\'' || c == '`';
+	}
+
+	/**
+	 * 부정 문자 집합([^...])은 #x1-#xFFFE 범위의 문자만 포함한다.
+	 */
+	private static boolean isOutside(char c) {
+		return c == 0 || c == 0xFFFF;
+	}
+
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\u000B' || c == '\f';
+	}
+
 	/**
 	 * 이 메소드는 {@code Collection<Content>}의 내용을 String으로 보여준다.
 	 *
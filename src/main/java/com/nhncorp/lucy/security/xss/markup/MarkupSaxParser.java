@@ -16,6 +16,7 @@
 package com.nhncorp.lucy.security.xss.markup;
 
 import com.nhncorp.lucy.security.xss.markup.rule.CharArraySegment;
+import com.nhncorp.lucy.security.xss.markup.rule.CompiledGrammar;
 import com.nhncorp.lucy.security.xss.markup.rule.ParsingGrammar;
 import com.nhncorp.lucy.security.xss.markup.rule.Token;
 
@@ -51,6 +52,7 @@ import com.nhncorp.lucy.security.xss.markup.rule.Token;
  */
 public final class MarkupSaxParser {
 	private static ParsingGrammar grammar = ParsingGrammar.getInstance();
+	private static CompiledGrammar compiledGrammar = CompiledGrammar.getInstance();
 
 	private MarkupSaxParser() {
 	}
@@ -59,4 +61,19 @@ public final class MarkupSaxParser {
 		Token token = grammar.nextToken(charArraySegment);
 		return token;
 	}
+
+	/**
+	 * 이 메소드는 {@link CharArraySegment CharArraySegment} 의 현재 위치에서 다음 토큰을 리턴한다.
+	 *
+	 * @param charArraySegment	Tokenizing 대상.
+	 * @param compiled	true 이면 {@link CompiledGrammar CompiledGrammar} 로 Tokenizing 을 수행한다.
+	 * @return	{@link Token Token} 객체, 더 이상 토큰이 없으면 null.
+	 */
+	public static Token parse(CharArraySegment charArraySegment, boolean compiled) {
+		if (compiled) {
+			return compiledGrammar.nextToken(charArraySegment);
+		}
+
+		return grammar.nextToken(charArraySegment);
+	}
 }
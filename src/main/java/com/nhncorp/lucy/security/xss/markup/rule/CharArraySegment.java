@@ -26,6 +26,8 @@ public final class CharArraySegment {
 	private int offset;
 	private int count;
 	private int pos;
+	private ScanMemo memo;
+	private ParseContext context;
 
 	public CharArraySegment(char[] array, int offset, int count) throws IndexOutOfBoundsException {
 		if (offset >= array.length || count < 0) {
@@ -100,8 +102,24 @@ public final class CharArraySegment {
 		return pos;
 	}
 
+	public int posOf(char ch) {
+		for (int i = this.pos; i < this.count; i++) {
+			if (this.array[this.offset + i] == ch) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
 	public int posOf(String str) {
-		return this.posOf(str.toCharArray());
+		for (int i = this.pos; i < this.count; i++) {
+			if (this.startAt(i, str)) {
+				return i;
+			}
+		}
+
+		return -1;
 	}
 
 	public int lastPosOf(char... cs) {
@@ -121,7 +139,13 @@ public final class CharArraySegment {
 	}
 
 	public int lastPosOf(String str) {
-		return this.lastPosOf(str.toCharArray());
+		for (int i = this.count - 1; i >= this.pos; i--) {
+			if (this.startAt(i, str)) {
+				return i;
+			}
+		}
+
+		return -1;
 	}
 
 	public boolean hasRemaining() {
@@ -140,15 +164,15 @@ public final class CharArraySegment {
 		int offset = this.index(start);
 		int count = end - start;
 
-		return new CharArraySegment(this.array, offset, count);
+		return new CharArraySegment(this.array, offset, count).memo(this.memo).context(this.context);
 	}
 
 	public CharArraySegment subSegment(int start) {
-		return new CharArraySegment(this.array, this.index(start), this.length() - start);
+		return new CharArraySegment(this.array, this.index(start), this.length() - start).memo(this.memo).context(this.context);
 	}
 
 	public CharArraySegment subSegment() {
-		return new CharArraySegment(this.array, this.index(this.pos()), this.length() - this.pos());
+		return new CharArraySegment(this.array, this.index(this.pos()), this.length() - this.pos()).memo(this.memo).context(this.context);
 	}
 
 	public CharArraySegment slice(int count) {
@@ -202,7 +226,17 @@ public final class CharArraySegment {
 	}
 
 	public boolean startAt(int pos, String prefix) {
-		return this.startAt(pos, prefix.toCharArray());
+		if (prefix == null || prefix.length() > this.count - pos) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length(); i++) {
+			if (this.array[this.offset + pos + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
 	public boolean startWith(char... prefix) {
@@ -210,7 +244,7 @@ public final class CharArraySegment {
 	}
 
 	public boolean startWith(String prefix) {
-		return this.startAt(this.pos, prefix.toCharArray());
+		return this.startAt(this.pos, prefix);
 	}
 
 	public CharArraySegment concate(CharArraySegment other) {
@@ -218,9 +252,20 @@ public final class CharArraySegment {
 			return this;
 		}
 
-		int start = (this.offset <= other.offset) ? this.offset : other.offset;
+		return this.concate(other.array, other.offset, other.count);
+	}
+
+	/**
+	 * 같은 배열의 [offset, offset + count) 범위를 이 segment 에 합친다. segment 객체를 만들지 않는다.
+	 */
+	CharArraySegment concate(char[] other, int otherOffset, int otherCount) {
+		if (this.array != other) {
+			return this;
+		}
+
+		int start = (this.offset <= otherOffset) ? this.offset : otherOffset;
 		int end = this.offset + this.count;
-		end = (end >= other.offset + other.count) ? end : other.offset + other.count;
+		end = (end >= otherOffset + otherCount) ? end : otherOffset + otherCount;
 
 		this.offset = start;
 		this.count = end - start;
@@ -229,6 +274,41 @@ public final class CharArraySegment {
 		return this;
 	}
 
+	/**
+	 * 파싱 중인 입력의 스캔 결과 기록. 같은 배열을 공유하는 하위 segment 에도 전달된다.
+	 */
+	ScanMemo memo() {
+		return this.memo;
+	}
+
+	CharArraySegment memo(ScanMemo memo) {
+		this.memo = memo;
+		return this;
+	}
+
+	/**
+	 * 객체를 재사용하는 파싱 Context. 같은 배열을 공유하는 하위 segment 에도 전달된다.
+	 */
+	ParseContext context() {
+		return this.context;
+	}
+
+	CharArraySegment context(ParseContext context) {
+		this.context = context;
+		return this;
+	}
+
+	/**
+	 * 재사용을 위해 다른 범위를 가리키도록 변경한다.
+	 */
+	CharArraySegment reset(char[] array, int offset, int count) {
+		this.array = array;
+		this.offset = offset;
+		this.count = count;
+		this.pos = 0;
+		return this;
+	}
+
 	public static boolean isHexChar(char ch) {
 		if ((ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F')) {
 			return true;
@@ -54,7 +54,7 @@ class CharCode extends Terminal {
 		} while (this.isRepeat());
 
 		if (start >= 0 && end > start) {
-			parent.appendValue(input.subSegment(start, end));
+			parent.appendValue(input.getArray(), input.index(start), end - start);
 			isTokenized = true;
 		}
 
@@ -62,6 +62,34 @@ class CharCode extends Terminal {
 	}
 
 	public int matchPos(CharArraySegment input) {
-		return (this.code > 0xFFFF) ? input.posOf(Character.toChars(this.code)) : input.posOf((char)this.code);
+		int from = input.index();
+		int limit = input.index(input.length());
+		ScanMemo memo = input.memo();
+
+		int found = (memo == null) ? ScanMemo.UNKNOWN : memo.found(this.getMemoSlot(), from, limit);
+		if (found == ScanMemo.UNKNOWN) {
+			found = this.indexOf(input.getArray(), from, limit);
+			if (memo != null) {
+				memo.putFound(this.getMemoSlot(), from, limit, found);
+			}
+		}
+
+		return (found < 0) ? -1 : found - input.index(0);
+	}
+
+	/**
+	 * [from, limit) 범위에서 처음으로 나타나는 문자의 위치를 리턴한다.
+	 *
+	 * @return	찾은 위치, 없으면 -1.
+	 */
+	int indexOf(char[] array, int from, int limit) {
+		char code = this.code;
+		for (int i = from; i < limit; i++) {
+			if (array[i] == code) {
+				return i;
+			}
+		}
+
+		return -1;
 	}
 }
@@ -19,12 +19,19 @@ import java.util.BitSet;
 
 /**
  * 이 클래스는 패키지 외부에서 참조 되지 않는다.
+ * <br/><br/>
+ * 집합 연산은 {@code BitSet} 으로 수행하고, 매칭은 변경 시마다 다시 만드는 ASCII 테이블과 정렬된 non-ASCII 범위 목록으로 수행한다.
  *
  * @author Naver Labs
  *
  */
 class CharCodeSet extends Terminal {
+	private static final char[] EMPTY = new char[0];
+
 	private BitSet bits;
+	private boolean[] ascii = new boolean[0x80];
+	private char[] lows = EMPTY;
+	private char[] highs = EMPTY;
 
 	public CharCodeSet() {
 		bits = new BitSet(0xFFFF);
@@ -35,6 +42,13 @@ class CharCodeSet extends Terminal {
 		for (char code : codes) {
 			this.bits.set(code);
 		}
+		this.rebuild();
+	}
+
+	CharCodeSet(BitSet bits) {
+		this();
+		this.bits.or(bits);
+		this.rebuild();
 	}
 
 	public CharCodeSet(CharArraySegment pattern) {
@@ -44,31 +58,67 @@ class CharCodeSet extends Terminal {
 
 	public void setRange(int frcode, int tocode) {
 		this.bits.set(frcode, tocode + 1);
+		this.rebuild();
 	}
 
 	public void set(int code) {
 		this.bits.set(code);
+		this.rebuild();
 	}
 
 	public void flip(int code) {
 		this.bits.flip(code);
+		this.rebuild();
 	}
 
 	public void setAll(CharCodeSet other) {
 		if (other != null) {
 			this.bits.or(other.bits);
+			this.rebuild();
 		}
 	}
 
 	public void flipAll(CharCodeSet other) {
 		if (other != null) {
 			other.bits.flip(1, 0xFFFF);
+			other.rebuild();
 			this.bits.and(other.bits);
+			this.rebuild();
 		}
 	}
 
 	public void flipAll() {
 		this.bits.flip(1, 0xFFFF);
+		this.rebuild();
+	}
+
+	/**
+	 * BitSet 으로부터 매칭용 ASCII 테이블과 non-ASCII 범위 목록을 다시 만든다.
+	 */
+	private void rebuild() {
+		boolean[] table = new boolean[0x80];
+		for (int i = 0; i < 0x80; i++) {
+			table[i] = this.bits.get(i);
+		}
+
+		int count = 0;
+		for (int i = this.bits.nextSetBit(0x80); i >= 0 && i <= 0xFFFF; i = this.bits.nextSetBit(this.bits.nextClearBit(i))) {
+			count++;
+		}
+
+		char[] from = new char[count];
+		char[] to = new char[count];
+		int index = 0;
+		for (int i = this.bits.nextSetBit(0x80); i >= 0 && i <= 0xFFFF; i = this.bits.nextSetBit(this.bits.nextClearBit(i))) {
+			int end = this.bits.nextClearBit(i) - 1;
+			from[index] = (char)i;
+			to[index] = (char)Math.min(end, 0xFFFF);
+			index++;
+		}
+
+		this.ascii = table;
+		this.lows = from;
+		this.highs = to;
 	}
 
 	private void setPattern(CharArraySegment pattern) {
@@ -115,63 +165,137 @@ class CharCodeSet extends Terminal {
 		}
 	}
 
-	public boolean matches(char code) {
-		return this.bits.get(code);
+	void copyTo(BitSet target) {
+		target.or(this.bits);
 	}
 
-	// attValue를 위한 Customizing 로직
-	private boolean matches(CharArraySegment input) {
-		char code = input.getChar();
+	public boolean matches(char code) {
+		if (code < 0x80) {
+			return this.ascii[code];
+		}
 
-		if (input.length() > input.pos() + 1) {
-			char next = input.charAt(input.pos() + 1);
-			if (code == '<' && (next == '\'' || next == '"' || next == '<' || next == 0x20 || next == 0x9 || next == 0xD || next == 0xA)) {
+		char[] from = this.lows;
+		int low = 0;
+		int high = from.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (code < from[mid]) {
+				high = mid - 1;
+			} else if (code > this.highs[mid]) {
+				low = mid + 1;
+			} else {
 				return true;
 			}
 		}
 
-		return this.matches(code);
+		return false;
 	}
 
-	public boolean sliceToken(Token parent, CharArraySegment input) {
-		boolean isTokenized = false;
+	/**
+	 * array 의 pos 위치 문자가 매칭되는지 확인한다. attValue 이면 뒤에 따옴표, 공백 등이 오는 '&lt;' 도 허용한다.
+	 */
+	boolean matches(char[] array, int pos, int limit, boolean attValue) {
+		return this.matches(array[pos]) || (attValue && isAttValueLt(array, pos, limit));
+	}
 
-		int start = -1;
-		int end = -1;
-		do {
-			if (input == null || !input.hasRemaining()) {
+	/**
+	 * [from, limit) 범위에서 매칭되는 문자가 연속되는 끝 위치를 리턴한다.
+	 *
+	 * @return	처음으로 매칭되지 않는 위치, 모두 매칭되면 limit.
+	 */
+	int scanWhile(char[] array, int from, int limit, boolean attValue) {
+		boolean[] table = this.ascii;
+		int i = from;
+		while (i < limit) {
+			char code = array[i];
+			if (code < 0x80) {
+				if (!table[code] && !(attValue && isAttValueLt(array, i, limit))) {
+					break;
+				}
+			} else if (!this.matches(code)) {
 				break;
 			}
+			i++;
+		}
 
-			if (this.matches(input.getChar()) || ("attValue".equals(parent.getName()) && this.matches(input))) {
-				if (start < 0) {
-					start = input.pos();
-					end = input.move().pos();
-				} else {
-					end = input.move().pos();
-				}
-			} else {
-				break;
+		return i;
+	}
+
+	/**
+	 * [from, limit) 범위에서 처음으로 매칭되는 문자의 위치를 리턴한다.
+	 *
+	 * @return	매칭되는 위치, 없으면 -1.
+	 */
+	int scanUntil(char[] array, int from, int limit) {
+		boolean[] table = this.ascii;
+		for (int i = from; i < limit; i++) {
+			char code = array[i];
+			if ((code < 0x80) ? table[code] : this.matches(code)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	// attValue를 위한 Customizing 로직
+	static boolean isAttValueLt(char[] array, int pos, int limit) {
+		if (array[pos] != '<' || pos + 1 >= limit) {
+			return false;
+		}
+
+		char next = array[pos + 1];
+		return next == '\'' || next == '"' || next == '<' || next == 0x20 || next == 0x9 || next == 0xD || next == 0xA;
+	}
+
+	public boolean sliceToken(Token parent, CharArraySegment input) {
+		if (input == null || !input.hasRemaining()) {
+			return false;
+		}
+
+		boolean isAttValue = parent.getId() == Token.ATT_VALUE;
+		int start = input.pos();
+		int limit = input.index(input.length());
+
+		// 반복 매칭의 끝 위치는 입력 위치에만 의존하므로, 이전 매칭 범위 안에서 시작하면 다시 스캔하지 않는다.
+		ScanMemo memo = this.isRepeat() ? input.memo() : null;
+		int known = (memo == null) ? ScanMemo.UNKNOWN : memo.runEnd(this.getMemoSlot(), input.index(), limit);
+		if (known != ScanMemo.UNKNOWN) {
+			input.pos(known - input.index(0));
+		} else if (this.isRepeat()) {
+			int from = input.index();
+			int end = this.scanWhile(input.getArray(), from, limit, isAttValue);
+			input.pos(end - input.index(0));
+
+			if (memo != null) {
+				memo.putRunEnd(this.getMemoSlot(), from, limit, end);
 			}
-		} while (this.isRepeat());
+		} else if (this.matches(input.getArray(), input.index(), limit, isAttValue)) {
+			input.move();
+		}
 
-		if (start >= 0 && end >= start) {
-			parent.appendValue(input.subSegment(start, end));
-			isTokenized = true;
+		int end = input.pos();
+		if (end > start) {
+			parent.appendValue(input.getArray(), input.index(start), end - start);
+			return true;
 		}
 
-		return isTokenized;
+		return false;
 	}
 
 	public int matchPos(CharArraySegment input) {
-		int pos = -1;
-		for (int i = input.pos(); i < input.length(); i++) {
-			if (this.matches(input.charAt(i))) {
-				pos = i;
-				break;
+		int from = input.index();
+		int limit = input.index(input.length());
+		ScanMemo memo = input.memo();
+
+		int found = (memo == null) ? ScanMemo.UNKNOWN : memo.found(this.getMemoSlot(), from, limit);
+		if (found == ScanMemo.UNKNOWN) {
+			found = this.scanUntil(input.getArray(), from, limit);
+			if (memo != null) {
+				memo.putFound(this.getMemoSlot(), from, limit, found);
 			}
 		}
 
-		return pos;
+		return (found < 0) ? -1 : found - input.index(0);
 	}
 }
@@ -0,0 +1,649 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 이 클래스는 {@link ParsingGrammar ParsingGrammar} 가 읽어들인 파싱 룰(markup.rule)을 클래스 로딩 시점에
+ * 정수 테이블 형태로 컴파일하여, {@link ParsingGrammar#nextToken(CharArraySegment)} 와 동일한 토큰을 생성하는 Tokenizer 이다.
+ * <br/><br/>
+ * 룰 객체 트리를 따라가며 시도마다 {@link Token Token} 과 {@link CharArraySegment CharArraySegment} 를 생성하는 대신,
+ * 절대 위치(index)만으로 매칭을 수행하고 최종적으로 선택된 토큰에 대해서만 {@link Token Token} 을 생성한다.
+ *
+ * @author Naver Labs
+ *
+ */
+public final class CompiledGrammar {
+	private static final int LITERAL = 0;
+	private static final int CHARCODE = 1;
+	private static final int CHARCODESET = 2;
+	private static final int SEQUENCE = 3;
+	private static final int OR = 4;
+	private static final int MINUS = 5;
+	private static final int REFERENCE = 6;
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * 입력이 끝나지 않았는데 토큰이 입력의 끝에 걸쳐 있어, 입력을 더 읽어야 함을 나타내는 토큰.
+	 * {@link #nextToken(CharArraySegment, boolean)} 에서만 리턴되며, 내용을 변경하면 안 된다.
+	 */
+	public static final Token NEED_MORE_INPUT = new Token("needMoreInput");
+
+	private static CompiledGrammar instance = new CompiledGrammar(ParsingGrammar.getInstance());
+
+	private int[] kinds;
+	private boolean[] optionals;
+	private boolean[] repeats;
+	private boolean[] firstOnly;
+	private boolean[] attValues;
+	private BitSet[] firstSets;
+	private int[][] children;
+	private int[] refs;
+	private int[] names;
+	private Literal[] literals;
+	private char[] codes;
+	private CharCode[] chars;
+	private CharCodeSet[] sets;
+	private int[] slots;
+	private int[][] terminators;
+	private String[] ruleNames;
+	private int[] ruleIds;
+	private int start;
+
+	private CompiledGrammar(ParsingGrammar grammar) {
+		Compiler compiler = new Compiler(grammar);
+		this.start = compiler.compileRule(ParsingGrammar.START_SYMBOL);
+		compiler.link(this);
+	}
+
+	/**
+	 * 이 메소드는 Instance 를 리턴한다.
+	 *
+	 * @return	instance.
+	 */
+	public static CompiledGrammar getInstance() {
+		return instance;
+	}
+
+	/**
+	 * 이 메소드는 Input 의 현재 위치에서 다음 토큰 하나를 잘라낸다.
+	 * 결과는 {@link ParsingGrammar#nextToken(CharArraySegment)} 와 동일하다.
+	 *
+	 * @param input	Tokenizing 대상 {@link CharArraySegment CharArraySegment}.
+	 * @return	{@link Token Token} 객체, 더 이상 토큰이 없으면 null.
+	 */
+	public Token nextToken(CharArraySegment input) {
+		return this.nextToken(input, true);
+	}
+
+	/**
+	 * 이 메소드는 Input 의 현재 위치에서 다음 토큰 하나를 잘라낸다.
+	 * <br/><br/>
+	 * endOfInput 이 false 이면 Input 뒤에 문자가 더 이어질 수 있는 것으로 보고, 토큰의 결정에 Input 끝 이후의 문자가 필요한 경우
+	 * (예: 닫히지 않은 주석, 버퍼 끝에서 잘린 태그) 위치를 바꾸지 않고 {@link #NEED_MORE_INPUT} 을 리턴한다.
+	 * 호출자는 남은 문자 뒤에 입력을 더 채운 다음 같은 위치에서 다시 호출하면 된다.
+	 * 그 외의 경우 리턴되는 토큰은 전체 입력을 한번에 Tokenizing 한 결과와 동일하다.
+	 *
+	 * @param input	Tokenizing 대상 {@link CharArraySegment CharArraySegment}.
+	 * @param endOfInput	Input 이 전체 입력의 끝까지 포함하는지 여부.
+	 * @return	{@link Token Token} 객체, 더 이상 토큰이 없으면 null, 입력이 더 필요하면 {@link #NEED_MORE_INPUT}.
+	 */
+	public Token nextToken(CharArraySegment input, boolean endOfInput) {
+		if (input == null || input.length() <= 0) {
+			return endOfInput ? null : NEED_MORE_INPUT;
+		}
+
+		if (input.memo() == null) {
+			input.memo(ParsingGrammar.getInstance().newScanMemo());
+		}
+
+		ParseContext context = input.context();
+		Scanner scanner;
+		if (context == null) {
+			scanner = new Scanner();
+		} else {
+			context.recycle();
+			scanner = context.scanner;
+			if (scanner == null) {
+				scanner = new Scanner();
+				context.scanner = scanner;
+			}
+		}
+
+		int limit = input.index(input.length());
+		scanner.reset(input.getArray(), input.index(), input.memo());
+		if (!endOfInput) {
+			scanner.end = limit;
+		}
+
+		boolean isTokenized = scanner.sliceToken(this.start, limit);
+		if (scanner.hitEnd) {
+			return NEED_MORE_INPUT;
+		}
+
+		if (!isTokenized) {
+			return null;
+		}
+
+		input.pos(scanner.pos - input.index(0));
+		return scanner.toToken(input);
+	}
+
+	/**
+	 * 매칭 상태(현재 위치, 매칭된 Reference 기록)를 담는다.
+	 * 호출마다 생성되거나 Thread 별 {@link ParseContext ParseContext} 에서 재사용되므로 Thread 간 공유되지 않는다.
+	 */
+	final class Scanner {
+		private char[] array;
+		private int pos;
+		private ScanMemo memo;
+
+		/**
+		 * 입력이 끝나지 않은 경우 Input 의 끝 위치, 아니면 -1.
+		 * 이 위치에서 매칭이 멈추거나 실패하면 결과가 뒤에 올 문자에 따라 달라질 수 있으므로 hitEnd 를 기록한다.
+		 */
+		private int end;
+		private boolean hitEnd;
+
+		private int size;
+		private int depth;
+		private int[] entryNames = new int[16];
+		private int[] entryStarts = new int[16];
+		private int[] entryEnds = new int[16];
+		private int[] entryDepths = new int[16];
+		private Token[] parents = new Token[16];
+
+		void reset(char[] array, int pos, ScanMemo memo) {
+			this.array = array;
+			this.pos = pos;
+			this.memo = memo;
+			this.end = -1;
+			this.hitEnd = false;
+			this.size = 0;
+			this.depth = 0;
+		}
+
+		/**
+		 * pos 가 limit 에 도달했는지 확인한다. limit 이 입력의 끝이면 hitEnd 를 기록한다.
+		 */
+		private boolean atLimit(int pos, int limit) {
+			if (pos < limit) {
+				return false;
+			}
+
+			if (limit == this.end) {
+				this.hitEnd = true;
+			}
+			return true;
+		}
+
+		private boolean slice(int node, int limit) {
+			switch (kinds[node]) {
+				case LITERAL:
+					return this.sliceLiteral(node, limit);
+				case CHARCODE:
+					return this.sliceCharCode(node, limit);
+				case CHARCODESET:
+					return this.sliceCharCodeSet(node, limit);
+				case REFERENCE:
+					return this.sliceReference(node, limit);
+				default:
+					return this.sliceGroup(node, limit);
+			}
+		}
+
+		private boolean sliceReference(int node, int limit) {
+			boolean isTokenized = false;
+			int start = this.pos;
+			do {
+				if (!this.canStartWith(node, limit)) {
+					this.pos = start;
+					break;
+				}
+
+				int mark = this.size;
+				int entry = this.open(names[node]);
+				boolean flag = this.sliceToken(refs[node], limit);
+				this.depth--;
+
+				if (flag) {
+					entryEnds[entry] = this.pos;
+					isTokenized = true;
+					start = this.pos;
+
+					if (firstOnly[node]) {
+						break;
+					}
+				} else {
+					this.size = mark;
+					this.pos = start;
+					break;
+				}
+			} while (repeats[node]);
+
+			return isTokenized;
+		}
+
+		private boolean sliceGroup(int node, int limit) {
+			boolean isTokenized = false;
+			int start = this.pos;
+			do {
+				if (!this.canStartWith(node, limit)) {
+					this.pos = start;
+					break;
+				}
+
+				int mark = this.size;
+				if (this.sliceToken(node, limit)) {
+					isTokenized = true;
+					start = this.pos;
+
+					if (firstOnly[node]) {
+						break;
+					}
+				} else {
+					this.size = mark;
+					this.pos = start;
+					break;
+				}
+			} while (repeats[node]);
+
+			return isTokenized;
+		}
+
+		boolean sliceToken(int node, int limit) {
+			if (this.atLimit(this.pos, limit)) {
+				return false;
+			}
+
+			int[] rules = children[node];
+			switch (kinds[node]) {
+				case OR: {
+					char ch = this.array[this.pos];
+					for (int rule : rules) {
+						if (firstSets[rule] != null && !firstSets[rule].get(ch)) {
+							continue;
+						}
+
+						if (this.slice(rule, limit)) {
+							return true;
+						}
+					}
+					return false;
+				}
+				case MINUS: {
+					int found = this.matchPos(terminators[node], limit);
+					return this.slice(rules[0], (found >= this.pos) ? found : limit);
+				}
+				default: {
+					boolean isTokenized = false;
+					for (int rule : rules) {
+						boolean flag = this.slice(rule, limit);
+						if (!optionals[rule] && !flag) {
+							return false;
+						} else if (flag) {
+							isTokenized = true;
+						}
+					}
+					return isTokenized;
+				}
+			}
+		}
+
+		private boolean canStartWith(int node, int limit) {
+			return !this.atLimit(this.pos, limit) && (firstSets[node] == null || firstSets[node].get(this.array[this.pos]));
+		}
+
+		private boolean sliceLiteral(int node, int limit) {
+			boolean isTokenized = false;
+			Literal literal = literals[node];
+			int length = literal.getLiteral().length();
+			do {
+				if (this.pos < limit && literal.startsWith(this.array, this.pos, limit)) {
+					this.pos += length;
+					isTokenized = true;
+				} else {
+					// literal 이 입력 끝에서 잘렸을 수 있다.
+					if (literal.isCutAt(this.array, this.pos, limit)) {
+						this.atLimit(limit, limit);
+					}
+					break;
+				}
+			} while (repeats[node]);
+
+			return isTokenized;
+		}
+
+		private boolean sliceCharCode(int node, int limit) {
+			boolean isTokenized = false;
+			char code = codes[node];
+			do {
+				if (!this.atLimit(this.pos, limit) && this.array[this.pos] == code) {
+					this.pos++;
+					isTokenized = true;
+				} else {
+					break;
+				}
+			} while (repeats[node]);
+
+			return isTokenized;
+		}
+
+		private boolean sliceCharCodeSet(int node, int limit) {
+			int start = this.pos;
+			if (this.atLimit(start, limit)) {
+				return false;
+			}
+
+			// attValue 의 '<' 는 다음 문자를 보고 결정한다.
+			boolean attValue = attValues[node];
+			CharCodeSet set = sets[node];
+			if (!repeats[node]) {
+				if (set.matches(this.array, start, limit, attValue)) {
+					this.pos++;
+					return true;
+				}
+
+				if (attValue && this.array[start] == '<') {
+					this.atLimit(start + 1, limit);
+				}
+				return false;
+			}
+
+			int end = this.memo.runEnd(set.getMemoSlot(), start, limit);
+			if (end == ScanMemo.UNKNOWN) {
+				end = set.scanWhile(this.array, start, limit, attValue);
+				this.memo.putRunEnd(set.getMemoSlot(), start, limit, end);
+			}
+
+			this.atLimit((attValue && end < limit && this.array[end] == '<') ? end + 1 : end, limit);
+			this.pos = end;
+			return end > start;
+		}
+
+		private int matchPos(int[] terms, int limit) {
+			int found = -1;
+			int missing = 0;
+			for (int term : terms) {
+				int tmp = this.matchPos(term, limit);
+				if (tmp < 0) {
+					missing = Math.max(missing, (kinds[term] == LITERAL) ? literals[term].getLiteral().length() : 1);
+				} else if (found < 0 || tmp < found) {
+					found = tmp;
+				}
+			}
+
+			// 찾지 못한 종결자가 입력 끝에 걸쳐 found 보다 앞에서 시작할 수 있으면 결과가 달라질 수 있다.
+			// (모두 찾지 못한 경우는 limit 까지 매칭하므로, 끝에 도달하는지는 매칭 중에 확인된다.)
+			if (found >= 0 && missing > 0 && found + missing > limit) {
+				this.atLimit(limit, limit);
+			}
+
+			return found;
+		}
+
+		private int matchPos(int term, int limit) {
+			// 종결자 검색 결과는 종류에 관계없이 기록하여, 같은 위치를 다시 스캔하지 않는다.
+			int found = this.memo.found(slots[term], this.pos, limit);
+			if (found != ScanMemo.UNKNOWN) {
+				return found;
+			}
+
+			switch (kinds[term]) {
+				case LITERAL:
+					found = literals[term].indexOf(this.array, this.pos, limit);
+					break;
+				case CHARCODE:
+					found = chars[term].indexOf(this.array, this.pos, limit);
+					break;
+				default:
+					found = sets[term].scanUntil(this.array, this.pos, limit);
+					break;
+			}
+
+			this.memo.putFound(slots[term], this.pos, limit, found);
+			return found;
+		}
+
+		private int open(int name) {
+			if (this.size == this.entryNames.length) {
+				int length = this.size << 1;
+				this.entryNames = grow(this.entryNames, length);
+				this.entryStarts = grow(this.entryStarts, length);
+				this.entryEnds = grow(this.entryEnds, length);
+				this.entryDepths = grow(this.entryDepths, length);
+			}
+
+			int entry = this.size++;
+			this.entryNames[entry] = name;
+			this.entryStarts[entry] = this.pos;
+			this.entryDepths[entry] = this.depth++;
+			return entry;
+		}
+
+		/**
+		 * 매칭된 Reference 기록(전위 순회 순서)으로부터 Token 트리를 만든다.
+		 * 부모와 이름이 같은 토큰은 {@link Token#addChild(Token)} 와 같이 부모에 병합된다.
+		 */
+		Token toToken(CharArraySegment input) {
+			if (this.parents.length <= this.size) {
+				this.parents = new Token[this.size + 1];
+			}
+
+			Token[] parents = this.parents;
+			Token root = null;
+			for (int i = 0; i < this.size; i++) {
+				int level = this.entryDepths[i];
+				int name = this.entryNames[i];
+				Token parent = (level > 0) ? parents[level - 1] : null;
+
+				if (parent != null && parent.getId() == ruleIds[name]) {
+					parents[level] = parent;
+					continue;
+				}
+
+				Token token = ParseContext.newToken(input, ruleNames[name], ruleIds[name]);
+				token.appendValue(this.array, this.entryStarts[i], this.entryEnds[i] - this.entryStarts[i]);
+				if (parent != null) {
+					parent.addChild(token);
+				} else if (root == null) {
+					root = token;
+				}
+				parents[level] = token;
+			}
+
+			return root;
+		}
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] result = new int[length];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	/**
+	 * {@link ParsingRule ParsingRule} 트리를 노드 번호로 펼친다.
+	 */
+	private static final class Compiler {
+		private ParsingGrammar grammar;
+		private Map<ParsingRule, Integer> nodes = new IdentityHashMap<ParsingRule, Integer>();
+		private Map<String, Integer> rules = new HashMap<String, Integer>();
+		private List<String> ruleNames = new ArrayList<String>();
+		private List<ParsingRule> ruleList = new ArrayList<ParsingRule>();
+		private List<String> owners = new ArrayList<String>();
+		private List<int[]> children = new ArrayList<int[]>();
+
+		Compiler(ParsingGrammar grammar) {
+			this.grammar = grammar;
+		}
+
+		int compileRule(String name) {
+			Integer node = this.rules.get(name);
+			if (node != null) {
+				return node.intValue();
+			}
+
+			Group group = this.grammar.getRule(name);
+			if (group == null) {
+				throw new IllegalStateException(String.format("Undefined parsing rule [%s].", name));
+			}
+
+			int id = this.compile(group, name);
+			this.rules.put(name, Integer.valueOf(id));
+			return id;
+		}
+
+		private int compile(ParsingRule rule, String owner) {
+			Integer node = this.nodes.get(rule);
+			if (node != null) {
+				return node.intValue();
+			}
+
+			int id = this.ruleList.size();
+			this.nodes.put(rule, Integer.valueOf(id));
+			this.ruleList.add(rule);
+			this.owners.add(owner);
+			this.children.add(EMPTY);
+
+			if (rule instanceof Group) {
+				List<ParsingRule> rules = Group.class.cast(rule).getAll();
+				int[] ids = new int[rules.size()];
+				for (int i = 0; i < ids.length; i++) {
+					ids[i] = this.compile(rules.get(i), owner);
+				}
+				this.children.set(id, ids);
+			}
+
+			return id;
+		}
+
+		private int nameOf(String name) {
+			int index = this.ruleNames.indexOf(name);
+			if (index < 0) {
+				index = this.ruleNames.size();
+				this.ruleNames.add(name);
+			}
+
+			return index;
+		}
+
+		private int[] terminators(ParsingRule right, String owner) {
+			List<Terminal> terms;
+			if (right instanceof Terminal) {
+				terms = new ArrayList<Terminal>();
+				terms.add(Terminal.class.cast(right));
+			} else {
+				Group group = (right instanceof Reference) ? this.grammar.getRule(Reference.class.cast(right).getRuleName()) : Group.class.cast(right);
+				terms = (group == null) ? null : group.getFirstNonOptTerminals(this.grammar);
+			}
+
+			if (terms == null || terms.isEmpty()) {
+				return EMPTY;
+			}
+
+			int[] ids = new int[terms.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = this.compile(terms.get(i), owner);
+			}
+
+			return ids;
+		}
+
+		void link(CompiledGrammar target) {
+			// Reference 대상 룰을 모두 컴파일 한다. (컴파일 중 노드가 추가될 수 있다.)
+			for (int i = 0; i < this.ruleList.size(); i++) {
+				ParsingRule rule = this.ruleList.get(i);
+				if (rule instanceof Reference) {
+					this.compileRule(Reference.class.cast(rule).getRuleName());
+				} else if (rule instanceof Group && Group.class.cast(rule).hasMinusOperation()) {
+					this.terminators(Group.class.cast(rule).get(1), this.owners.get(i));
+				}
+			}
+
+			int count = this.ruleList.size();
+			target.kinds = new int[count];
+			target.optionals = new boolean[count];
+			target.repeats = new boolean[count];
+			target.firstOnly = new boolean[count];
+			target.attValues = new boolean[count];
+			target.firstSets = new BitSet[count];
+			target.children = new int[count][];
+			target.refs = new int[count];
+			target.names = new int[count];
+			target.literals = new Literal[count];
+			target.codes = new char[count];
+			target.chars = new CharCode[count];
+			target.sets = new CharCodeSet[count];
+			target.slots = new int[count];
+			target.terminators = new int[count][];
+
+			for (int i = 0; i < count; i++) {
+				ParsingRule rule = this.ruleList.get(i);
+				String owner = this.owners.get(i);
+
+				target.optionals[i] = rule.isOptional();
+				target.repeats[i] = rule.isRepeat();
+				target.firstOnly[i] = ParsingGrammar.START_SYMBOL.equals(owner);
+				target.children[i] = this.children.get(i);
+				target.terminators[i] = EMPTY;
+				target.firstSets[i] = rule.getFirstSet();
+				target.slots[i] = (rule instanceof Terminal) ? Terminal.class.cast(rule).getMemoSlot() : -1;
+
+				if (rule instanceof Literal) {
+					target.kinds[i] = LITERAL;
+					target.literals[i] = Literal.class.cast(rule);
+				} else if (rule instanceof CharCode) {
+					target.kinds[i] = CHARCODE;
+					target.chars[i] = CharCode.class.cast(rule);
+					target.codes[i] = target.chars[i].getCode();
+				} else if (rule instanceof CharCodeSet) {
+					target.kinds[i] = CHARCODESET;
+					target.sets[i] = CharCodeSet.class.cast(rule);
+					target.attValues[i] = "attValue".equals(owner);
+				} else if (rule instanceof Reference) {
+					String name = Reference.class.cast(rule).getRuleName();
+					target.kinds[i] = REFERENCE;
+					target.refs[i] = this.compileRule(name);
+					target.names[i] = this.nameOf(name);
+				} else {
+					Group group = Group.class.cast(rule);
+					if (group.hasOrOperation()) {
+						target.kinds[i] = OR;
+					} else if (group.hasMinusOperation()) {
+						target.kinds[i] = MINUS;
+						target.terminators[i] = this.terminators(group.get(1), owner);
+					} else {
+						target.kinds[i] = SEQUENCE;
+					}
+				}
+			}
+
+			target.ruleNames = this.ruleNames.toArray(new String[this.ruleNames.size()]);
+			target.ruleIds = new int[target.ruleNames.length];
+			for (int i = 0; i < target.ruleIds.length; i++) {
+				target.ruleIds[i] = this.grammar.getRuleId(target.ruleNames[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.nhncorp.lucy.security.xss.markup.rule.Group.OPERATOR;
+import com.nhncorp.lucy.security.xss.markup.rule.ParsingRule.UNARY;
+
+/**
+ * 이 클래스는 룰 정의 파일(markup.rule)로부터 만든 {@link ParsingGrammar ParsingGrammar} 의 룰 그래프를
+ * 바이너리 스냅샷(markup.rule.bin)으로 저장하고 읽는다.
+ * <br/><br/>
+ * 스냅샷에는 룰 트리, 룰 id, 문자 집합, FIRST 집합, 스캔 기록 slot 이 포함되며, 빌드 시(process-classes) 다음과 같이 생성된다.
+ * <pre>
+ * 	java com.nhncorp.lucy.security.xss.markup.rule.GrammarSnapshot target/classes
+ * </pre>
+ * 스냅샷에는 룰 정의 파일의 checksum 이 기록되어 있어, 룰 정의 파일이 변경되면 스냅샷은 사용되지 않는다.
+ *
+ * @author Naver Labs
+ *
+ */
+public final class GrammarSnapshot {
+	static final String SNAPSHOT_FILE = "markup.rule.bin";
+
+	private static final String RULE_FILE = "markup.rule";
+	private static final int MAGIC = 0x4C585347;
+	private static final int VERSION = 1;
+
+	private static final int GROUP = 0;
+	private static final int REFERENCE = 1;
+	private static final int LITERAL = 2;
+	private static final int CHARCODE = 3;
+	private static final int CHARCODESET = 4;
+	private static final int SHARED = 5;
+
+	private GrammarSnapshot() {
+	}
+
+	/**
+	 * 룰 정의 파일을 파싱하여 스냅샷을 생성한다.
+	 *
+	 * @param args	스냅샷을 생성할 classpath 디렉토리. (기본값은 현재 디렉토리)
+	 * @throws IOException	스냅샷 파일 쓰기 실패 시.
+	 */
+	public static void main(String[] args) throws IOException {
+		String dir = (args != null && args.length > 0) ? args[0] : ".";
+		String path = GrammarSnapshot.class.getPackage().getName().replace('.', '/');
+		File file = new File(new File(dir, path), SNAPSHOT_FILE);
+		if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+			throw new IOException("Cannot create directory " + file.getParentFile());
+		}
+
+		OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			write(new ParsingGrammar(false), output);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * 스냅샷을 읽어 grammar 에 룰을 채운다.
+	 *
+	 * @return	스냅샷이 없거나, 룰 정의 파일과 맞지 않거나, 읽기에 실패하면 false.
+	 */
+	static boolean load(ParsingGrammar grammar) {
+		InputStream input = GrammarSnapshot.class.getResourceAsStream(SNAPSHOT_FILE);
+		if (input == null) {
+			return false;
+		}
+
+		try {
+			return read(grammar, input);
+		} catch (IOException ioe) {
+			return false;
+		} catch (RuntimeException re) {
+			return false;
+		} finally {
+			try {
+				input.close();
+			} catch (IOException ioe) {
+				// ignore
+			}
+		}
+	}
+
+	static void write(ParsingGrammar grammar, OutputStream output) throws IOException {
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(ruleChecksum());
+		out.writeInt(grammar.getMemoSlots());
+
+		Map<String, Integer> ruleIds = grammar.getRuleIds();
+		out.writeInt(ruleIds.size());
+		for (Map.Entry<String, Integer> entry : ruleIds.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue().intValue());
+		}
+
+		Map<ParsingRule, Integer> written = new IdentityHashMap<ParsingRule, Integer>();
+		Map<String, Group> rules = grammar.getRules();
+		out.writeInt(rules.size());
+		for (Map.Entry<String, Group> entry : rules.entrySet()) {
+			out.writeUTF(entry.getKey());
+			writeRule(out, entry.getValue(), written);
+		}
+
+		out.flush();
+	}
+
+	static boolean read(ParsingGrammar grammar, InputStream input) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != ruleChecksum()) {
+			return false;
+		}
+
+		grammar.setMemoSlots(in.readInt());
+
+		Map<String, Integer> ruleIds = grammar.getRuleIds();
+		for (int i = in.readInt(); i > 0; i--) {
+			String name = in.readUTF();
+			ruleIds.put(name, Integer.valueOf(in.readInt()));
+		}
+
+		List<ParsingRule> read = new ArrayList<ParsingRule>();
+		Map<String, Group> rules = grammar.getRules();
+		for (int i = in.readInt(); i > 0; i--) {
+			String name = in.readUTF();
+			rules.put(name, Group.class.cast(readRule(in, read)));
+		}
+
+		return true;
+	}
+
+	private static void writeRule(DataOutputStream out, ParsingRule rule, Map<ParsingRule, Integer> written) throws IOException {
+		Integer index = written.get(rule);
+		if (index != null) {
+			out.writeByte(SHARED);
+			out.writeInt(index.intValue());
+			return;
+		}
+
+		written.put(rule, Integer.valueOf(written.size()));
+
+		if (rule instanceof Group) {
+			Group group = Group.class.cast(rule);
+			out.writeByte(GROUP);
+			out.writeUTF(group.getRuleName());
+			out.writeInt(group.getRuleId());
+			out.writeByte((group.getOperator() == null) ? -1 : group.getOperator().ordinal());
+		} else if (rule instanceof Reference) {
+			Reference reference = Reference.class.cast(rule);
+			out.writeByte(REFERENCE);
+			out.writeUTF(reference.getRuleName());
+			out.writeInt(reference.getRuleId());
+		} else if (rule instanceof Literal) {
+			out.writeByte(LITERAL);
+			out.writeUTF(Literal.class.cast(rule).getLiteral());
+		} else if (rule instanceof CharCode) {
+			out.writeByte(CHARCODE);
+			out.writeChar(CharCode.class.cast(rule).getCode());
+		} else {
+			BitSet bits = new BitSet();
+			CharCodeSet.class.cast(rule).copyTo(bits);
+			out.writeByte(CHARCODESET);
+			writeBits(out, bits);
+		}
+
+		out.writeByte(rule.getUnary().ordinal());
+		writeBits(out, rule.getFirstSet());
+		if (rule instanceof Terminal) {
+			out.writeInt(Terminal.class.cast(rule).getMemoSlot());
+		} else if (rule instanceof Group) {
+			List<ParsingRule> children = Group.class.cast(rule).getAll();
+			out.writeInt(children.size());
+			for (ParsingRule child : children) {
+				writeRule(out, child, written);
+			}
+		}
+	}
+
+	private static ParsingRule readRule(DataInputStream in, List<ParsingRule> read) throws IOException {
+		int type = in.readByte();
+		if (type == SHARED) {
+			return read.get(in.readInt());
+		}
+
+		ParsingRule rule;
+		switch (type) {
+			case GROUP: {
+				String name = in.readUTF();
+				int id = in.readInt();
+				int op = in.readByte();
+				Group group = new Group((name.length() == 0) ? null : name, id);
+				group.setOperator((op < 0) ? null : OPERATOR.values()[op]);
+				rule = group;
+				break;
+			}
+			case REFERENCE: {
+				String name = in.readUTF();
+				rule = new Reference(name, in.readInt());
+				break;
+			}
+			case LITERAL:
+				rule = new Literal(in.readUTF());
+				break;
+			case CHARCODE:
+				rule = new CharCode(in.readChar());
+				break;
+			case CHARCODESET:
+				rule = new CharCodeSet(readBits(in));
+				break;
+			default:
+				throw new IOException("Unknown rule type " + type);
+		}
+
+		read.add(rule);
+		rule.setUnary(UNARY.values()[in.readByte()]);
+		rule.setFirstSet(readBits(in));
+		if (rule instanceof Terminal) {
+			Terminal.class.cast(rule).setMemoSlot(in.readInt());
+		} else if (rule instanceof Group) {
+			Group group = Group.class.cast(rule);
+			for (int i = in.readInt(); i > 0; i--) {
+				group.add(readRule(in, read));
+			}
+		}
+
+		return rule;
+	}
+
+	/**
+	 * BitSet 을 [시작, 끝) 범위 목록으로 기록한다.
+	 */
+	private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+		if (bits == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		int count = 0;
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(bits.nextClearBit(i))) {
+			count++;
+		}
+
+		out.writeInt(count);
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(bits.nextClearBit(i))) {
+			out.writeInt(i);
+			out.writeInt(bits.nextClearBit(i));
+		}
+	}
+
+	private static BitSet readBits(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+
+		BitSet bits = new BitSet();
+		for (int i = 0; i < count; i++) {
+			int from = in.readInt();
+			bits.set(from, in.readInt());
+		}
+
+		return bits;
+	}
+
+	/**
+	 * 룰 정의 파일의 CRC32 checksum.
+	 */
+	private static long ruleChecksum() throws IOException {
+		InputStream input = ParsingGrammar.class.getResourceAsStream(RULE_FILE);
+		if (input == null) {
+			return 0;
+		}
+
+		try {
+			CRC32 crc = new CRC32();
+			byte[] buffer = new byte[1024];
+			int length;
+			while ((length = input.read(buffer)) != -1) {
+				crc.update(buffer, 0, length);
+			}
+			return crc.getValue();
+		} finally {
+			input.close();
+		}
+	}
+}
@@ -41,6 +41,7 @@ class Group extends NonTerminal {
 	}
 
 	private String name;
+	private int id = Token.UNDEFINED;
 	private OPERATOR op;
 	private List<ParsingRule> rules;
 
@@ -49,8 +50,13 @@ class Group extends NonTerminal {
 	}
 
 	public Group(String name) {
+		this(name, Token.idOf(name));
+	}
+
+	public Group(String name, int id) {
 		this();
 		this.name = name;
+		this.id = id;
 	}
 
 	@Override
@@ -58,6 +64,11 @@ class Group extends NonTerminal {
 		return (this.name == null) ? "" : this.name;
 	}
 
+	@Override
+	public int getRuleId() {
+		return this.id;
+	}
+
 	public OPERATOR getOperator() {
 		return this.op;
 	}
@@ -123,14 +134,19 @@ class Group extends NonTerminal {
 
 		int start = input.pos();
 		do {
-			Token token = new Token(parent.getName());
+			if (!input.hasRemaining() || !this.canStartWith(input.getChar())) {
+				input.pos(start);
+				break;
+			}
+
+			Token token = ParseContext.newToken(input, parent.getName(), parent.getId());
 			if (this.sliceToken(token, input, grammar)) {
 				parent.addChild(token);
 
 				isTokenized = true;
 				start = input.pos();
 
-				if ("contents".equals(parent.getName())) {
+				if (parent.getId() == Token.CONTENTS) {
 					break;
 				}
 			} else {
@@ -149,7 +165,12 @@ class Group extends NonTerminal {
 		}
 
 		if (this.hasOrOperation()) {
+			char ch = input.getChar();
 			for (ParsingRule rule : this.getAll()) {
+				if (!rule.canStartWith(ch)) {
+					continue;
+				}
+
 				isTokenized = this.sliceTokenByRule(parent, rule, input, grammar);
 				if (isTokenized) {
 					break;
@@ -167,7 +188,8 @@ class Group extends NonTerminal {
 			}
 
 			if (pos >= input.pos()) {
-				CharArraySegment segment = input.subSegment(input.pos(), pos);
+				ParseContext context = input.context();
+				CharArraySegment segment = (context == null) ? input.subSegment(input.pos(), pos) : context.segment(input.getArray(), input.index(), pos - input.pos());
 				isTokenized = this.sliceTokenByRule(parent, left, segment, grammar);
 				input.pos(input.pos() + segment.pos());
 			} else {
@@ -22,10 +22,25 @@ package com.nhncorp.lucy.security.xss.markup.rule;
  *
  */
 class Literal extends Terminal {
+	private static final int SHIFT_TABLE_SIZE = 256;
+
 	private String literal;
+	private char[] chars;
+	private int[] shifts;
 
 	public Literal(String literal) {
 		this.literal = (literal == null) ? "" : literal;
+		this.chars = this.literal.toCharArray();
+
+		// Horspool 검색을 위한 skip table. 문자 하위 8bit 로 색인하며, 충돌 시 가장 작은 이동 거리를 유지한다.
+		int length = this.chars.length;
+		this.shifts = new int[SHIFT_TABLE_SIZE];
+		for (int i = 0; i < SHIFT_TABLE_SIZE; i++) {
+			this.shifts[i] = (length > 0) ? length : 1;
+		}
+		for (int i = 0; i < length - 1; i++) {
+			this.shifts[this.chars[i] & 0xFF] = length - 1 - i;
+		}
 	}
 
 	public String getLiteral() {
@@ -35,8 +50,9 @@ class Literal extends Terminal {
 	public boolean sliceToken(Token parent, CharArraySegment input) {
 		boolean isTokenized = false;
 		do {
-			if (input != null && input.hasRemaining() && input.startWith(this.literal)) {
-				parent.appendValue(input.slice(this.literal.length()));
+			if (input != null && input.hasRemaining() && input.startWith(this.chars)) {
+				parent.appendValue(input.getArray(), input.index(), this.chars.length);
+				input.move(this.chars.length);
 				isTokenized = true;
 			} else {
 				break;
@@ -47,6 +63,88 @@ class Literal extends Terminal {
 	}
 
 	public int matchPos(CharArraySegment input) {
-		return input.posOf(this.literal);
+		int from = input.index();
+		int limit = input.index(input.length());
+		ScanMemo memo = input.memo();
+
+		int found = (memo == null) ? ScanMemo.UNKNOWN : memo.found(this.getMemoSlot(), from, limit);
+		if (found == ScanMemo.UNKNOWN) {
+			found = this.indexOf(input.getArray(), from, limit);
+			if (memo != null) {
+				memo.putFound(this.getMemoSlot(), from, limit, found);
+			}
+		}
+
+		return (found < 0) ? -1 : found - input.index(0);
+	}
+
+	/**
+	 * 배열의 at 위치가 literal 로 시작하는지 확인한다. literal 은 limit 을 넘을 수 없다.
+	 */
+	boolean startsWith(char[] array, int at, int limit) {
+		int length = this.chars.length;
+		if (length == 0 || length > limit - at) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (array[at + i] != this.chars[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 배열의 [at, limit) 구간이 literal 보다 짧고, literal 의 앞부분과 같은지 확인한다.
+	 */
+	boolean isCutAt(char[] array, int at, int limit) {
+		int length = limit - at;
+		if (length >= this.chars.length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (array[at + i] != this.chars[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 배열의 [from, limit) 구간에서 literal 이 처음 나타나는 절대 위치를 Horspool 알고리즘으로 찾는다.
+	 *
+	 * @return	찾은 위치, 없으면 -1.
+	 */
+	int indexOf(char[] array, int from, int limit) {
+		int length = this.chars.length;
+		if (length == 0) {
+			return -1;
+		}
+
+		int last = length - 1;
+		char lastChar = this.chars[last];
+		int end = limit - length;
+		int i = from;
+		while (i <= end) {
+			char ch = array[i + last];
+			if (ch == lastChar) {
+				int j = last - 1;
+				while (j >= 0 && array[i + j] == this.chars[j]) {
+					j--;
+				}
+
+				if (j < 0) {
+					return i;
+				}
+			}
+
+			i += this.shifts[ch & 0xFF];
+		}
+
+		return -1;
 	}
 }
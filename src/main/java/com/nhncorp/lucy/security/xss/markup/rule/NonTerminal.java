@@ -26,6 +26,8 @@ import java.util.List;
 abstract class NonTerminal extends ParsingRule {
 	public abstract String getRuleName();
 
+	public abstract int getRuleId();
+
 	public abstract boolean sliceTokens(Token parent, CharArraySegment input, ParsingGrammar grammar);
 
 	public abstract int matchPos(CharArraySegment input, ParsingGrammar grammar);
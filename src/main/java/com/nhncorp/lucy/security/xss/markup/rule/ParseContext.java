@@ -0,0 +1,202 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+/**
+ * 이 클래스는 하나의 입력을 파싱하는 동안 사용하는 객체({@link Token Token}, {@link CharArraySegment CharArraySegment},
+ * 입력 버퍼, 스캔 결과 기록)를 재사용하기 위한 Context 이다.
+ * <br/><br/>
+ * Thread 별로 하나씩 유지되며 Thread 간에 공유되지 않는다. 사용법은 다음과 같다.
+ * <pre>
+ * ...
+ * 	ParseContext context = ParseContext.acquire();
+ * 	try {
+ * 		CharArraySegment input = context.input(dirty);
+ * 		Token token;
+ * 		while ((token = grammar.nextToken(input)) != null) {
+ * 			...
+ * 		}
+ * 	} finally {
+ * 		context.release();
+ * 	}
+ * ...
+ * </pre>
+ * Context 가 연결된 입력에서 리턴된 토큰은 다음 {@code nextToken} 호출 시 재사용 되므로, 토큰 값은 다음 호출 전에 사용해야 한다.
+ * 파싱 중에 같은 Thread 에서 다시 파싱을 수행하면 (예: Listener 내부에서 필터 호출) 새로운 Context 가 생성된다.
+ *
+ * @author Naver Labs
+ *
+ */
+public final class ParseContext {
+	/**
+	 * 재사용을 위해 유지하는 최대 크기. 이보다 큰 버퍼, pool 은 release 시 버린다.
+	 * Context 는 Thread 별로 유지되므로, 요청 Thread 가 많은 환경에서 큰 입력(메일 본문 등)이 Thread 마다 남지 않도록 작게 잡는다.
+	 */
+	static final int MAX_RETAINED_CHARS = 1 << 16;
+	private static final int MAX_RETAINED_TOKENS = 1 << 10;
+
+	private static final ThreadLocal<ParseContext> CONTEXTS = new ThreadLocal<ParseContext>() {
+		@Override
+		protected ParseContext initialValue() {
+			return new ParseContext();
+		}
+	};
+
+	private boolean inUse;
+	private char[] buffer;
+	private ScanMemo memo;
+	private Token[] tokens = new Token[64];
+	private int tokenCount;
+	private CharArraySegment[] segments = new CharArraySegment[4];
+	private int segmentCount;
+	CompiledGrammar.Scanner scanner;
+
+	private ParseContext() {
+	}
+
+	/**
+	 * 이 메소드는 현재 Thread 의 Context 를 리턴한다. 이미 사용 중이면 새로운 Context 를 리턴한다.
+	 * 사용이 끝나면 반드시 {@link #release()} 를 호출해야 한다.
+	 *
+	 * @return	{@code ParseContext}.
+	 */
+	public static ParseContext acquire() {
+		ParseContext context = CONTEXTS.get();
+		if (context.inUse) {
+			context = new ParseContext();
+		}
+
+		context.inUse = true;
+		return context;
+	}
+
+	/**
+	 * 이 메소드는 Context 사용을 끝낸다. 입력에 대한 참조를 제거하고, 너무 큰 버퍼는 버린다.
+	 */
+	public void release() {
+		for (int i = 0; i < this.tokens.length && this.tokens[i] != null; i++) {
+			this.tokens[i].clear();
+		}
+
+		for (int i = 0; i < this.segments.length && this.segments[i] != null; i++) {
+			this.segments[i] = null;
+		}
+
+		if (this.scanner != null) {
+			this.scanner.reset(null, 0, null);
+		}
+
+		if (this.tokens.length > MAX_RETAINED_TOKENS) {
+			this.tokens = new Token[64];
+		}
+
+		if (this.buffer != null && this.buffer.length > MAX_RETAINED_CHARS) {
+			this.buffer = null;
+		}
+
+		this.tokenCount = 0;
+		this.segmentCount = 0;
+		this.inUse = false;
+	}
+
+	/**
+	 * 이 메소드는 Context 가 연결된 입력을 리턴한다. 문자열은 재사용하는 버퍼에 복사된다.
+	 *
+	 * @param input	파싱 대상 문자열. (길이가 0 보다 커야 한다.)
+	 * @return	{@link CharArraySegment CharArraySegment}.
+	 */
+	public CharArraySegment input(String input) {
+		int length = input.length();
+		if (this.buffer == null || this.buffer.length < length) {
+			this.buffer = new char[length];
+		}
+
+		input.getChars(0, length, this.buffer, 0);
+		return this.input(this.buffer, 0, length);
+	}
+
+	/**
+	 * 이 메소드는 Context 가 연결된 입력을 리턴한다. 배열은 복사되지 않는다.
+	 *
+	 * @param array	파싱 대상 배열.
+	 * @param offset	시작 위치.
+	 * @param count	길이.
+	 * @return	{@link CharArraySegment CharArraySegment}.
+	 */
+	public CharArraySegment input(char[] array, int offset, int count) {
+		if (this.memo == null) {
+			this.memo = ParsingGrammar.getInstance().newScanMemo();
+		} else {
+			this.memo.clear();
+		}
+
+		return new CharArraySegment(array, offset, count).memo(this.memo).context(this);
+	}
+
+	/**
+	 * 이전 토큰에서 사용한 객체들을 재사용 가능한 상태로 돌린다. 매 토큰을 잘라내기 전에 호출된다.
+	 */
+	void recycle() {
+		this.tokenCount = 0;
+		this.segmentCount = 0;
+	}
+
+	Token token(String name, int id) {
+		if (this.tokenCount == this.tokens.length) {
+			Token[] tmp = new Token[this.tokens.length << 1];
+			System.arraycopy(this.tokens, 0, tmp, 0, this.tokens.length);
+			this.tokens = tmp;
+		}
+
+		Token token = this.tokens[this.tokenCount];
+		if (token == null) {
+			token = new Token(name, id);
+			this.tokens[this.tokenCount] = token;
+		} else {
+			token.reset(name, id);
+		}
+
+		this.tokenCount++;
+		return token;
+	}
+
+	CharArraySegment segment(char[] array, int offset, int count) {
+		if (this.segmentCount == this.segments.length) {
+			CharArraySegment[] tmp = new CharArraySegment[this.segments.length << 1];
+			System.arraycopy(this.segments, 0, tmp, 0, this.segments.length);
+			this.segments = tmp;
+		}
+
+		CharArraySegment segment = this.segments[this.segmentCount];
+		if (segment == null) {
+			segment = new CharArraySegment(array, offset, count).memo(this.memo).context(this);
+			this.segments[this.segmentCount] = segment;
+		} else {
+			segment.reset(array, offset, count);
+		}
+
+		this.segmentCount++;
+		return segment;
+	}
+
+	/**
+	 * 입력에 Context 가 연결되어 있으면 재사용 토큰을, 아니면 새 토큰을 리턴한다.
+	 */
+	static Token newToken(CharArraySegment input, String name, int id) {
+		ParseContext context = input.context();
+		return (context == null) ? new Token(name, id) : context.token(name, id);
+	}
+}
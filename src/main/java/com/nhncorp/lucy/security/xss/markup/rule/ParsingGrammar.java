@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,20 +31,50 @@ import com.nhncorp.lucy.security.xss.markup.rule.ParsingRule.UNARY;
  * 이 클래스는 파싱 룰를 내부적으로 유지 하고 있으며, 이러한 파싱 룰을 기반으로
  * 특정 Input String 에 대한 {@link #tokenize(String) tokenize(String)} 을 수행한다. <br/>
  * Singleton 으로 구현이 되었으며, 파싱 룰정의는 XML specification 에서 정의한 EBNF Notation 에 근거 하였다.
+ * <br/><br/>
+ * 빌드 시 생성한 {@link GrammarSnapshot 스냅샷}이 있으면 룰 정의 파일을 파싱하지 않고 스냅샷을 읽는다.
+ * 스냅샷이 없거나 룰 정의 파일과 맞지 않으면 룰 정의 파일을 파싱한다.
+ * System property {@code lucy.xss.grammar.snapshot} 를 {@code false} 로 지정하면 스냅샷을 사용하지 않는다.
  *
  * @author Naver Labs
  *
  */
 public final class ParsingGrammar {
 	private static final String RULE_FILE = "markup.rule";
-	private static final String START_SYMBOL = "contents";
+	static final String START_SYMBOL = "contents";
 	private static final String DEFINE = "::=";
+	private static final String SNAPSHOT_PROPERTY = "lucy.xss.grammar.snapshot";
 
 	private static ParsingGrammar instance = new ParsingGrammar();
 	private Map<String, Group> rules;
+	private Map<String, Integer> ruleIds;
+	private int memoSlots;
 
 	private ParsingGrammar() {
+		this(!"false".equalsIgnoreCase(System.getProperty(SNAPSHOT_PROPERTY)));
+	}
+
+	/**
+	 * @param useSnapshot	false 이면 스냅샷을 사용하지 않고 룰 정의 파일을 파싱한다.
+	 */
+	ParsingGrammar(boolean useSnapshot) {
 		this.rules = new HashMap<String, Group>();
+		this.ruleIds = new HashMap<String, Integer>();
+
+		if (useSnapshot && GrammarSnapshot.load(this)) {
+			return;
+		}
+
+		this.rules.clear();
+		this.ruleIds.clear();
+		this.memoSlots = 0;
+		this.readRules();
+	}
+
+	private void readRules() {
+		for (int i = 0; i < Token.NAMES.length; i++) {
+			this.ruleIds.put(Token.NAMES[i], Integer.valueOf(i));
+		}
 
 		BufferedReader reader = null;
 		try {
@@ -72,6 +103,11 @@ public final class ParsingGrammar {
 			if (buffer != null) {
 				this.readNotation(buffer.toString());
 			}
+
+			for (Map.Entry<String, Group> entry : this.rules.entrySet()) {
+				this.buildFirstSet(entry.getValue(), entry.getKey());
+				this.assignMemoSlots(entry.getValue());
+			}
 		} catch (IOException ioe) {
 			// ignore
 		} finally {
@@ -98,6 +134,35 @@ public final class ParsingGrammar {
 		return this.rules.get(ruleName);
 	}
 
+	Map<String, Group> getRules() {
+		return this.rules;
+	}
+
+	Map<String, Integer> getRuleIds() {
+		return this.ruleIds;
+	}
+
+	int getMemoSlots() {
+		return this.memoSlots;
+	}
+
+	void setMemoSlots(int memoSlots) {
+		this.memoSlots = memoSlots;
+	}
+
+	/**
+	 * 룰 이름에 해당하는 id 를 리턴한다. 처음 보는 이름이면 다음 번호를 부여한다.
+	 */
+	int getRuleId(String ruleName) {
+		Integer id = this.ruleIds.get(ruleName);
+		if (id == null) {
+			id = Integer.valueOf(this.ruleIds.size());
+			this.ruleIds.put(ruleName, id);
+		}
+
+		return id.intValue();
+	}
+
 	/**
 	 * 이 메소드는 특정 Input String 에 대한 Tokenizing 을 수행한다.
 	 *
@@ -109,10 +174,10 @@ public final class ParsingGrammar {
 			return null;
 		}
 
-		NonTerminal start = instance.getRule(START_SYMBOL);
+		NonTerminal start = this.getRule(START_SYMBOL);
 
-		Token token = new Token(start.getRuleName());
-		if (!start.sliceTokens(token, new CharArraySegment(input), instance)) {
+		Token token = new Token(start.getRuleName(), start.getRuleId());
+		if (!start.sliceTokens(token, new CharArraySegment(input).memo(this.newScanMemo()), this)) {
 			return null;
 		}
 
@@ -124,13 +189,41 @@ public final class ParsingGrammar {
 			return null;
 		}
 
-		NonTerminal start = instance.getRule(START_SYMBOL);
+		NonTerminal start = this.getRule(START_SYMBOL);
+
+		if (input.memo() == null) {
+			input.memo(this.newScanMemo());
+		}
+
+		if (input.context() != null) {
+			input.context().recycle();
+		}
 
-		Token startToken = new Token(start.getRuleName());
-		Token token = start.nextToken(startToken, input, instance);
+		Token startToken = ParseContext.newToken(input, start.getRuleName(), start.getRuleId());
+		Token token = start.nextToken(startToken, input, this);
 		return token;
 	}
 
+	/**
+	 * 하나의 입력을 파싱하는 동안 사용할 스캔 결과 기록을 생성한다.
+	 */
+	ScanMemo newScanMemo() {
+		return new ScanMemo(this.memoSlots);
+	}
+
+	private void assignMemoSlots(ParsingRule rule) {
+		if (rule instanceof Terminal) {
+			Terminal terminal = Terminal.class.cast(rule);
+			if (terminal.getMemoSlot() < 0) {
+				terminal.setMemoSlot(this.memoSlots++);
+			}
+		} else if (rule instanceof Group) {
+			for (ParsingRule child : Group.class.cast(rule).getAll()) {
+				this.assignMemoSlots(child);
+			}
+		}
+	}
+
 	private void readNotation(String notation) {
 		if (!notation.contains(DEFINE)) {
 			return;
@@ -139,11 +232,74 @@ public final class ParsingGrammar {
 		String[] pair = notation.split(DEFINE);
 		String name = pair[0].trim();
 		String exp = pair[1].trim();
-		Group group = new Group(name);
+		Group group = new Group(name, this.getRuleId(name));
 		this.builRules(group, new CharArraySegment(exp.toCharArray()));
 		this.rules.put(name, group);
 	}
 
+	/**
+	 * 룰이 첫 번째로 소비할 수 있는 문자들의 집합(FIRST)을 계산한다.
+	 * 매칭에 성공한 룰은 항상 한 문자 이상을 소비하므로, 현재 문자가 FIRST 에 없는 룰은 시도할 필요가 없다.
+	 *
+	 * @param rule	대상 룰.
+	 * @param owner	룰이 정의된 이름. (attValue 내의 CharCodeSet 은 '<' 를 추가로 허용한다.)
+	 * @return	FIRST 집합.
+	 */
+	private BitSet buildFirstSet(ParsingRule rule, String owner) {
+		BitSet first = rule.getFirstSet();
+		if (first != null) {
+			return first;
+		}
+
+		// 순환 참조에 대비하여 계산 중에는 모든 문자를 허용한다.
+		first = new BitSet();
+		first.set(0, 0x10000);
+		rule.setFirstSet(first);
+
+		BitSet result = new BitSet();
+		if (rule instanceof Literal) {
+			String literal = Literal.class.cast(rule).getLiteral();
+			if (literal.length() > 0) {
+				result.set(literal.charAt(0));
+			}
+		} else if (rule instanceof CharCode) {
+			result.set(CharCode.class.cast(rule).getCode());
+		} else if (rule instanceof CharCodeSet) {
+			CharCodeSet.class.cast(rule).copyTo(result);
+			if ("attValue".equals(owner)) {
+				result.set('<');
+			}
+		} else if (rule instanceof Reference) {
+			String ref = Reference.class.cast(rule).getRuleName();
+			Group group = this.getRule(ref);
+			if (group == null) {
+				return first;
+			}
+			result.or(this.buildFirstSet(group, ref));
+		} else {
+			Group group = Group.class.cast(rule);
+			if (group.hasMinusOperation()) {
+				result.or(this.buildFirstSet(group.get(0), owner));
+				this.buildFirstSet(group.get(1), owner);
+			} else {
+				boolean reachable = true;
+				for (ParsingRule child : group.getAll()) {
+					BitSet tmp = this.buildFirstSet(child, owner);
+					if (reachable) {
+						result.or(tmp);
+					}
+
+					if (!group.hasOrOperation() && !child.isOptional()) {
+						reachable = false;
+					}
+				}
+			}
+		}
+
+		rule.setFirstSet(result);
+		return result;
+	}
+
 	private void builRules(Group parent, CharArraySegment input) {
 		RuleType type;
 		CharArraySegment segment;
@@ -252,7 +408,8 @@ public final class ParsingGrammar {
 					break;
 				}
 				case REFERENCE: {
-					Reference ref = new Reference(segment.toString());
+					String name = segment.toString();
+					Reference ref = new Reference(name, this.getRuleId(name));
 					tmp.add(ref);
 					preRule = ref;
 					break;
@@ -15,6 +15,8 @@
  */	
 package com.nhncorp.lucy.security.xss.markup.rule;
 
+import java.util.BitSet;
+
 /**
  * 이 클래스는 패키지 외부에서 참조 되지 않는다.
  * @author Naver Labs
@@ -37,6 +39,7 @@ abstract class ParsingRule {
 	}
 
 	protected UNARY unary = UNARY.ONE;
+	private BitSet firstSet;
 
 	public UNARY getUnary() {
 		return this.unary;
@@ -61,4 +64,20 @@ abstract class ParsingRule {
 			return false;
 		}
 	}
+
+	BitSet getFirstSet() {
+		return this.firstSet;
+	}
+
+	void setFirstSet(BitSet firstSet) {
+		this.firstSet = firstSet;
+	}
+
+	/**
+	 * 이 룰이 매칭될 때 첫 번째로 소비할 수 있는 문자인지 확인한다.
+	 * FIRST 집합이 계산되지 않은 경우는 항상 true 를 리턴한다.
+	 */
+	boolean canStartWith(char ch) {
+		return this.firstSet == null || this.firstSet.get(ch);
+	}
 }
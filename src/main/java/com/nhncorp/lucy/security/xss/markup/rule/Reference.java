@@ -25,9 +25,15 @@ import java.util.List;
  */
 class Reference extends NonTerminal {
 	private String ref;
+	private int refId;
 
 	public Reference(String ref) {
+		this(ref, Token.idOf(ref));
+	}
+
+	public Reference(String ref, int refId) {
 		this.ref = ref;
+		this.refId = refId;
 	}
 
 	@Override
@@ -35,19 +41,29 @@ class Reference extends NonTerminal {
 		return this.ref;
 	}
 
+	@Override
+	public int getRuleId() {
+		return this.refId;
+	}
+
 	public boolean sliceTokens(Token parent, CharArraySegment input, ParsingGrammar grammar) {
 		boolean isTokenized = false;
 
 		Group group = grammar.getRule(this.ref);
 		int start = input.pos();
 		do {
-			Token token = new Token(this.ref);
+			if (!input.hasRemaining() || !this.canStartWith(input.getChar())) {
+				input.pos(start);
+				break;
+			}
+
+			Token token = ParseContext.newToken(input, this.ref, this.refId);
 			if (group.sliceToken(token, input, grammar)) {
 				parent.addChild(token);
 				isTokenized = true;
 				start = input.pos();
 
-				if ("contents".equals(parent.getName())) {
+				if (parent.getId() == Token.CONTENTS) {
 					break;
 				}
 			} else {
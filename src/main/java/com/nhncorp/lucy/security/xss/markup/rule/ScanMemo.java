@@ -0,0 +1,139 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import java.util.Arrays;
+
+/**
+ * 이 클래스는 하나의 입력을 파싱하는 동안 {@link Terminal Terminal} 별 마지막 스캔 결과를 기억한다.
+ * 이 클래스는 패키지 외부에서 참조 되지 않는다.
+ * <br/><br/>
+ * 닫히지 않은 {@code <!--}, {@code <!DOCTYPE} 등이 반복되면 토큰마다 입력 끝까지 스캔하게 되어 전체 파싱 시간이
+ * 입력 길이의 제곱에 비례하게 된다. 스캔 결과는 입력 위치에만 의존하므로, 이전 결과로 답을 알 수 있는 경우 다시 스캔하지 않는다.
+ * <ul>
+ * <li>terminator 검색 : [from, limit) 에서 처음 찾은 위치가 found 이면, from 이후 found 이전의 위치에서 시작한 검색 결과도 found 이다.</li>
+ * <li>반복 매칭(run) : from 에서 시작한 반복 매칭이 end 에서 끝났다면, [from, end] 의 위치에서 시작한 반복 매칭도 end 에서 끝난다.</li>
+ * </ul>
+ * 두 기록은 따로 보관되므로, 같은 {@link Terminal Terminal} 이 종결자와 반복 매칭에 모두 쓰여도 서로 덮어쓰지 않는다.
+ * 위치는 모두 배열의 절대 위치(index)이다.
+ *
+ * @author Naver Labs
+ *
+ */
+final class ScanMemo {
+	static final int UNKNOWN = -2;
+
+	/**
+	 * slot 별 기록. [0, size) 는 terminator 검색, [size, 2 * size) 는 반복 매칭 기록이다.
+	 */
+	private int[] starts;
+	private int[] limits;
+	private int[] results;
+	private int size;
+
+	/**
+	 * 기록이 없어 새로 스캔한 문자 수의 합.
+	 */
+	private long scanned;
+
+	ScanMemo(int size) {
+		this.size = size;
+		this.starts = new int[size << 1];
+		this.limits = new int[size << 1];
+		this.results = new int[size << 1];
+		Arrays.fill(this.starts, -1);
+	}
+
+	/**
+	 * 다른 입력을 파싱하기 위해 기록을 모두 지운다.
+	 */
+	void clear() {
+		Arrays.fill(this.starts, -1);
+		this.scanned = 0;
+	}
+
+	/**
+	 * 이 메소드는 마지막 {@link #clear()} 이후 기록이 없어 새로 스캔한 문자 수의 합을 리턴한다.
+	 * 스캔이 입력 길이에 비례하는지 확인하는 데 사용한다.
+	 */
+	long getScanned() {
+		return this.scanned;
+	}
+
+	/**
+	 * 이전 terminator 검색 결과로 from 위치에서의 검색 결과를 알 수 있으면 리턴한다.
+	 *
+	 * @return	찾은 위치, 없으면 -1, 알 수 없으면 {@link #UNKNOWN}.
+	 */
+	int found(int slot, int from, int limit) {
+		if (slot < 0 || slot >= this.size || !this.covers(slot, from, limit)) {
+			return UNKNOWN;
+		}
+
+		int found = this.results[slot];
+		return (found < 0 || from <= found) ? found : UNKNOWN;
+	}
+
+	/**
+	 * 이전 반복 매칭 결과로 from 위치에서 시작한 반복 매칭이 끝나는 위치를 알 수 있으면 리턴한다.
+	 *
+	 * @return	끝 위치, 알 수 없으면 {@link #UNKNOWN}.
+	 */
+	int runEnd(int slot, int from, int limit) {
+		if (slot < 0 || slot >= this.size || !this.covers(slot + this.size, from, limit)) {
+			return UNKNOWN;
+		}
+
+		int end = this.results[slot + this.size];
+		return (from <= end) ? end : UNKNOWN;
+	}
+
+	/**
+	 * terminator 검색 결과를 기록한다.
+	 *
+	 * @param found	찾은 위치, 없으면 -1.
+	 */
+	void putFound(int slot, int from, int limit, int found) {
+		if (slot < 0 || slot >= this.size) {
+			return;
+		}
+
+		this.put(slot, from, limit, found);
+		this.scanned += ((found < 0) ? limit : found) - from;
+	}
+
+	/**
+	 * 반복 매칭이 끝난 위치를 기록한다.
+	 */
+	void putRunEnd(int slot, int from, int limit, int end) {
+		if (slot < 0 || slot >= this.size) {
+			return;
+		}
+
+		this.put(slot + this.size, from, limit, end);
+		this.scanned += end - from;
+	}
+
+	private void put(int index, int from, int limit, int result) {
+		this.starts[index] = from;
+		this.limits[index] = limit;
+		this.results[index] = result;
+	}
+
+	private boolean covers(int index, int from, int limit) {
+		return this.starts[index] >= 0 && this.limits[index] == limit && this.starts[index] <= from;
+	}
+}
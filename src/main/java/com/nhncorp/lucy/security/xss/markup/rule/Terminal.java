@@ -22,6 +22,16 @@ package com.nhncorp.lucy.security.xss.markup.rule;
  *
  */
 abstract class Terminal extends ParsingRule {
+	private int memoSlot = -1;
+
+	int getMemoSlot() {
+		return this.memoSlot;
+	}
+
+	void setMemoSlot(int memoSlot) {
+		this.memoSlot = memoSlot;
+	}
+
 	public abstract boolean sliceToken(Token parent, CharArraySegment input);
 
 	public abstract int matchPos(CharArraySegment input);
@@ -16,6 +16,7 @@
 package com.nhncorp.lucy.security.xss.markup.rule;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -26,12 +27,58 @@ import java.util.List;
  *
  */
 public final class Token {
+	/**
+	 * 룰 정의 파일(markup.rule)에 정의된 토큰 이름 별 id. 문자열 비교 없이 토큰 종류를 구분할 때 사용한다.
+	 * 그 외의 이름은 {@link ParsingGrammar ParsingGrammar} 로딩 시 이후의 번호가 차례로 부여된다.
+	 */
+	public static final int UNDEFINED = -1;
+	public static final int CONTENTS = 0;
+	public static final int IE_HACK_START_TAG = 1;
+	public static final int IE_HACK_END_TAG = 2;
+	public static final int DESCRIPTION = 3;
+	public static final int COMMENT = 4;
+	public static final int START_TAG = 5;
+	public static final int CLOSE_START_END = 6;
+	public static final int END_TAG = 7;
+	public static final int TAG_NAME = 8;
+	public static final int ATTRIBUTE = 9;
+	public static final int ATT_NAME = 10;
+	public static final int ATT_VALUE = 11;
+	public static final int TEXT = 12;
+
+	static final String[] NAMES = {"contents", "iEHExStartTag", "iEHExEndTag", "description", "comment", "startTag", "closeStartEnd", "endTag", "tagName", "attribute", "attName", "attValue", "text"};
+
 	private String name;
+	private int id;
 	private CharArraySegment value;
 	private ArrayList<Token> children;
+	private Token[] firstChildren;
+	private CharArraySegment spareValue;
+	private ArrayList<Token> spareChildren;
 
 	Token(String name) {
+		this(name, idOf(name));
+	}
+
+	Token(String name, int id) {
 		this.name = name;
+		this.id = id;
+	}
+
+	/**
+	 * 토큰 이름에 해당하는 id 를 리턴한다.
+	 *
+	 * @param name	토큰 이름.
+	 * @return	토큰 id, 정의되지 않은 이름이면 {@link #UNDEFINED}.
+	 */
+	static int idOf(String name) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return UNDEFINED;
 	}
 
 	/**
@@ -43,19 +90,67 @@ public final class Token {
 		return (this.name == null) ? "" : this.name;
 	}
 
+	/**
+	 * 이 메소드는 토큰 id 를 리턴한다.
+	 *
+	 * @return	토큰 id. ({@link #START_TAG}, {@link #TAG_NAME} 등)
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * {@link ParseContext ParseContext} 에서 재사용하기 위해 토큰을 비운다. 값과 하위 토큰 목록 객체는 다음 사용을 위해 남겨둔다.
+	 */
+	void reset(String name, int id) {
+		this.name = name;
+		this.id = id;
+
+		if (this.value != null) {
+			this.spareValue = this.value;
+			this.value = null;
+		}
+
+		if (this.children != null) {
+			this.children.clear();
+			this.spareChildren = this.children;
+			this.children = null;
+		}
+
+		if (this.firstChildren != null) {
+			Arrays.fill(this.firstChildren, null);
+		}
+	}
+
+	/**
+	 * 입력 배열에 대한 참조를 모두 제거한다.
+	 */
+	void clear() {
+		this.reset(null, UNDEFINED);
+		this.spareValue = null;
+	}
+
 	void setValue(CharArraySegment value) {
 		this.value = value;
 		if (value == null && this.children != null) {
 			this.children.clear();
 			this.children = null;
+			this.firstChildren = null;
 		}
 	}
 
 	void appendValue(CharArraySegment value) {
-		if (this.value == null) {
-			this.value = new CharArraySegment(value.getArray(), value.index(0), value.length());
+		this.appendValue(value.getArray(), value.index(0), value.length());
+	}
+
+	void appendValue(char[] array, int offset, int count) {
+		if (this.value != null) {
+			this.value.concate(array, offset, count);
+		} else if (this.spareValue != null) {
+			this.value = this.spareValue.reset(array, offset, count);
+			this.spareValue = null;
 		} else {
-			this.value.concate(value);
+			this.value = new CharArraySegment(array, offset, count);
 		}
 	}
 
@@ -82,13 +177,31 @@ public final class Token {
 
 		this.appendValue(child.value);
 		if (this.children == null) {
-			this.children = new ArrayList<Token>();
+			this.children = (this.spareChildren == null) ? new ArrayList<Token>() : this.spareChildren;
+			this.spareChildren = null;
 		}
 
-		if (!this.getName().equals(child.getName())) {
-			this.children.add(child);
+		if (this.id != child.id || (this.id == UNDEFINED && !this.getName().equals(child.getName()))) {
+			this.add(child);
 		} else if (child.getChildCount() > 0) {
-			this.children.addAll(child.getChildren());
+			for (Token token : child.getChildren()) {
+				this.add(token);
+			}
+		}
+	}
+
+	private void add(Token child) {
+		this.children.add(child);
+
+		int childId = child.id;
+		if (childId >= 0 && childId < NAMES.length) {
+			if (this.firstChildren == null) {
+				this.firstChildren = new Token[NAMES.length];
+			}
+
+			if (this.firstChildren[childId] == null) {
+				this.firstChildren[childId] = child;
+			}
 		}
 	}
 
@@ -124,6 +237,11 @@ public final class Token {
 			return null;
 		}
 
+		int childId = idOf(name);
+		if (childId != UNDEFINED) {
+			return this.getChildById(childId);
+		}
+
 		Token child = null;
 		for (Token token : this.children) {
 			if (token.getName().equals(name)) {
@@ -135,6 +253,20 @@ public final class Token {
 		return child;
 	}
 
+	/**
+	 * 이 메소드는 특정 토큰 id 에 해당하는 첫 번째 하위 토큰을 리턴한다.
+	 *
+	 * @param id	하위 토큰 id.
+	 * @return	특정 토큰 id 에 해당하는 첫 번째 하위 토큰.
+	 */
+	public Token getChildById(int id) {
+		if (this.firstChildren == null || id < 0 || id >= this.firstChildren.length) {
+			return null;
+		}
+
+		return this.firstChildren[id];
+	}
+
 	/**
 	 * 이 메소드는 모든 하위 토큰들을 리턴한다.
 	 *
@@ -166,6 +298,27 @@ public final class Token {
 		return list;
 	}
 
+	/**
+	 * 이 메소드는 특정 토큰 id 에 해당하는 하위 토큰들을 리턴한다.
+	 *
+	 * @param id	하위 토큰 id.
+	 * @return	특정 토큰 id 에 해당하는 하위 토큰들이 포함된 {@code List}.
+	 */
+	public List<Token> getChildrenById(int id) {
+		if (this.getChildById(id) == null) {
+			return null;
+		}
+
+		ArrayList<Token> list = new ArrayList<Token>();
+		for (Token token : this.children) {
+			if (token.id == id) {
+				list.add(token);
+			}
+		}
+
+		return list;
+	}
+
 	/**
 	 * 이 메소드는 모든 하위 토큰들의 갯수를 리턴한다.
 	 *
@@ -0,0 +1,175 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 이 클래스는 {@code Reader} 로부터 고정 크기 버퍼 단위로 입력을 읽으며 {@link CompiledGrammar CompiledGrammar} 로 토큰을 잘라낸다.
+ * <br/><br/>
+ * 전체 입력을 하나의 {@code char[]} 로 만들지 않으므로, 사용하는 메모리는 버퍼 크기와 가장 긴 토큰의 길이로 제한된다.
+ * 토큰이 버퍼 끝에 걸치면 남은 문자를 버퍼 앞으로 옮기고 입력을 더 읽은 뒤 그 토큰부터 다시 Tokenizing 한다.
+ * 버퍼 하나를 넘는 토큰은 최대 토큰 크기까지 버퍼를 늘려서 읽는다.
+ * 리턴되는 토큰은 전체 입력을 한번에 Tokenizing 한 결과와 동일하다.
+ * <br/><br/>
+ * 단, 토큰이 최대 토큰 크기를 넘으면 (예: 닫히지 않은 주석, 태그) 버퍼의 끝을 입력의 끝으로 보고 토큰을 잘라낸 뒤,
+ * 나머지는 다음 토큰으로 이어서 Tokenizing 한다. 이 경우 결과는 전체 입력을 Tokenizing 한 결과와 다를 수 있다. 사용법은 다음과 같다.
+ * <pre>
+ * ...
+ * 	ParseContext context = ParseContext.acquire();
+ * 	try {
+ * 		TokenReader tokens = new TokenReader(reader, context);
+ * 		Token token;
+ * 		while ((token = tokens.nextToken()) != null) {
+ * 			...
+ * 		}
+ * 	} finally {
+ * 		context.release();
+ * 	}
+ * ...
+ * </pre>
+ * 리턴된 토큰은 다음 {@link #nextToken()} 호출 시 재사용 되므로, 토큰 값은 다음 호출 전에 사용해야 한다.
+ * {@code Reader} 는 닫지 않는다.
+ *
+ * @author Naver Labs
+ *
+ */
+public final class TokenReader {
+	/**
+	 * 기본 버퍼 크기.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * 기본 최대 토큰 크기. (문자 수)
+	 */
+	public static final int DEFAULT_MAX_TOKEN_SIZE = 1 << 22;
+
+	private Reader reader;
+	private ParseContext context;
+	private int maxTokenSize;
+	private char[] buffer;
+	private int count;
+	private boolean endOfInput;
+	private boolean truncated;
+	private CharArraySegment input;
+
+	/**
+	 * @param reader	입력.
+	 * @param context	토큰 객체를 재사용할 {@link ParseContext ParseContext}.
+	 */
+	public TokenReader(Reader reader, ParseContext context) {
+		this(reader, context, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_TOKEN_SIZE);
+	}
+
+	/**
+	 * @param reader	입력.
+	 * @param context	토큰 객체를 재사용할 {@link ParseContext ParseContext}.
+	 * @param bufferSize	버퍼 크기.
+	 */
+	public TokenReader(Reader reader, ParseContext context, int bufferSize) {
+		this(reader, context, bufferSize, DEFAULT_MAX_TOKEN_SIZE);
+	}
+
+	/**
+	 * @param reader	입력.
+	 * @param context	토큰 객체를 재사용할 {@link ParseContext ParseContext}.
+	 * @param bufferSize	버퍼 크기.
+	 * @param maxTokenSize	토큰 하나를 읽기 위해 버퍼를 늘릴 수 있는 최대 크기. (문자 수)
+	 */
+	public TokenReader(Reader reader, ParseContext context, int bufferSize, int maxTokenSize) {
+		if (reader == null || context == null) {
+			throw new IllegalArgumentException("reader and context must not be null.");
+		}
+
+		if (bufferSize <= 0 || maxTokenSize <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal buffer size: %d, max token size: %d", bufferSize, maxTokenSize));
+		}
+
+		this.reader = reader;
+		this.context = context;
+		this.maxTokenSize = maxTokenSize;
+		this.buffer = new char[Math.min(bufferSize, maxTokenSize)];
+	}
+
+	/**
+	 * 이 메소드는 다음 토큰을 리턴한다.
+	 *
+	 * @return	{@link Token Token} 객체, 더 이상 토큰이 없으면 null.
+	 * @throws IOException	{@code Reader} 에서 I/O error 발생 시.
+	 */
+	public Token nextToken() throws IOException {
+		while (true) {
+			if (this.input != null) {
+				Token token = CompiledGrammar.getInstance().nextToken(this.input, this.endOfInput || this.truncated);
+				this.truncated = false;
+				if (token != CompiledGrammar.NEED_MORE_INPUT) {
+					return token;
+				}
+			}
+
+			if (this.endOfInput) {
+				return null;
+			}
+
+			this.fill();
+		}
+	}
+
+	/**
+	 * 이 메소드는 버퍼의 크기(가장 긴 토큰을 읽기 위해 늘어난 크기 포함)를 리턴한다.
+	 *
+	 * @return	버퍼 크기.
+	 */
+	public int getBufferSize() {
+		return this.buffer.length;
+	}
+
+	/**
+	 * 아직 Tokenizing 하지 않은 문자를 버퍼 앞으로 옮기고, 버퍼가 가득 차거나 입력이 끝날 때까지 읽는다.
+	 * 남은 문자가 버퍼를 채우고 있으면 버퍼를 두 배로 늘린다. 최대 토큰 크기에 도달하면 더 읽지 않고 현재 버퍼에서 토큰을 잘라내도록 한다.
+	 */
+	private void fill() throws IOException {
+		int from = (this.input == null) ? 0 : this.input.index();
+		int remaining = this.count - from;
+		if (from > 0) {
+			System.arraycopy(this.buffer, from, this.buffer, 0, remaining);
+		} else if (remaining == this.buffer.length) {
+			if (remaining >= this.maxTokenSize) {
+				this.truncated = true;
+				return;
+			}
+
+			char[] tmp = new char[(int)Math.min((long)this.buffer.length << 1, this.maxTokenSize)];
+			System.arraycopy(this.buffer, 0, tmp, 0, remaining);
+			this.buffer = tmp;
+		}
+
+		this.count = remaining;
+		while (this.count < this.buffer.length) {
+			int read = this.reader.read(this.buffer, this.count, this.buffer.length - this.count);
+			if (read < 0) {
+				this.endOfInput = true;
+				break;
+			}
+			this.count += read;
+		}
+
+		// 버퍼 내용이 바뀌었으므로 스캔 결과 기록을 비운 새 입력으로 다시 시작한다.
+		this.input = this.context.input(this.buffer, 0, this.count);
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link FilterRepository} 가 key 별로 필터를 한 번만 생성하고, 생성 실패는 보관하지 않는지,
+ * 설정 파일을 다시 읽으면 이미 리턴된 필터 객체에 새 설정이 적용되는지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class FilterRepositoryTest {
+	private static final String DIRTY = "<script>alert(1)</script>";
+	private static final String CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<config xmlns=\"http://www.nhncorp.com/lucy-xss\" extends=\"%s\">\n%s</config>\n";
+	private static final String RELOADED = "\t<blockingPrefix enable=\"true\" prefix=\"reloaded_\"/>\n";
+
+	private static int fileCount;
+
+	private ClassLoader contextClassLoader;
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		this.dir = File.createTempFile("lucy-xss-reload", "");
+		assertTrue(this.dir.delete());
+		assertTrue(this.dir.mkdir());
+
+		this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[] {this.dir.toURI().toURL()}, this.contextClassLoader));
+	}
+
+	@After
+	public void tearDown() {
+		XssFilter.stopConfigWatcher();
+		Thread.currentThread().setContextClassLoader(this.contextClassLoader);
+
+		for (File file : this.dir.listFiles()) {
+			file.delete();
+		}
+		this.dir.delete();
+	}
+
+	@Test
+	public void testSameInstance() {
+		assertSame(XssFilter.getInstance("lucy-xss-superset.xml"), XssFilter.getInstance("lucy-xss-superset.xml", false));
+		assertNotSame(XssFilter.getInstance("lucy-xss-superset.xml", false), XssFilter.getInstance("lucy-xss-superset.xml", true));
+		assertSame(XssFilter.getInstance(), XssFilter.getInstance());
+		assertSame(XssSaxFilter.getInstance("lucy-xss-superset-sax.xml", true), XssSaxFilter.getInstance("lucy-xss-superset-sax.xml", true));
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		final AtomicInteger created = new AtomicInteger();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final FilterRepository<Object> repository = new FilterRepository<Object>() {
+			@Override
+			protected Object newFilter(String fileName, boolean withoutComment) throws Exception {
+				created.incrementAndGet();
+				entered.countDown();
+				proceed.await();
+				return new Object();
+			}
+
+			@Override
+			protected void update(Object filter, Object fresh) {
+			}
+		};
+
+		int threadCount = 8;
+		ExecutorService service = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<Object>> results = new ArrayList<Future<Object>>(threadCount);
+			for (int i = 0; i < threadCount; i++) {
+				results.add(service.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						return repository.get("a.xml", false);
+					}
+				}));
+			}
+
+			entered.await();
+			Thread.sleep(100);
+			proceed.countDown();
+
+			for (int i = 1; i < threadCount; i++) {
+				assertSame(results.get(0).get(), results.get(i).get());
+			}
+			assertEquals(1, created.get());
+			assertEquals(1, repository.size());
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailureNotCached() throws Exception {
+		final AtomicInteger created = new AtomicInteger();
+		FilterRepository<Object> repository = new FilterRepository<Object>() {
+			@Override
+			protected Object newFilter(String fileName, boolean withoutComment) throws Exception {
+				if (created.incrementAndGet() == 1) {
+					throw new IllegalStateException(fileName);
+				}
+				return fileName;
+			}
+
+			@Override
+			protected void update(Object filter, Object fresh) {
+			}
+		};
+
+		try {
+			repository.get(null, true);
+			fail();
+		} catch (IllegalStateException ise) {
+			assertNull(ise.getMessage());
+		}
+		assertEquals(0, repository.size());
+
+		assertNull(repository.get(null, true));
+		assertEquals("a.xml", repository.get("a.xml", true));
+		assertEquals(2, repository.size());
+		assertEquals(3, created.get());
+	}
+
+	@Test
+	public void testReload() throws IOException {
+		String fileName = newFileName();
+		writeConfig(fileName, "lucy-xss-superset.xml", "");
+		XssFilter filter = XssFilter.getInstance(fileName);
+		XssFilter filterWithoutComment = XssFilter.getInstance(fileName, true);
+		String before = filter.doFilter(DIRTY);
+		assertFalse(filter.getConfig().isEnableBlockingPrefix());
+
+		writeConfig(fileName, "lucy-xss-superset.xml", RELOADED);
+		XssFilter.reload(fileName);
+
+		assertSame(filter, XssFilter.getInstance(fileName));
+		assertEquals("reloaded_", filter.getConfig().getBlockingPrefix());
+		assertFalse(before.equals(filter.doFilter(DIRTY)));
+		assertEquals("<reloaded_script>alert(1)</reloaded_script>", filterWithoutComment.doFilter(DIRTY));
+		assertEquals("", filter.doFilter("p", "title", ""));
+	}
+
+	@Test
+	public void testSaxReload() throws IOException {
+		String fileName = newFileName();
+		writeConfig(fileName, "lucy-xss-superset-sax.xml", "");
+		XssSaxFilter filter = XssSaxFilter.getInstance(fileName, true);
+		assertEquals("&lt;script&gt;alert(1)&lt;/script&gt;", filter.doFilter(DIRTY));
+
+		writeConfig(fileName, "lucy-xss-superset-sax.xml", RELOADED);
+		XssSaxFilter.reloadAll();
+
+		assertSame(filter, XssSaxFilter.getInstance(fileName, true));
+		assertEquals("<reloaded_script>alert(1)</reloaded_script>", filter.doFilter(DIRTY));
+		StringBuilder out = new StringBuilder();
+		filter.doFilter(CharBuffer.wrap(DIRTY), out);
+		assertEquals("<reloaded_script>alert(1)</reloaded_script>", out.toString());
+	}
+
+	@Test
+	public void testReloadFailureKeepsPreviousConfig() throws IOException {
+		String fileName = newFileName();
+		writeConfig(fileName, "lucy-xss-superset.xml", RELOADED);
+		XssFilter filter = XssFilter.getInstance(fileName, true);
+		String before = filter.doFilter(DIRTY);
+
+		write(fileName, "<config");
+		try {
+			XssFilter.reload(fileName);
+			fail();
+		} catch (XssFilterException xfe) {
+			// 이전 설정을 유지한다.
+		}
+
+		assertEquals(before, filter.doFilter(DIRTY));
+		assertEquals("reloaded_", filter.getConfig().getBlockingPrefix());
+	}
+
+	@Test
+	public void testReloadClearsResultCache() throws IOException {
+		String fileName = newFileName();
+		writeConfig(fileName, "lucy-xss-superset-sax.xml", "\t<resultCache maxChars=\"65536\"/>\n");
+		XssSaxFilter filter = XssSaxFilter.getInstance(fileName, true);
+		assertEquals("&lt;script&gt;alert(1)&lt;/script&gt;", filter.doFilter(DIRTY));
+		assertEquals("&lt;script&gt;alert(1)&lt;/script&gt;", filter.doFilter(DIRTY));
+		FilterResultCache previous = filter.getResultCache();
+		assertEquals(1, previous.getHitCount());
+
+		writeConfig(fileName, "lucy-xss-superset-sax.xml", "\t<resultCache maxChars=\"65536\"/>\n" + RELOADED);
+		XssSaxFilter.reload(fileName);
+
+		// 이전 설정으로 필터링한 결과는 사용되지 않는다.
+		assertEquals(0, previous.size());
+		assertNotSame(previous, filter.getResultCache());
+		assertEquals("<reloaded_script>alert(1)</reloaded_script>", filter.doFilter(DIRTY));
+		assertEquals(0, filter.getResultCache().getHitCount());
+		assertEquals(1, filter.getResultCache().getMissCount());
+	}
+
+	@Test
+	public void testReloadWhileFiltering() throws Exception {
+		final String fileName = newFileName();
+		writeConfig(fileName, "lucy-xss-superset.xml", "");
+		final XssFilter filter = XssFilter.getInstance(fileName, true);
+		final String dirty = DIRTY + DIRTY;
+		final String first = filter.doFilter(dirty);
+		final String second = "<reloaded_script>alert(1)</reloaded_script><reloaded_script>alert(1)</reloaded_script>";
+
+		ExecutorService service = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Object>> results = new ArrayList<Future<Object>>(4);
+			for (int i = 0; i < 4; i++) {
+				results.add(service.submit(new Callable<Object>() {
+					public Object call() {
+						for (int j = 0; j < 2000; j++) {
+							String clean = filter.doFilter(dirty);
+							// 하나의 호출은 이전 또는 새 설정 중 하나로만 필터링된다.
+							assertTrue(clean, clean.equals(first) || clean.equals(second));
+						}
+						return null;
+					}
+				}));
+			}
+
+			for (int i = 0; i < 20; i++) {
+				writeConfig(fileName, "lucy-xss-superset.xml", (i % 2 == 0) ? RELOADED : "");
+				XssFilter.reload(fileName);
+			}
+
+			for (Future<Object> result : results) {
+				result.get();
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testConfigWatcher() throws Exception {
+		String fileName = newFileName();
+		File file = writeConfig(fileName, "lucy-xss-superset.xml", "");
+		XssFilter filter = XssFilter.getInstance(fileName, true);
+		long modified = file.lastModified();
+		XssFilter.startConfigWatcher(20);
+
+		writeConfig(fileName, "lucy-xss-superset.xml", RELOADED);
+		assertTrue(file.setLastModified(modified + 2000));
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while (!filter.getConfig().isEnableBlockingPrefix() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(20);
+		}
+
+		assertEquals("<reloaded_script>alert(1)</reloaded_script>", filter.doFilter(DIRTY));
+	}
+
+	private static synchronized String newFileName() {
+		return "lucy-xss-reload-" + (fileCount++) + ".xml";
+	}
+
+	private File writeConfig(String fileName, String parent, String body) throws IOException {
+		return write(fileName, String.format(CONFIG, parent, body));
+	}
+
+	private File write(String fileName, String content) throws IOException {
+		File file = new File(this.dir, fileName);
+		OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * {@link FilterResultCache} 의 조회, 보관, 버리기 동작과 필터에서 cache 를 사용해도 결과가 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class FilterResultCacheTest extends XssFilterTestCase {
+
+	@Test
+	public void testGetAndPut() {
+		FilterResultCache cache = new FilterResultCache(1024 * 1024);
+		assertNull(cache.get(cache.key("<b>a</b>")));
+		cache.put(cache.key("<b>a</b>"), "<b>a</b>");
+		cache.put(cache.key("<script>"), "&lt;script&gt;");
+
+		assertEquals("<b>a</b>", cache.get(cache.key("<b>a</b>")));
+		assertEquals("&lt;script&gt;", cache.get(cache.key("<script>")));
+		assertNull(cache.get(cache.key("<b>b</b>")));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.size());
+
+		// 같은 문자를 다른 순서로 가진 입력은 다른 key 를 가진다.
+		assertFalse(cache.key("ab").equals(cache.key("ba")));
+		assertEquals(cache.key("가힣"), cache.key("가힣"));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getChars());
+		assertNull(cache.get(cache.key("<b>a</b>")));
+	}
+
+	@Test
+	public void testEviction() {
+		// 결과 하나는 100 + 64 자로 계산되므로 1640 자에는 10 개까지 보관된다.
+		FilterResultCache cache = new FilterResultCache(1640);
+		String clean = repeat('x', 100);
+		for (int i = 0; i < 160; i++) {
+			cache.put(cache.key("input" + i), clean);
+			if (i % 5 == 0) {
+				// 자주 사용되는 결과는 버려지지 않는다.
+				assertEquals(clean, cache.get(cache.key("input0")));
+			}
+		}
+
+		assertTrue(cache.getChars() <= cache.getMaxChars());
+		assertEquals(160 - cache.size(), cache.getEvictionCount());
+		assertEquals(clean, cache.get(cache.key("input0")));
+		assertNull(cache.get(cache.key("input1")));
+		assertEquals(clean, cache.get(cache.key("input159")));
+	}
+
+	@Test
+	public void testLargeResultNotCached() {
+		FilterResultCache cache = new FilterResultCache(16 * 100);
+		cache.put(cache.key("small"), repeat('x', 100));
+		cache.put(cache.key("large"), repeat('x', 101));
+		assertNotNull(cache.get(cache.key("small")));
+		assertNull(cache.get(cache.key("large")));
+	}
+
+	@Test
+	public void testFilterWithCache() throws Exception {
+		XssFilter filter = XssFilter.getInstance("lucy-xss-result-cache.xml");
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance("lucy-xss-result-cache-sax.xml");
+		assertNull(XssFilter.getInstance().getResultCache());
+		assertEquals(65536, filter.getResultCache().getMaxChars());
+
+		XssFilter expectedFilter = XssFilter.getInstance();
+		XssSaxFilter expectedSaxFilter = XssSaxFilter.getInstance();
+		for (int loop = 0; loop < 2; loop++) {
+			for (String dirty : readLines("xss-dirtycodes.txt")) {
+				assertEquals(expectedFilter.doFilter(dirty), filter.doFilter(dirty));
+				assertEquals(expectedSaxFilter.doFilter(dirty), saxFilter.doFilter(dirty));
+			}
+		}
+
+		assertTrue(filter.getResultCache().getHitCount() > 0);
+		assertTrue(saxFilter.getResultCache().getHitCount() > 0);
+		assertTrue(filter.getResultCache().getChars() <= 65536);
+
+		// 캐시된 결과도 매번 필터링한 결과와 같다.
+		String dirty = "<script>alert(1)</script><b>bold</b>";
+		long hitCount = saxFilter.getResultCache().getHitCount();
+		assertEquals(saxFilter.doFilter(dirty), saxFilter.doFilter(dirty));
+		assertEquals(hitCount + 1, saxFilter.getResultCache().getHitCount());
+		assertEquals("", saxFilter.doFilter(""));
+		assertEquals("", filter.doFilter(null));
+	}
+
+	/**
+	 * cache 를 사용해도 입력이 바뀌지 않았으면 이번 호출의 입력 객체를 그대로 리턴한다.
+	 */
+	@Test
+	public void testUnchangedInputWithCache() {
+		XssFilter filter = XssFilter.getInstance("lucy-xss-result-cache.xml");
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance("lucy-xss-result-cache-sax.xml");
+		String first = new String("<b>\uAC00\uB098\uB2E4</b>");
+		String second = new String(first);
+
+		assertSame(first, filter.doFilter(first));
+		assertSame(first, saxFilter.doFilter(first));
+
+		// 두 번째 입력은 cache 에서 찾는다.
+		long hitCount = filter.getResultCache().getHitCount();
+		long saxHitCount = saxFilter.getResultCache().getHitCount();
+		assertSame(second, filter.doFilter(second));
+		assertSame(second, saxFilter.doFilter(second));
+		assertEquals(hitCount + 1, filter.getResultCache().getHitCount());
+		assertEquals(saxHitCount + 1, saxFilter.getResultCache().getHitCount());
+	}
+
+	private static String repeat(char c, int count) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			buffer.append(c);
+		}
+		return buffer.toString();
+	}
+}
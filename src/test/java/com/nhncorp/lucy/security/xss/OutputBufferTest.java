@@ -0,0 +1,190 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * {@link OutputBuffer} 의 write 결과와 Thread 별 재사용을 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class OutputBufferTest {
+	@Test
+	public void testWrite() {
+		OutputBuffer writer = OutputBuffer.acquire(0);
+		try {
+			writer.write('<');
+			writer.write("abc");
+			writer.write("xdefx", 1, 3);
+			writer.write(new char[] {'g', 'h', 'i'}, 1, 2);
+			writer.append("jk").append('>');
+			for (int i = 0; i < 100; i++) {
+				writer.write('.');
+			}
+
+			StringBuilder expected = new StringBuilder("<abcdefhijk>");
+			for (int i = 0; i < 100; i++) {
+				expected.append('.');
+			}
+			assertEquals(expected.toString(), writer.toString());
+		} finally {
+			writer.release();
+		}
+	}
+
+	@Test
+	public void testReuse() {
+		OutputBuffer writer = OutputBuffer.acquire(1000);
+		writer.write("first");
+		assertTrue(writer.capacity() > 1000);
+		writer.release();
+
+		OutputBuffer reused = OutputBuffer.acquire(10);
+		try {
+			assertSame(writer, reused);
+			assertEquals("", reused.toString());
+			assertTrue(reused.capacity() > 1000);
+		} finally {
+			reused.release();
+		}
+	}
+
+	@Test
+	public void testReentrant() {
+		OutputBuffer outer = OutputBuffer.acquire(10);
+		try {
+			OutputBuffer inner = OutputBuffer.acquire(10);
+			assertNotSame(outer, inner);
+			inner.release();
+		} finally {
+			outer.release();
+		}
+
+		// 주석 내 태그 필터링은 필터링 중에 다시 doFilter(String) 을 호출한다.
+		XssFilter filter = XssFilter.getInstance("lucy-xss-filteringtagincomment.xml");
+		assertEquals("<!--<b>x</b>--><b>y</b>", filter.doFilter("<!--<b>x</b>--><b>y</b>"));
+	}
+
+	@Test
+	public void testTrack() {
+		String source = "<b>abc</b>";
+		OutputBuffer writer = OutputBuffer.acquire(source.length());
+		try {
+			writer.track(source);
+			writer.write('<');
+			writer.write("xbx", 1, 1);
+			writer.write(new char[] {'>', 'a', 'b'}, 0, 3);
+			writer.append("c</b>");
+			assertSame(source, writer.toString());
+
+			// 입력과 달라지면 같았던 앞부분을 복사한다.
+			writer.reset();
+			writer.track(source);
+			writer.write("<b>ab");
+			assertEquals("<b>ab", writer.toString());
+			writer.write("&gt;");
+			writer.write('.');
+			assertEquals("<b>ab&gt;.", writer.toString());
+
+			writer.reset();
+			writer.track(source);
+			writer.write(source);
+			writer.write('x');
+			assertEquals(source + "x", writer.toString());
+		} finally {
+			writer.release();
+		}
+	}
+
+	/**
+	 * 결과가 입력과 같으면 버퍼를 늘리지 않고, 달라지면 그 때 입력 길이에 맞게 늘린다.
+	 */
+	@Test
+	public void testLazyCapacity() {
+		StringBuilder buffer = new StringBuilder();
+		while (buffer.length() <= OutputBuffer.MAX_RETAINED_CHARS) {
+			buffer.append("<b>abc</b>");
+		}
+
+		String source = buffer.toString();
+		OutputBuffer writer = OutputBuffer.acquire(source.length());
+		try {
+			int capacity = writer.capacity();
+			assertTrue(capacity <= OutputBuffer.MAX_RETAINED_CHARS);
+			writer.track(source);
+			writer.write(source);
+			assertSame(source, writer.toString());
+			assertEquals(capacity, writer.capacity());
+
+			writer.write('x');
+			assertEquals(source + "x", writer.toString());
+			assertTrue(writer.capacity() >= source.length() + (source.length() >> 2));
+		} finally {
+			writer.release();
+		}
+	}
+
+	@Test
+	public void testUnchangedInput() {
+		String[] unchanged = {"plain text", "a\tb\r\nc", "한글 텍스트", "<b>굵게</b> <a href=\"http://www.naver.com\">링크</a>"};
+		String[] changed = {"a > b", "<script>alert(1)</script>", "<br/>"};
+
+		XssFilter filter = XssFilter.getInstance();
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance();
+		for (String dirty : unchanged) {
+			assertSame(dirty, filter.doFilter(dirty));
+			assertSame(dirty, saxFilter.doFilter(dirty));
+		}
+
+		for (String dirty : changed) {
+			assertNotSame(dirty, filter.doFilter(dirty));
+			assertNotSame(dirty, saxFilter.doFilter(dirty));
+		}
+
+		String[] dirty = {unchanged[0], changed[0], unchanged[3], changed[1]};
+		String[] clean = new String[dirty.length];
+		filter.doFilterAll(dirty, clean);
+		assertSame(dirty[0], clean[0]);
+		assertEquals(filter.doFilter(dirty[1]), clean[1]);
+		assertSame(dirty[2], clean[2]);
+
+		saxFilter.doFilterAll(dirty, clean);
+		assertSame(dirty[0], clean[0]);
+		assertEquals(saxFilter.doFilter(dirty[1]), clean[1]);
+		assertSame(dirty[2], clean[2]);
+
+		// 파서가 입력의 끝으로 처리하는 문자가 있으면 그대로 리턴하지 않는다.
+		assertEquals("a", saxFilter.doFilter("a\uFFFFb"));
+	}
+
+	@Test
+	public void testLargeBufferDiscarded() {
+		OutputBuffer writer = OutputBuffer.acquire(OutputBuffer.MAX_RETAINED_CHARS);
+		writer.write(".");
+		assertTrue(writer.capacity() > OutputBuffer.MAX_RETAINED_CHARS);
+		writer.release();
+
+		OutputBuffer next = OutputBuffer.acquire(0);
+		try {
+			assertTrue(next.capacity() < OutputBuffer.MAX_RETAINED_CHARS);
+		} finally {
+			next.release();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static junit.framework.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * tokenizer 설정(interpreter, compiled)에 관계없이 필터링 결과가 동일한지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class TokenizerTest extends XssFilterTestCase {
+	private static final String[] FIXTURES = {"bigHtml_1.4M.html", "bigHtmlxssFilterGuide_1.7M.html", "normalMail50k.html", "xss-dirtyobject.html", "xss-invalid1.html", "xss-invalid2.html"};
+
+	@Test
+	public void testCompiledTokenizer() throws Exception {
+		XssFilter expected = XssFilter.getInstance();
+		XssFilter actual = XssFilter.getInstance("lucy-xss-compiled-tokenizer.xml");
+		assertFalse(expected.getConfig().isCompiledTokenizer());
+		assertTrue(actual.getConfig().isCompiledTokenizer());
+
+		for (String dirty : readString(FIXTURES)) {
+			assertEquals(expected.doFilter(dirty), actual.doFilter(dirty));
+		}
+
+		List<String> lines = readLines("xss-dirtycodes.txt");
+		for (String dirty : lines) {
+			assertEquals(expected.doFilter(dirty), actual.doFilter(dirty));
+			assertEquals(expected.doFilter("a", "href", dirty), actual.doFilter("a", "href", dirty));
+		}
+	}
+
+	@Test
+	public void testCompiledTokenizerSax() throws Exception {
+		XssSaxFilter expected = XssSaxFilter.getInstance();
+		XssSaxFilter actual = XssSaxFilter.getInstance("lucy-xss-compiled-tokenizer-sax.xml");
+
+		for (String dirty : readString(FIXTURES)) {
+			assertEquals(expected.doFilter(dirty), actual.doFilter(dirty));
+		}
+
+		List<String> lines = readLines("xss-dirtycodes.txt");
+		for (String dirty : lines) {
+			assertEquals(expected.doFilter(dirty), actual.doFilter(dirty));
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static junit.framework.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link XssFilter#doFilterAll(String[], String[])}, {@link XssSaxFilter#doFilterAll(String[], String[])} 로
+ * 여러 입력을 한 번에 필터링한 결과가 입력마다 doFilter 를 호출한 결과와 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class XssFilterBatchTest extends XssFilterTestCase {
+	private static final String[] CONFIGS = {"lucy-xss-superset.xml", "lucy-xss-filteringtagincomment.xml"};
+	private static final String[] SAX_CONFIGS = {"lucy-xss-superset-sax.xml", "lucy-xss-sax-object-param.xml", "lucy-xss-filteringtagincomment-sax.xml"};
+
+	@Test
+	public void testDomBatch() throws Exception {
+		String[] dirty = inputs();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (String config : CONFIGS) {
+				XssFilter filter = XssFilter.getInstance(config, true);
+				String[] expected = new String[dirty.length];
+				for (int i = 0; i < dirty.length; i++) {
+					expected[i] = filter.doFilter(dirty[i]);
+				}
+
+				String[] clean = new String[dirty.length];
+				filter.doFilterAll(dirty, clean);
+				assertEquals(Arrays.asList(expected), Arrays.asList(clean));
+
+				clean = new String[dirty.length];
+				filter.doFilterAll(dirty, clean, executor);
+				assertEquals(Arrays.asList(expected), Arrays.asList(clean));
+
+				assertEquals(Arrays.asList(expected), filter.doFilterAll(Arrays.asList(dirty)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSaxBatch() throws Exception {
+		String[] dirty = inputs();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (String config : SAX_CONFIGS) {
+				XssSaxFilter filter = XssSaxFilter.getInstance(config);
+				String[] expected = new String[dirty.length];
+				for (int i = 0; i < dirty.length; i++) {
+					expected[i] = filter.doFilter(dirty[i]);
+				}
+
+				String[] clean = new String[dirty.length];
+				filter.doFilterAll(dirty, clean);
+				assertEquals(Arrays.asList(expected), Arrays.asList(clean));
+
+				assertEquals(Arrays.asList(expected), filter.doFilterAll(Arrays.asList(dirty), executor));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * executor 가 작업을 거부해도 예외 없이 호출한 Thread 에서 필터링한다.
+	 */
+	@Test
+	public void testRejectingExecutor() throws Exception {
+		String[] dirty = inputs();
+		XssFilter filter = XssFilter.getInstance();
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance();
+		List<String> expected = filter.doFilterAll(Arrays.asList(dirty));
+		List<String> saxExpected = saxFilter.doFilterAll(Arrays.asList(dirty));
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		ThreadPoolExecutor bounded = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+		try {
+			// 하나뿐인 Thread 를 잡아 두어, 큐에 하나가 들어간 뒤의 작업은 거부된다.
+			bounded.execute(new Runnable() {
+				public void run() {
+					try {
+						latch.await();
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			assertEquals(expected, filter.doFilterAll(Arrays.asList(dirty), bounded));
+			assertEquals(saxExpected, saxFilter.doFilterAll(Arrays.asList(dirty), bounded));
+		} finally {
+			latch.countDown();
+			bounded.shutdown();
+		}
+
+		// 종료된 executor 는 모든 작업을 거부한다.
+		assertEquals(expected, filter.doFilterAll(Arrays.asList(dirty), bounded));
+		assertEquals(saxExpected, saxFilter.doFilterAll(Arrays.asList(dirty), bounded));
+	}
+
+	/**
+	 * 닫히지 않은 object 태그의 상태는 다음 입력으로 전달되지 않는다.
+	 */
+	@Test
+	public void testObjectStateNotShared() {
+		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-sax-object-param.xml");
+		String[] dirty = {"<object data=\"http://play.tvcast.naver.com/a.swf\">", "<param name=\"allowNetworking\" value=\"all\"></object>"};
+		String[] clean = new String[2];
+		filter.doFilterAll(dirty, clean);
+
+		assertEquals(filter.doFilter(dirty[0]), clean[0]);
+		assertEquals(filter.doFilter(dirty[1]), clean[1]);
+	}
+
+	@Test
+	public void testEmptyInputs() {
+		String[] dirty = {null, "", "<b>a</b>"};
+		String[] clean = new String[3];
+		XssFilter.getInstance().doFilterAll(dirty, clean);
+		assertEquals(Arrays.asList("", "", "<b>a</b>"), Arrays.asList(clean));
+
+		clean = new String[3];
+		XssSaxFilter.getInstance().doFilterAll(dirty, clean);
+		assertEquals(Arrays.asList("", "", "<b>a</b>"), Arrays.asList(clean));
+
+		assertTrue(XssSaxFilter.getInstance().doFilterAll(new ArrayList<String>()).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortOutputArray() {
+		XssFilter.getInstance().doFilterAll(new String[2], new String[1]);
+	}
+
+	private String[] inputs() throws Exception {
+		List<String> inputs = new ArrayList<String>(readLines("xss-dirtycodes.txt"));
+		inputs.add("<!-- <script>alert(1)</script> --><b>comment</b>");
+		inputs.add(readString("normalMail50k.html"));
+		inputs.add(null);
+
+		// 병렬로 나뉘도록 입력을 늘린다.
+		List<String> result = new ArrayList<String>();
+		while (result.size() < 1000) {
+			result.addAll(inputs);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+}
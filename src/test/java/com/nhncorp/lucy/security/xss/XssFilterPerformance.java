@@ -15,7 +15,11 @@
  */
 package com.nhncorp.lucy.security.xss;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -24,6 +28,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.nhncorp.lucy.security.xss.markup.MarkupParser;
+import com.nhncorp.lucy.security.xss.markup.rule.ParsingGrammar;
+
 /**
  * {@link XssFilter} 성능 테스트.
  *
@@ -62,6 +69,125 @@ public class XssFilterPerformance extends XssFilterTestCase {
 		main.product(1000, DEFAULT_SMALL_FILES);
 	}
 
+	/**
+	 * 새 JVM 에서 첫 번째 doFilter 가 끝나기까지의 시간을 문법 스냅샷 사용 여부에 따라 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void timeToFirstDoFilter() throws Exception {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String classpath = System.getProperty("java.class.path");
+
+		for (int i = 0; i < 5; i++) {
+			for (String snapshot : new String[] {"true", "false"}) {
+				Process process = new ProcessBuilder(java, "-Dlucy.xss.grammar.snapshot=" + snapshot, "-cp", classpath, Startup.class.getName()).redirectErrorStream(true).start();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				String line;
+				String result = null;
+				while ((line = reader.readLine()) != null) {
+					result = line;
+				}
+				process.waitFor();
+
+				System.out.println("snapshot=" + snapshot + " : " + result);
+			}
+		}
+	}
+
+	/**
+	 * {@link #timeToFirstDoFilter()} 에서 새 JVM 으로 실행한다.
+	 */
+	public static class Startup {
+		public static void main(String[] args) {
+			long start = System.nanoTime();
+			ParsingGrammar.getInstance();
+			long grammar = System.nanoTime();
+			XssFilter filter = XssFilter.getInstance();
+			filter.doFilter("<a href='http://naver.com' onclick='alert(1)'>link</a>");
+			long end = System.nanoTime();
+
+			long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+			System.out.println("grammar " + (grammar - start) / 1000000 + "ms, first doFilter " + (end - start) / 1000000 + "ms, since JVM start " + sinceJvmStart + "ms");
+		}
+	}
+
+	/**
+	 * 한 번의 doFilter 호출 동안 할당되는 메모리(bytes/op)를 출력한다. (HotSpot JVM 에서만 동작한다.)
+	 */
+	@Ignore
+	@Test
+	public void allocationPerCall() throws Exception {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		String dirty = readString(BIG_HTML_FILES_1_4_M);
+		XssFilter filter = XssFilter.getInstance();
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance();
+
+		for (int i = 0; i < 20; i++) {
+			filter.doFilter(dirty);
+			saxFilter.doFilter(dirty);
+		}
+
+		int loop = 10;
+		long start = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < loop; i++) {
+			filter.doFilter(dirty);
+		}
+		long domBytes = (bean.getThreadAllocatedBytes(threadId) - start) / loop;
+
+		start = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < loop; i++) {
+			saxFilter.doFilter(dirty);
+		}
+		long saxBytes = (bean.getThreadAllocatedBytes(threadId) - start) / loop;
+
+		System.out.println(BIG_HTML_FILES_1_4_M + " : dom " + domBytes + " bytes/op, sax " + saxBytes + " bytes/op");
+	}
+
+	/**
+	 * 태그가 많은 입력에서 Element 하나를 직렬화할 때 할당되는 메모리(bytes/element)와 수행 시간을 출력한다. (HotSpot JVM 에서만 동작한다.)
+	 */
+	@Ignore
+	@Test
+	public void allocationPerElement() throws Exception {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		int elements = 30000;
+		StringBuilder dense = new StringBuilder();
+		for (int i = 0; i < elements / 3; i++) {
+			dense.append("<span class=\"c\" style=\"color:red\">a</span>");
+			dense.append("<a href=\"http://naver.com\" onclick=\"x()\">b</a>");
+			dense.append("<br/>");
+		}
+		String dirty = dense.toString();
+		XssFilter filter = XssFilter.getInstance();
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance();
+
+		for (int i = 0; i < 50; i++) {
+			filter.doFilter(dirty);
+			saxFilter.doFilter(dirty);
+		}
+
+		int loop = 20;
+		long start = bean.getThreadAllocatedBytes(threadId);
+		long time = System.nanoTime();
+		for (int i = 0; i < loop; i++) {
+			filter.doFilter(dirty);
+		}
+		long domTime = (System.nanoTime() - time) / loop / 1000;
+		long domBytes = (bean.getThreadAllocatedBytes(threadId) - start) / loop / elements;
+
+		start = bean.getThreadAllocatedBytes(threadId);
+		time = System.nanoTime();
+		for (int i = 0; i < loop; i++) {
+			saxFilter.doFilter(dirty);
+		}
+		long saxTime = (System.nanoTime() - time) / loop / 1000;
+		long saxBytes = (bean.getThreadAllocatedBytes(threadId) - start) / loop / elements;
+
+		System.out.println("dom " + domBytes + " bytes/element, " + domTime + "us/op, sax " + saxBytes + " bytes/element, " + saxTime + "us/op");
+	}
+
 	@Ignore
 	@Test
 	public void variousInputVariousConfigLongMultiThreadTestForSimpleData() {
@@ -135,6 +261,161 @@ public class XssFilterPerformance extends XssFilterTestCase {
 		filter.doFilter(dirty);
 	}
 
+	/**
+	 * 깊게 중첩된 태그, 닫히지 않은 태그, 짝이 없는 종료 태그가 많은 입력의 DOM 트리 생성 시간을 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void deepNestingAndUnmatchedEndTagsDomFilter() {
+		int count = 20000;
+		StringBuilder nested = new StringBuilder();
+		StringBuilder unclosed = new StringBuilder();
+		StringBuilder unmatched = new StringBuilder();
+		StringBuilder manyEndTags = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			nested.append("<div>");
+			unclosed.append("<div>text");
+			unmatched.append("<div>");
+		}
+		for (int i = 0; i < count; i++) {
+			nested.append("</div>");
+			unclosed.append("<p>");
+			unmatched.append("</p>");
+		}
+		unclosed.append("</div>");
+		for (int i = 0; i < 1000; i++) {
+			manyEndTags.append("<div>");
+		}
+		for (int i = 0; i < 100000; i++) {
+			manyEndTags.append("</div>");
+		}
+
+		String[] names = {"nested", "unclosed", "unmatched", "manyEndTags"};
+		String[] inputs = {nested.toString(), unclosed.toString(), unmatched.toString(), manyEndTags.toString()};
+		XssFilter filter = XssFilter.getInstance("lucy-xss-superset.xml");
+		for (int loop = 0; loop < 5; loop++) {
+			for (int i = 0; i < inputs.length; i++) {
+				long start = System.nanoTime();
+				MarkupParser.parse(inputs[i], true);
+				long parsed = System.nanoTime();
+				String filtered = "-";
+				if (i != 0) {
+					// 깊은 중첩은 직렬화 시 재귀 호출 깊이가 커지므로 트리 생성까지만 측정한다.
+					filter.doFilter(inputs[i]);
+					filtered = (System.nanoTime() - parsed) / 1000000 + "ms";
+				}
+				System.out.println(names[i] + " : parse " + (parsed - start) / 1000000 + "ms, doFilter " + filtered);
+			}
+		}
+	}
+
+	/**
+	 * 1, 8, 64 개 Thread 가 동시에 getInstance 를 호출할 때 호출 당 시간을 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void getInstanceContention() throws Exception {
+		final int callCount = 1000000;
+		final String[] saxConfigFile = {"lucy-xss-superset-sax.xml", "lucy-xss-sax-simple.xml", "lucy-xss-sax-blog-removetag.xml"};
+
+		for (int loop = 0; loop < 3; loop++) {
+			for (final int threadCount : new int[] {1, 8, 64}) {
+				for (final boolean sax : new boolean[] {false, true}) {
+					ExecutorService service = Executors.newFixedThreadPool(threadCount);
+					final CountDownLatch ready = new CountDownLatch(threadCount);
+					final CountDownLatch start = new CountDownLatch(1);
+					final CountDownLatch done = new CountDownLatch(threadCount);
+					final AtomicInteger errorCounter = new AtomicInteger();
+					for (int i = 0; i < threadCount; i++) {
+						service.execute(new Runnable() {
+							public void run() {
+								try {
+									ready.countDown();
+									start.await();
+									for (int j = 0; j < callCount / threadCount; j++) {
+										if (sax) {
+											XssSaxFilter.getInstance(saxConfigFile[j % saxConfigFile.length], (j & 1) == 0);
+										} else {
+											XssFilter.getInstance(configFile[j % configFile.length], (j & 1) == 0);
+										}
+									}
+								} catch (Exception e) {
+									errorCounter.incrementAndGet();
+								} finally {
+									done.countDown();
+								}
+							}
+						});
+					}
+
+					ready.await();
+					long begin = System.nanoTime();
+					start.countDown();
+					done.await();
+					long elapsed = System.nanoTime() - begin;
+					service.shutdown();
+
+					System.out.println((sax ? "XssSaxFilter" : "XssFilter") + " threads " + threadCount + " : " + elapsed / callCount + "ns/call, errorCount : " + errorCounter);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 100 자 정도의 입력 10,000 개를 doFilter 로 하나씩 필터링할 때와 doFilterAll 로 한 번에 필터링할 때의 시간을 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void batchOfSmallInputs() throws Exception {
+		String[] templates = {"<b>공지</b> 게시판 이용 안내 %d <a href=\"http://www.naver.com\">바로가기</a> 감사합니다.",
+			"닉네임%d<script>alert(document.cookie)</script>", "<img src=\"http://static.naver.net/%d.png\" onerror=\"alert(1)\"> 댓글 내용입니다",
+			"<p style=\"color:red\">제목 %d</p><!-- comment --><span>snippet text</span>"};
+		String[] dirty = new String[10000];
+		for (int i = 0; i < dirty.length; i++) {
+			StringBuilder buffer = new StringBuilder(String.format(templates[i % templates.length], i));
+			while (buffer.length() < 100) {
+				buffer.append(' ').append(i);
+			}
+			dirty[i] = buffer.substring(0, 100);
+		}
+
+		XssFilter domFilter = XssFilter.getInstance();
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance();
+		ExecutorService service = Executors.newFixedThreadPool(4);
+		String[] clean = new String[dirty.length];
+		try {
+			for (int loop = 0; loop < 10; loop++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < dirty.length; i++) {
+					clean[i] = domFilter.doFilter(dirty[i]);
+				}
+				long domEach = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				domFilter.doFilterAll(dirty, clean);
+				long domBatch = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for (int i = 0; i < dirty.length; i++) {
+					clean[i] = saxFilter.doFilter(dirty[i]);
+				}
+				long saxEach = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				saxFilter.doFilterAll(dirty, clean);
+				long saxBatch = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				saxFilter.doFilterAll(dirty, clean, service);
+				long saxParallel = System.nanoTime() - start;
+
+				System.out.println("dom each " + domEach / 1000000 + "ms, batch " + domBatch / 1000000 + "ms / sax each " + saxEach / 1000000 + "ms, batch " + saxBatch / 1000000 + "ms, parallel " + saxParallel / 1000000 + "ms");
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+
 	@Ignore
 	@Test
 	public void mailServiceSimulation() {
@@ -17,15 +17,25 @@ package com.nhncorp.lucy.security.xss;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.nhncorp.lucy.security.xss.listener.ParamName;
+
 /**
  * {@link XssFilter} 성능 테스트.
  *
@@ -123,6 +133,161 @@ public class XssFilterPerformanceSax extends XssFilterTestCase {
 		}
 	}
 
+	/**
+	 * doFilter(CharBuffer, Appendable), doFilter(ByteBuffer, CharsetDecoder, WritableByteChannel) 과
+	 * String 으로 decoding 한 뒤 doFilter(String) 을 호출하는 경우의 호출당 시간, 할당량을 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void nioBuffersVersusString() throws Exception {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		Charset cs = Charset.forName("UTF-8");
+		int loop = 20;
+
+		for (String fileName : new String[] {BIG_HTML_FILES_1_4_M, BIG_HTML_FILES_1_7_M}) {
+			String text = readString(fileName);
+			char[] chars = text.toCharArray();
+			byte[] bytes = text.getBytes(cs);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+			WritableByteChannel channel = Channels.newChannel(out);
+			StringBuilder builder = new StringBuilder(chars.length * 2);
+
+			for (int mode = 0; mode < 4; mode++) {
+				for (int i = 0; i < 2 * loop; i++) {
+					runNioMode(filter, mode, chars, bytes, cs, builder, out, channel);
+				}
+
+				long allocated = bean.getThreadAllocatedBytes(threadId);
+				long start = System.nanoTime();
+				for (int i = 0; i < loop; i++) {
+					runNioMode(filter, mode, chars, bytes, cs, builder, out, channel);
+				}
+				long time = (System.nanoTime() - start) / loop / 1000;
+				allocated = (bean.getThreadAllocatedBytes(threadId) - allocated) / loop;
+
+				String[] names = {"doFilter(String) from char[]", "doFilter(CharBuffer, Appendable)", "decode + doFilter(String) + encode", "doFilter(ByteBuffer, CharsetDecoder, Channel)"};
+				System.out.println(fileName + " " + names[mode] + " : " + time + "us, " + allocated + " bytes/op");
+			}
+		}
+	}
+
+	private void runNioMode(XssSaxFilter filter, int mode, char[] chars, byte[] bytes, Charset cs, StringBuilder builder, ByteArrayOutputStream out, WritableByteChannel channel) throws IOException {
+		builder.setLength(0);
+		out.reset();
+		switch (mode) {
+			case 0:
+				builder.append(filter.doFilter(new String(chars)));
+				break;
+			case 1:
+				filter.doFilter(CharBuffer.wrap(chars), builder);
+				break;
+			case 2:
+				out.write(filter.doFilter(new String(bytes, cs)).getBytes(cs));
+				break;
+			default:
+				filter.doFilter(ByteBuffer.wrap(bytes), cs.newDecoder(), channel);
+				break;
+		}
+	}
+
+	/**
+	 * 큰 입력을 순차 필터링할 때와 Thread 수 별로 병렬 필터링할 때의 시간을 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void parallelDoFilter() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		StringBuilder buffer = new StringBuilder();
+		String bigHtml = readString(BIG_HTML_FILES_1_7_M);
+		while (buffer.length() < 32 * 1024 * 1024) {
+			buffer.append(bigHtml);
+		}
+		String dirty = buffer.toString();
+		String expected = filter.doFilter(dirty);
+
+		for (int loop = 0; loop < 3; loop++) {
+			long start = System.currentTimeMillis();
+			filter.doFilter(dirty);
+			System.out.println("sequential : " + (System.currentTimeMillis() - start) + "ms");
+
+			for (int threadCount : new int[] {2, 4, 8}) {
+				ExecutorService service = Executors.newFixedThreadPool(threadCount);
+				try {
+					start = System.currentTimeMillis();
+					String clean = filter.doFilter(dirty, service, 1024 * 1024);
+					System.out.println("parallel threads " + threadCount + " : " + (System.currentTimeMillis() - start) + "ms");
+					assertEquals(expected, clean);
+				} finally {
+					service.shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * param 이 많은 미디어 태그에서 param 이름 분류(정규식, {@link ParamName})와 필터링 시간을 출력한다.
+	 */
+	@Ignore
+	@Test
+	public void paramHeavyMediaMarkup() {
+		String[] names = {"movie", "'src'", "FlashVars", "quality", "\"allowScriptAccess\"", " wmode ", "AllowNetworking", "allowFullScreen", "bgcolor", "autoplay", "loop", "menu"};
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			buffer.append("<object data=\"http://www.youtube.com/v/").append(i).append("\" width=\"640\" height=\"360\">");
+			for (String name : names) {
+				buffer.append("<param name=\"").append(name).append("\" value=\"x").append(i).append("\">");
+			}
+			buffer.append("</object>");
+		}
+		String dirty = buffer.toString();
+
+		ParamName[] values = ParamName.values();
+		Pattern[] patterns = new Pattern[values.length];
+		for (int i = 0; i < values.length; i++) {
+			patterns[i] = Pattern.compile("['\"]?\\s*(?i:" + values[i].getParamName() + ")\\s*['\"]?");
+		}
+
+		XssSaxFilter saxFilter = XssSaxFilter.getInstance("lucy-xss-default-sax.xml");
+		XssSaxFilter saxListenerFilter = XssSaxFilter.getInstance("lucy-xss-sax-object-param.xml");
+		XssFilter domListenerFilter = XssFilter.getInstance("lucy-xss-embed.xml");
+
+		for (int loop = 0; loop < 5; loop++) {
+			int matched = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < 100000; i++) {
+				for (Pattern pattern : patterns) {
+					if (pattern.matcher(names[i % names.length]).matches()) {
+						matched++;
+						break;
+					}
+				}
+			}
+			long regex = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < 100000; i++) {
+				if (ParamName.of(names[i % names.length]) != null) {
+					matched--;
+				}
+			}
+			long classifier = System.nanoTime() - start;
+			assertEquals(0, matched);
+
+			System.out.println("param name regex : " + regex / 100000 + "ns, ParamName : " + classifier / 100000 + "ns");
+			System.out.println("sax : " + elapsed(saxFilter, dirty) + "us, sax ParamListener : " + elapsed(saxListenerFilter, dirty) + "us, dom ObjectListener : " + elapsed(domListenerFilter, dirty) + "us");
+		}
+	}
+
+	private static long elapsed(LucyXssFilter filter, String dirty) {
+		long start = System.nanoTime();
+		for (int i = 0; i < 20; i++) {
+			filter.doFilter(dirty);
+		}
+		return (System.nanoTime() - start) / 20 / 1000;
+	}
+
 	@Ignore
 	@Test
 	public void stackoverflowForManyTagRelationSaxFilter() {
@@ -19,8 +19,12 @@ package com.nhncorp.lucy.security.xss;
 import static org.junit.Assert.*;
 
 import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -199,6 +203,40 @@ public class XssFilterSaxOomTest extends XssFilterTestCase {
 		filter.doFilter(target, writer);
 	}
 
+	/**
+	 * 62M 크기의 파일을 filterFile 로 필터링한다. Heap 을 작게 (예: -Xmx32m) 주고 실행해도 OOM 이 발생하지 않아야 한다.
+	 */
+	@Ignore
+	@Test
+	public void test62MFileSizeCaseFilterFile() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-superset-sax.xml");
+		Charset cs = Charset.forName("UTF-8");
+		byte[] unit = readString(BIG_HTML_FILES_1_4_M).getBytes(cs);
+
+		File in = File.createTempFile("lucy-xss-62M", ".html");
+		File out = File.createTempFile("lucy-xss-62M-clean", ".html");
+		try {
+			OutputStream stream = new FileOutputStream(in);
+			try {
+				for (long size = 0; size < 62L * 1024 * 1024; size += unit.length) {
+					stream.write(unit);
+				}
+			} finally {
+				stream.close();
+			}
+
+			long start = System.currentTimeMillis();
+			filter.filterFile(in, out, cs);
+			long time = System.currentTimeMillis() - start;
+
+			long used = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+			System.out.println(in.length() + " bytes -> " + out.length() + " bytes, " + time + "ms, max heap " + Runtime.getRuntime().maxMemory() + ", used memory " + used);
+		} finally {
+			in.delete();
+			out.delete();
+		}
+	}
+
 	@Ignore
 	@Test
 	public void test6MFileSizeCaseWithNelo() throws Exception {
@@ -207,10 +207,10 @@ public class XssFilterSaxSimpleTest extends XssFilterTestCase {
 		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-superset-sax.xml");
 		String dirty = "<p><FONT style=\"FONT-SIZE: 9pt; FONT-FAMILY: 1144591_9\">" + "<FONT style=\"FONT-SIZE: 9pt; FONT-FAMILY: 1144591_9\">" + "<FONT style=\"FONT-SIZE: 10pt; FONT-FAMILY: 1144591_10\"> 에서 탑승하시오.</FONT></FONT></P>";
 		String clean = filter.doFilter(dirty);
-		String unexpected = dirty;
 		System.out.println("dirty : " + dirty);
 		System.out.println("clean : " + clean);
-		assertNotSame(unexpected, clean);
+		// SAX 필터는 닫히지 않은 태그를 보정하지 않으며, 결과가 입력과 같으면 입력 객체를 그대로 리턴한다.
+		assertSame(dirty, clean);
 	}
 
 	/**
@@ -1487,6 +1487,18 @@ public class XssFilterSaxSimpleTest extends XssFilterTestCase {
 		assertEquals(expected, clean);
 	}
 
+	@Test
+	public void testObjectSecurityParamNames() {
+		// param 이름은 대소문자, 앞뒤 따옴표와 공백을 무시하고 비교하며, 없는 보안 param 만 추가한다.
+		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-default-sax.xml");
+		String dirty = "<object data=\"http://www.youtube.com/v/x\"><param name=\"INVOKEURLS\" value=\"true\"><param name=' AllowScriptAccess ' value=\"always\"></object>"
+			+ "<object data=\"http://www.1.com/2.swf\"></object>";
+		String expected = "<object data=\"http://www.youtube.com/v/x\"><param name=\"INVOKEURLS\" value=\"true\"><param name=' AllowScriptAccess ' value=\"always\"><param name=\"autostart\" value=\"false\"><param name=\"allowNetworking\" value=\"all\"><param name=\"autoplay\" value=\"false\"><param name=\"enablehref\" value=\"false\"><param name=\"enablejavascript\" value=\"false\"><param name=\"nojava\" value=\"true\"><param name=\"AllowHtmlPopupwindow\" value=\"false\"><param name=\"enableHtmlAccess\" value=\"false\"></object>"
+			+ "<object data=\"http://www.1.com/2.swf\" type=\"application/x-shockwave-flash\"><param name=\"invokeURLs\" value=\"false\"><param name=\"autostart\" value=\"false\"><param name=\"allowScriptAccess\" value=\"never\"><param name=\"allowNetworking\" value=\"internal\"><param name=\"autoplay\" value=\"false\"><param name=\"enablehref\" value=\"false\"><param name=\"enablejavascript\" value=\"false\"><param name=\"nojava\" value=\"true\"><param name=\"AllowHtmlPopupwindow\" value=\"false\"><param name=\"enableHtmlAccess\" value=\"false\"></object>";
+		assertEquals(expected, filter.doFilter(dirty));
+		assertEquals(expected, filter.doFilter(dirty));
+	}
+
 	@Test
 	public void pairQuoteCheck() {
 		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-superset-sax.xml");
@@ -21,6 +21,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URLDecoder;
 import java.util.Enumeration;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -272,6 +273,54 @@ public class XssFilterTest extends XssFilterTestCase {
 		}
 	}
 
+	@Test
+	public void testAttributeValueWithoutParsing() {
+		String[] tags = {"a", "IMG", "div", "embed", "object", "1a", "x-y"};
+		String[] atts = {"href", "SRC", "style", "onclick", "value", "type", "a b", "on\"x"};
+		String chars = "aZ:/ .\"'`<>=&;()\t\njvscrptx1#%-\u0000\uFFFF";
+		Random random = new Random(17);
+		for (String config : new String[] {"lucy-xss-superset.xml", "lucy-xss-mail.xml"}) {
+			XssFilter filter = XssFilter.getInstance(config);
+			for (int i = 0; i < 20000; i++) {
+				StringBuilder value = new StringBuilder();
+				for (int j = random.nextInt(10); j >= 0; j--) {
+					value.append(chars.charAt(random.nextInt(chars.length())));
+				}
+
+				String tag = tags[random.nextInt(tags.length)];
+				String att = atts[random.nextInt(atts.length)];
+				assertEquals(tag + " " + att + "=" + value, filter.doFilterByParsing(tag, att, value.toString()), filter.doFilter(tag, att, value.toString()));
+			}
+		}
+	}
+
+	@Test
+	public void testDeepNesting() {
+		XssFilter filter = XssFilter.getInstance("lucy-xss-superset.xml");
+		StringBuilder dirty = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			dirty.append("<div>");
+		}
+		dirty.append("deep");
+		for (int i = 0; i < 100000; i++) {
+			dirty.append("</div>");
+		}
+
+		assertEquals(dirty.toString(), filter.doFilter(dirty.toString()));
+	}
+
+	@Test
+	public void testMaxNestingDepth() {
+		XssFilter filter = XssFilter.getInstance("lucy-xss-max-nesting-depth.xml");
+		assertEquals(2, filter.getConfig().getMaxNestingDepth());
+		assertEquals(0, XssFilter.getInstance("lucy-xss-superset.xml").getConfig().getMaxNestingDepth());
+
+		// 깊이 2 부터는 하위 내용이 형제로 펼쳐진다.
+		assertEquals("<div><p><b></b><i></i>a</p>b</div>", filter.doFilter("<div><p><b><i>a</i></b></p>b</div>"));
+		assertEquals("<div><p><br />a</p></div>", filter.doFilter("<div><p><br />a</p></div>"));
+		assertEquals("<!--[if IE]><div><b></b>a</div><![endif]-->", filter.doFilter("<!--[if IE]><div><b>a</b></div><![endif]-->"));
+	}
+
 	@Test
 	//필터링된 Tag와 Attribute 입력에 Comment를 삽입하는 것은 옵션으로한다.
 	//getInstance의 두번째 파라미터가 noComment를 설정할 수 있다.
@@ -0,0 +1,155 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static junit.framework.Assert.*;
+
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link XssSaxFilter#doFilter(String, ExecutorService, int)} 로 구간을 나누어 병렬로 필터링한 결과가
+ * 순차 필터링 결과와 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class XssSaxFilterParallelTest extends XssFilterTestCase {
+	private static final String[] FIXTURES = {"bigHtml_1.4M.html", "bigHtmlxssFilterGuide_1.7M.html", "normalMail50k.html", "xss-size60k.html", "xss-dirtyobject.html"};
+	private static final String[] CONFIGS = {"lucy-xss-superset-sax.xml", "lucy-xss-sax-object-param.xml"};
+	private static final int[] CHUNK_SIZES = {0, 64 * 1024};
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		this.executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdown();
+	}
+
+	@Test
+	public void testFixtures() throws Exception {
+		for (String config : CONFIGS) {
+			for (boolean withoutComment : new boolean[] {false, true}) {
+				XssSaxFilter filter = XssSaxFilter.getInstance(config, withoutComment);
+				for (String dirty : readString(FIXTURES)) {
+					String expected = filter.doFilter(dirty);
+					for (int chunkSize : CHUNK_SIZES) {
+						assertEquals(config + " " + chunkSize, expected, filter.doFilter(dirty, this.executor, chunkSize));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 주석, 속성 값, 닫히지 않은 object 태그 내부에서 구간이 나뉘어도 순차 필터링과 같다.
+	 */
+	@Test
+	public void testSplitInsideTokens() throws Exception {
+		String[] pieces = {"<p>text</p>", "<!-- <a href='x'> <b> -->", "<img src=\"<a>\" alt='</p>'>", "<object data=\"http://play.tvcast.naver.com/a.swf\">",
+			"<param name=\"allowNetworking\" value=\"all\">", "</object>", "<script>alert(1)</script>", "<!--[if IE]><div><![endif]-->", "a < b", "<a href='", "\r\n"};
+		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-sax-object-param.xml");
+		Random random = new Random(20);
+		for (int i = 0; i < 10; i++) {
+			StringBuilder dirty = new StringBuilder();
+			while (dirty.length() < 32 * 1024) {
+				dirty.append(pieces[random.nextInt(pieces.length)]);
+			}
+
+			String expected = filter.doFilter(dirty.toString());
+			assertEquals(expected, filter.doFilter(dirty.toString(), this.executor, 0));
+		}
+	}
+
+	/**
+	 * executor 의 Thread 가 모두 사용 중이어도 호출한 Thread 가 구간을 직접 필터링하여 끝난다.
+	 */
+	@Test
+	public void testBusyExecutor() throws Exception {
+		final XssSaxFilter filter = XssSaxFilter.getInstance();
+		final String dirty = readString("bigHtml_1.4M.html");
+		final String expected = filter.doFilter(dirty);
+
+		final ExecutorService single = Executors.newSingleThreadExecutor();
+		try {
+			String actual = single.submit(new Callable<String>() {
+				public String call() {
+					return filter.doFilter(dirty, single, 0);
+				}
+			}).get();
+			assertEquals(expected, actual);
+		} finally {
+			single.shutdown();
+		}
+	}
+
+	/**
+	 * executor 가 작업을 거부해도 예외 없이 호출한 Thread 가 나머지 구간을 필터링한다.
+	 */
+	@Test
+	public void testRejectingExecutor() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		String dirty = readString("bigHtml_1.4M.html");
+		String expected = filter.doFilter(dirty);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		ThreadPoolExecutor bounded = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+		try {
+			// 하나뿐인 Thread 를 잡아 두어, 큐에 하나가 들어간 뒤의 작업은 거부된다.
+			bounded.execute(new Runnable() {
+				public void run() {
+					try {
+						latch.await();
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			assertEquals(expected, filter.doFilter(dirty, bounded, 0));
+		} finally {
+			latch.countDown();
+			bounded.shutdown();
+		}
+
+		assertEquals(expected, filter.doFilter(dirty, bounded, 0));
+	}
+
+	@Test
+	public void testSmallInput() {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		assertEquals(filter.doFilter("<script>"), filter.doFilter("<script>", this.executor, 0));
+		assertEquals("", filter.doFilter(null, this.executor, 0));
+
+		StringWriter writer = new StringWriter();
+		filter.doFilter("<b>a</b>", writer, null, 0);
+		assertEquals("<b>a</b>", writer.toString());
+	}
+}
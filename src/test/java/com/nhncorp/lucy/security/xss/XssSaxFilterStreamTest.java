@@ -0,0 +1,196 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss;
+
+import static junit.framework.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+/**
+ * {@link XssSaxFilter#doFilter(java.io.Reader, java.io.Writer)} 로 스트림을 필터링한 결과가
+ * 전체 문자열을 필터링한 결과와 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class XssSaxFilterStreamTest extends XssFilterTestCase {
+	private static final String[] FIXTURES = {"bigHtml_1.4M.html", "bigHtmlxssFilterGuide_1.7M.html", "normalMail50k.html", "xss-dirtyobject.html", "xss-invalid1.html", "xss-invalid2.html"};
+
+	@Test
+	public void testReaderWriter() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		for (String dirty : readString(FIXTURES)) {
+			assertEquals(filter.doFilter(dirty), doFilter(filter, dirty));
+		}
+
+		for (String dirty : readLines("xss-dirtycodes.txt")) {
+			assertEquals(filter.doFilter(dirty), doFilter(filter, dirty));
+		}
+	}
+
+	/**
+	 * object 태그의 param 처리 상태는 버퍼 경계를 넘어서도 유지된다.
+	 */
+	@Test
+	public void testObjectAcrossBuffers() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-sax-object-param.xml");
+		StringBuilder dirty = new StringBuilder("<object data=\"http://play.tvcast.naver.com/a.swf\">");
+		while (dirty.length() < 64 * 1024) {
+			dirty.append("<p>padding text</p>\r\n");
+		}
+		dirty.append("<param name=\"src\" value=\"http://www.w3schools.com/\"><param name=\"allowNetworking\" value=\"all\"></object>");
+
+		String expected = filter.doFilter(dirty.toString());
+		assertEquals(expected, doFilter(filter, dirty.toString()));
+		assertTrue(expected.endsWith("</object>"));
+	}
+
+	@Test
+	public void testInputStream() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		Charset cs = Charset.forName("UTF-8");
+		String dirty = readString("normalMail50k.html") + "<script>alert('가나다')</script>";
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		filter.doFilter(new ByteArrayInputStream(dirty.getBytes(cs)), cs, out);
+		assertEquals(filter.doFilter(dirty), new String(out.toByteArray(), cs));
+	}
+
+	@Test
+	public void testCharBuffer() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		for (String dirty : readString(FIXTURES)) {
+			String expected = filter.doFilter(dirty);
+
+			// 배열 기반 CharBuffer
+			char[] chars = ("xx" + dirty + "yy").toCharArray();
+			CharBuffer buffer = CharBuffer.wrap(chars, 2, dirty.length());
+			StringBuilder actual = new StringBuilder();
+			filter.doFilter(buffer, actual);
+			assertEquals(expected, actual.toString());
+			assertFalse(buffer.hasRemaining());
+
+			// 배열이 없는 CharBuffer
+			CharBuffer direct = ByteBuffer.allocateDirect(dirty.length() * 2).asCharBuffer();
+			direct.put(dirty).flip();
+			StringWriter writer = new StringWriter();
+			filter.doFilter(direct, writer);
+			assertEquals(expected, writer.toString());
+			assertFalse(direct.hasRemaining());
+		}
+	}
+
+	@Test
+	public void testByteBuffer() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		Charset cs = Charset.forName("UTF-8");
+		for (String dirty : readString(FIXTURES)) {
+			byte[] bytes = dirty.getBytes(cs);
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes).flip();
+
+			ByteBuffer[] buffers = {ByteBuffer.wrap(bytes), direct};
+			for (ByteBuffer buffer : buffers) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				filter.doFilter(buffer, cs.newDecoder(), Channels.newChannel(out));
+				assertEquals(filter.doFilter(dirty), new String(out.toByteArray(), cs));
+				assertFalse(buffer.hasRemaining());
+			}
+		}
+	}
+
+	@Test
+	public void testFilterFile() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance();
+		Charset cs = Charset.forName("UTF-8");
+		String dirty = readString("bigHtmlxssFilterGuide_1.7M.html") + "<p>가나다<script>alert(1)</script></p>";
+
+		File in = File.createTempFile("lucy-xss", ".html");
+		File out = File.createTempFile("lucy-xss-clean", ".html");
+		try {
+			OutputStream output = new FileOutputStream(in);
+			try {
+				output.write(dirty.getBytes(cs));
+			} finally {
+				output.close();
+			}
+
+			filter.filterFile(in, out, cs);
+			assertEquals(filter.doFilter(dirty), new String(readBytes(out), cs));
+		} finally {
+			in.delete();
+			out.delete();
+		}
+	}
+
+	/**
+	 * 최대 토큰 크기를 넘는 닫히지 않은 주석, 태그도 버퍼를 더 늘리지 않고 필터링한다.
+	 */
+	@Test
+	public void testMaxTokenSize() throws Exception {
+		XssSaxFilter filter = XssSaxFilter.getInstance("lucy-xss-max-token-size-sax.xml");
+		assertEquals(1024, filter.getConfig().getMaxTokenSize());
+		assertTrue(XssSaxFilter.getInstance().getConfig().getMaxTokenSize() > 1024);
+
+		StringBuilder padding = new StringBuilder();
+		while (padding.length() < 100 * 1024) {
+			padding.append("aaaaaaaaaa");
+		}
+
+		String[] dirties = {"<!--" + padding + "<script>alert(1)</script>", "<a href=\"" + padding + "\"><script>alert(1)</script>"};
+		for (String dirty : dirties) {
+			String clean = doFilter(filter, dirty);
+			assertFalse(clean, clean.contains("<script>"));
+			assertTrue(clean.contains("&lt;script&gt;"));
+		}
+	}
+
+	private static byte[] readBytes(File file) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int length;
+			while ((length = input.read(buffer)) != -1) {
+				output.write(buffer, 0, length);
+			}
+		} finally {
+			input.close();
+		}
+
+		return output.toByteArray();
+	}
+
+	private static String doFilter(XssSaxFilter filter, String dirty) throws IOException {
+		StringWriter writer = new StringWriter();
+		filter.doFilter(new StringReader(dirty), writer);
+		return writer.toString();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.listener;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * {@link ParamName} 의 분류 결과가 기존 정규식({@code ['"]?\s*(?i:이름)\s*['"]?})과 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class ParamNameTest {
+	@Test
+	public void testOf() {
+		assertSame(ParamName.INVOKE_URLS, ParamName.of("invokeURLs"));
+		assertSame(ParamName.INVOKE_URLS, ParamName.of("\"INVOKEURLS\""));
+		assertSame(ParamName.ENABLE_HREF, ParamName.of("' enableHref\t'"));
+		assertSame(ParamName.ENABLE_HTML_ACCESS, ParamName.of("enablehtmlaccess"));
+		assertSame(ParamName.ENABLE_JAVASCRIPT, ParamName.of("enableJavascript\""));
+		assertSame(ParamName.MOVIE, ParamName.of("\"Movie"));
+		assertSame(ParamName.SRC, ParamName.of("src"));
+
+		assertNull(ParamName.of(null));
+		assertNull(ParamName.of(""));
+		assertNull(ParamName.of("\"\""));
+		assertNull(ParamName.of("invoke URLs"));
+		assertNull(ParamName.of("\"\"nojava"));
+		assertNull(ParamName.of(" \"nojava\""));
+		// ASCII 문자만 대소문자를 구분하지 않는다. (KELVIN SIGN)
+		assertNull(ParamName.of("invo\u212AeURLs"));
+
+		assertTrue(ParamName.isUrlName("'URL'"));
+		assertTrue(ParamName.isUrlName("href"));
+		assertFalse(ParamName.isUrlName("nojava"));
+		assertFalse(ParamName.isUrlName(null));
+	}
+
+	@Test
+	public void testSecurityParams() {
+		ParamName[] params = ParamName.securityParams();
+		assertEquals(10, params.length);
+		assertSame(ParamName.INVOKE_URLS, params[0]);
+		assertSame(ParamName.ENABLE_HTML_ACCESS, params[9]);
+		for (ParamName param : params) {
+			assertTrue(param.isSecurityParam());
+			assertFalse(param.isUrl());
+			assertEquals(param == ParamName.ALLOW_NETWORKING, param.getSecureValue() == null);
+		}
+		assertNull(ParamName.URL.getSecureValue());
+	}
+
+	@Test
+	public void testSameAsPattern() {
+		ParamName[] values = ParamName.values();
+		Pattern[] patterns = new Pattern[values.length];
+		for (int i = 0; i < values.length; i++) {
+			patterns[i] = Pattern.compile("['\"]?\\s*(?i:" + values[i].getParamName() + ")\\s*['\"]?");
+		}
+
+		String noise = "\"' \t\n\u000B\f\rK\u212A";
+		Random random = new Random(7);
+		for (int n = 0; n < 100000; n++) {
+			String name = values[random.nextInt(values.length)].getParamName();
+			StringBuilder builder = new StringBuilder();
+			for (int i = random.nextInt(3); i > 0; i--) {
+				builder.append(noise.charAt(random.nextInt(noise.length())));
+			}
+			for (int i = 0; i < name.length(); i++) {
+				char c = name.charAt(i);
+				builder.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+			}
+			if (random.nextInt(8) == 0) {
+				builder.setLength(random.nextInt(builder.length() + 1));
+			}
+			for (int i = random.nextInt(3); i > 0; i--) {
+				builder.append(noise.charAt(random.nextInt(noise.length())));
+			}
+
+			String dirty = builder.toString();
+			ParamName expected = null;
+			for (int i = 0; i < patterns.length; i++) {
+				if (patterns[i].matcher(dirty).matches()) {
+					expected = values[i];
+				}
+			}
+			assertSame(dirty, expected, ParamName.of(dirty));
+		}
+	}
+}
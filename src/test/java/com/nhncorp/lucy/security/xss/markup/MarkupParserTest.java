@@ -17,7 +17,9 @@ package com.nhncorp.lucy.security.xss.markup;
 
 import static junit.framework.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -38,6 +40,19 @@ public class MarkupParserTest {
 		assertNull(MarkupParser.parse(""));
 	}
 
+	@Test
+	public void testParseStream() throws IOException {
+		String html = "<!DOCTYPE html><div class='a'>\uAC00<!-- c --><p>x</div><![if !IE]><b>y</b><![endif]></p>";
+		Charset cs = Charset.forName("UTF-8");
+		for (boolean compiled : new boolean[] {false, true}) {
+			String expected = MarkupParser.toString(MarkupParser.parse(html, compiled));
+			assertEquals(expected, MarkupParser.toString(MarkupParser.parse(new ByteArrayInputStream(html.getBytes(cs)), cs, compiled)));
+			assertNull(MarkupParser.parse(new ByteArrayInputStream(new byte[0]), cs, compiled));
+		}
+
+		assertEquals(MarkupParser.toString(MarkupParser.parse(html)), MarkupParser.toString(MarkupParser.parse(new ByteArrayInputStream(html.getBytes(cs)), cs)));
+	}
+
 	@Test
 	public void testParsePara() {
 		// given
@@ -126,6 +141,27 @@ public class MarkupParserTest {
 		assertPTag(para3, "&lt;![endif]--&gt;");
 	}
 
+	@Test
+	public void testNewElement() {
+		String[][] simple = {{"a", "href", "http://naver.com"}, {"IMG", "SRC", "\"a b>c\""}, {"x-y", "on\"x", "'v'"}, {"a", "b", "c'"}, {"a", "b", "\"abc"}, {"_", "b", "`c`"}};
+		for (String[] input : simple) {
+			Element expected = (Element) MarkupParser.parse("<" + input[0] + " " + input[1] + "=" + input[2] + "></" + input[0] + ">").iterator().next();
+			Element actual = MarkupParser.newElement(input[0], input[1], input[2]);
+			assertNotNull(input[2], actual);
+			assertEquals(expected.getName(), actual.getName());
+			assertEquals(expected.isClosed(), actual.isClosed());
+			assertEquals(expected.isStartClosed(), actual.isStartClosed());
+			assertEquals(expected.getAttributes().size(), actual.getAttributes().size());
+			assertEquals(expected.getAttributeValue(input[1]), actual.getAttributeValue(input[1]));
+		}
+
+		// 파싱 결과가 태그 하나, 속성 하나로 나오지 않는 입력
+		String[][] complex = {{"1a", "b", "c"}, {"a", "b c", "d"}, {"a", "b", "c d"}, {"a", "b", "\"c\"d"}, {"a", "b", "c\"d"}, {"a", "b", "\"c<d\""}, {"a", "b", "c>"}, {"a", "b=", "c"}, {"a", "b", "c\u0000"}, {"a", "b", "\"c\uFFFF\""}};
+		for (String[] input : complex) {
+			assertNull(input[1] + input[2], MarkupParser.newElement(input[0], input[1], input[2]));
+		}
+	}
+
 	private void assertPTag(Element para, String content) {
 		assertPTag(para, true);
 		Text text = (Text) para.getContents().iterator().next();
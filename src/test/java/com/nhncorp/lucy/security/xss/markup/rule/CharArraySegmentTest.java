@@ -29,6 +29,24 @@ public class CharArraySegmentTest {
 		assertEquals(0, seg.lastPosOf('a'));
 	}
 
+	@Test
+	public void testStringSearch() {
+		CharArraySegment seg = new CharArraySegment("a<!--b-->c");
+		assertTrue(seg.startWith("a<!"));
+		assertFalse(seg.startWith("a<!--b-->cd"));
+		assertTrue(seg.startAt(6, "-->"));
+		assertEquals(1, seg.posOf("<!--"));
+		assertEquals(6, seg.posOf("-->"));
+		assertEquals(3, seg.posOf('-'));
+		assertEquals(7, seg.lastPosOf("->"));
+		assertEquals(-1, seg.posOf("-->c!"));
+
+		CharArraySegment sub = seg.subSegment(1, 8);
+		assertEquals(-1, sub.posOf("-->"));
+		assertEquals(2, sub.posOf("--"));
+		assertEquals(-1, sub.posOf('c'));
+	}
+
 	@Test
 	public void testConcate() {
 		CharArraySegment seg = new CharArraySegment("abc");
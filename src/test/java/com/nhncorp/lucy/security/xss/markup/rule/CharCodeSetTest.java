@@ -17,6 +17,8 @@ package com.nhncorp.lucy.security.xss.markup.rule;
 
 import static org.junit.Assert.*;
 
+import java.util.BitSet;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -31,4 +33,56 @@ public class CharCodeSetTest {
 		set.flipAll(set);
 		assertEquals(-1, set.matchPos(new CharArraySegment("012")));
 	}
+
+	@Test
+	public void testMatchesSameAsBits() {
+		String[] patterns = {"^<", "^\"<", "#x9-#xFFFD", "^/=<>#x20#x9#xD#xA#xB#xC", "#x41-#x7A", "#x30-#x39", "^#xAC00-#xD7A3", "#x80#xFF#x100-#x200#xFFFF"};
+		for (String pattern : patterns) {
+			CharCodeSet set = new CharCodeSet(new CharArraySegment(pattern));
+			assertSameAsBits(pattern, set);
+
+			set.flipAll();
+			assertSameAsBits(pattern, set);
+		}
+
+		CharCodeSet set = new CharCodeSet(new CharArraySegment("#x41-#x7A"));
+		set.flipAll(new CharCodeSet(new CharArraySegment("#x5B-#x60")));
+		set.set(0xAC00);
+		set.setRange(0xFFF0, 0xFFFF);
+		assertSameAsBits("tagName", set);
+		assertTrue(set.matches((char)0xAC00));
+		assertFalse(set.matches('['));
+	}
+
+	@Test
+	public void testScan() {
+		CharCodeSet set = new CharCodeSet(new CharArraySegment("^<"));
+		char[] array = "ab가<c<'d".toCharArray();
+		assertEquals(3, set.scanWhile(array, 0, array.length, false));
+		assertEquals(2, set.scanWhile(array, 0, 2, false));
+		assertEquals(0, set.scanUntil(array, 0, array.length));
+
+		CharCodeSet lt = new CharCodeSet('<');
+		assertEquals(3, lt.scanUntil(array, 0, array.length));
+		assertEquals(5, lt.scanUntil(array, 4, array.length));
+		assertEquals(-1, lt.scanUntil(array, 0, 3));
+		assertEquals(3, lt.matchPos(new CharArraySegment(array)));
+
+		// attValue 에서는 뒤에 따옴표, 공백 등이 오는 '<' 도 허용한다.
+		assertEquals(3, set.scanWhile(array, 0, array.length, true));
+		assertEquals(8, set.scanWhile(array, 4, array.length, true));
+		assertEquals(5, set.scanWhile(array, 4, array.length, false));
+		assertEquals(3, set.scanWhile(array, 0, 4, true));
+		assertTrue(set.matches(array, 5, array.length, true));
+		assertFalse(set.matches(array, 5, array.length, false));
+		assertFalse(set.matches(array, 5, 6, true));
+	}
+
+	private static void assertSameAsBits(String message, CharCodeSet set) {
+		BitSet bits = new BitSet();
+		set.copyTo(bits);
+		for (int code = 0; code <= 0xFFFF; code++) {
+			assertEquals(message + " : " + code, bits.get(code), set.matches((char)code));
+		}
+	}
 }
@@ -31,4 +31,31 @@ public class CharCodeTest {
 		CharCode code = new CharCode('3');
 		assertEquals(2, code.matchPos(new CharArraySegment("123")));
 	}
+
+	/**
+	 * 모든 위치에서 종결자를 찾아도 기록된 결과를 사용하므로 각 위치는 한 번만 스캔된다.
+	 */
+	@Test
+	public void testMemoizedMatchPos() {
+		CharCode code = new CharCode('>');
+		code.setMemoSlot(0);
+		ScanMemo memo = new ScanMemo(1);
+
+		StringBuilder buffer = new StringBuilder();
+		while (buffer.length() < 64 * 1024) {
+			buffer.append("<!DOCTYPE");
+		}
+		buffer.append('>');
+		for (int i = 0; i < 1024; i++) {
+			buffer.append("<?xml");
+		}
+
+		String input = buffer.toString();
+		int end = input.indexOf('>');
+		CharArraySegment segment = new CharArraySegment(input).memo(memo);
+		for (int i = 0; i < input.length(); i++) {
+			assertEquals((i <= end) ? end : -1, code.matchPos(segment.pos(i)));
+		}
+		assertTrue(memo.getScanned() <= input.length());
+	}
 }
@@ -0,0 +1,150 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link CompiledGrammar} 가 {@link ParsingGrammar} 와 동일한 토큰을 생성하는지 비교한다.
+ *
+ * @author Naver Labs
+ */
+public class CompiledGrammarTest {
+	private static final String[] FIXTURES = {"bigHtml_1.4M.html", "bigHtmlxssFilterGuide_1.7M.html", "normalMail50k.html", "StackOverFlowError_Sample.html", "xss-grammar.html", "xss-dirtycodes.txt", "xss-dirtyobject.html", "xss-invalid1.html", "xss-invalid2.html", "sample.html", "sample2.html", "sample3.html"};
+
+	/**
+	 * 입력 문자 하나당 허용하는 스캔 횟수. slot 마다 한 번씩 스캔할 수 있다.
+	 */
+	private static final int MAX_SCANS_PER_CHAR = 8;
+
+	private static final String[] PIECES = {"<", ">", "/", "/>", "</", "<!", "<!--", "-->", "--", "<!--[if IE]>", "<![endif]-->", "<![endif]>", "<!DOCTYPE", "<?xml", "[if", "=", "\"", "'", "`", " ", "\t", "\r\n", "a", "div", "P", "_x", ":y", "1", ".", "-", "href", "on", "\u0000", "￿", "가", "&amp;", "<<", "<'", "<\"", "< "};
+
+	@Test
+	public void testNull() {
+		assertNull(CompiledGrammar.getInstance().nextToken(null));
+	}
+
+	@Test
+	public void testEdgeCases() {
+		String[] inputs = {"a", "<", "<a", "<a>", "</a>", "< /a>", "<!---->", "<!--->", "<!-- a -->", "<!-- a", "<!--[if IE]><p>a</p><![endif]-->", "<!--[if IE]>", "<![if !IE]>", "<![endif]>", "<!DOCTYPE html>", "<!DOCTYPE", "<?xml version=\"1.0\"?>", "<a href=\"x<\"y\">", "<a href='<'>", "<a b=<c>", "<a b=`x`>", "<a b c=d />", "<a/>", "<a\t\r\nb\u000B=\u000Cc>", "<:a>", "<_>", "<a.b-c:d_1>", "\u0000\u0000<a>", "text<<b>", "a￿b", "<a>￿", "<a b=\"￿\">"};
+		for (String input : inputs) {
+			assertSameTokens(input);
+		}
+	}
+
+	@Test
+	public void testFixtures() throws IOException {
+		for (String fixture : FIXTURES) {
+			assertSameTokens(read(fixture));
+		}
+	}
+
+	@Test
+	public void testRandomMarkup() {
+		Random random = new Random(20141215L);
+		for (int i = 0; i < 3000; i++) {
+			StringBuilder buffer = new StringBuilder();
+			int count = 1 + random.nextInt(40);
+			for (int j = 0; j < count; j++) {
+				buffer.append(PIECES[random.nextInt(PIECES.length)]);
+			}
+			assertSameTokens(buffer.toString());
+		}
+	}
+
+	/**
+	 * 닫히지 않은 comment, doctype 등이 반복되는 입력도 입력 길이에 비례하는 시간 안에 파싱해야 한다.
+	 */
+	@Test(timeout = 20000)
+	public void testUnterminatedConstructs() {
+		String[] patterns = {"<!--", "<!DOCTYPE", "<!--[if", "<?xml", "</a "};
+		for (String pattern : patterns) {
+			StringBuilder buffer = new StringBuilder();
+			while (buffer.length() < 256 * 1024) {
+				buffer.append(pattern);
+			}
+
+			String input = buffer.toString();
+			assertSameTokens(input);
+		}
+	}
+
+	/**
+	 * 닫히지 않은 구문이 반복되어도 종결자 검색, 반복 매칭으로 새로 스캔하는 문자 수가 입력 길이에 비례한다.
+	 */
+	@Test
+	public void testLinearScan() {
+		String[] patterns = {"<!--", "<!DOCTYPE", "<!--[if", "<!", "<?xml", "</a ", "<a b='", "<a b=\"", "<a b=`", "<a b", "<", "-->"};
+		for (String pattern : patterns) {
+			StringBuilder buffer = new StringBuilder();
+			while (buffer.length() < 64 * 1024) {
+				buffer.append(pattern);
+			}
+
+			String input = buffer.toString();
+			for (boolean compiled : new boolean[] {false, true}) {
+				ScanMemo memo = ParsingGrammar.getInstance().newScanMemo();
+				CharArraySegment segment = new CharArraySegment(input).memo(memo);
+				while ((compiled ? CompiledGrammar.getInstance().nextToken(segment) : ParsingGrammar.getInstance().nextToken(segment)) != null) {
+					continue;
+				}
+
+				assertTrue(pattern + " " + compiled + " " + memo.getScanned(), memo.getScanned() <= MAX_SCANS_PER_CHAR * input.length());
+			}
+		}
+	}
+
+	private static void assertSameTokens(String input) {
+		CharArraySegment expected = new CharArraySegment(input);
+		CharArraySegment actual = new CharArraySegment(input);
+		while (true) {
+			Token expectedToken = ParsingGrammar.getInstance().nextToken(expected);
+			Token actualToken = CompiledGrammar.getInstance().nextToken(actual);
+			if (expectedToken == null) {
+				assertNull(input, actualToken);
+				break;
+			}
+
+			assertNotNull(input, actualToken);
+			assertEquals(input, expectedToken.toString(), actualToken.toString());
+			assertEquals(input, expected.pos(), actual.pos());
+		}
+	}
+
+	private String read(String fileName) throws IOException {
+		InputStream is = this.getClass().getClassLoader().getResourceAsStream(fileName);
+		Reader reader = new InputStreamReader(is, "utf-8");
+		try {
+			StringBuilder buffer = new StringBuilder();
+			char[] chars = new char[8192];
+			int length;
+			while ((length = reader.read(chars)) != -1) {
+				buffer.append(chars, 0, length);
+			}
+			return buffer.toString();
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * {@link GrammarSnapshot} 으로 저장하고 읽은 룰이 룰 정의 파일을 파싱한 룰과 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class GrammarSnapshotTest {
+	private static final String[] INPUTS = {"<!DOCTYPE html><html><body>", "<!-- comment -->text<br/>", "<!--[if IE]><p a=b c='d' e=\"f\">x</p><![endif]-->", "<a href=\"<\" b=<c>", "</ a >", "<!--", "<a\t\r\nb\u000B=\u000Cc>", "\u0000\u0000<a>", "<?xml version=\"1.0\"?>"};
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ParsingGrammar expected = new ParsingGrammar(false);
+		ParsingGrammar actual = new ParsingGrammar(false);
+		actual.getRules().clear();
+		actual.getRuleIds().clear();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		GrammarSnapshot.write(expected, output);
+		assertTrue(GrammarSnapshot.read(actual, new ByteArrayInputStream(output.toByteArray())));
+
+		assertEquals(expected.getMemoSlots(), actual.getMemoSlots());
+		assertEquals(expected.getRuleIds(), actual.getRuleIds());
+		assertEquals(expected.getRules().keySet(), actual.getRules().keySet());
+		for (Map.Entry<String, Group> entry : expected.getRules().entrySet()) {
+			assertSameRule(entry.getValue(), actual.getRule(entry.getKey()));
+		}
+
+		for (String input : INPUTS) {
+			assertSameTokens(expected, actual, input);
+		}
+	}
+
+	@Test
+	public void testInvalidSnapshot() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		GrammarSnapshot.write(new ParsingGrammar(false), output);
+		byte[] bytes = output.toByteArray();
+
+		// 룰 정의 파일 checksum 이 다르면 사용하지 않는다.
+		bytes[8] ^= 0xFF;
+		assertFalse(GrammarSnapshot.read(new ParsingGrammar(false), new ByteArrayInputStream(bytes)));
+		assertFalse(GrammarSnapshot.read(new ParsingGrammar(false), new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8})));
+	}
+
+	private static void assertSameRule(ParsingRule expected, ParsingRule actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getUnary(), actual.getUnary());
+		assertEquals(expected.getFirstSet(), actual.getFirstSet());
+
+		if (expected instanceof Terminal) {
+			assertEquals(((Terminal)expected).getMemoSlot(), ((Terminal)actual).getMemoSlot());
+		}
+
+		if (expected instanceof Group) {
+			Group expectedGroup = (Group)expected;
+			Group actualGroup = (Group)actual;
+			assertEquals(expectedGroup.getRuleName(), actualGroup.getRuleName());
+			assertEquals(expectedGroup.getRuleId(), actualGroup.getRuleId());
+			assertEquals(expectedGroup.getOperator(), actualGroup.getOperator());
+			assertEquals(expectedGroup.getRuleCount(), actualGroup.getRuleCount());
+			for (int i = 0; i < expectedGroup.getRuleCount(); i++) {
+				assertSameRule(expectedGroup.get(i), actualGroup.get(i));
+			}
+		} else if (expected instanceof Reference) {
+			assertEquals(((Reference)expected).getRuleName(), ((Reference)actual).getRuleName());
+			assertEquals(((Reference)expected).getRuleId(), ((Reference)actual).getRuleId());
+		} else if (expected instanceof Literal) {
+			assertEquals(((Literal)expected).getLiteral(), ((Literal)actual).getLiteral());
+		} else if (expected instanceof CharCode) {
+			assertEquals(((CharCode)expected).getCode(), ((CharCode)actual).getCode());
+		} else {
+			BitSet expectedBits = new BitSet();
+			BitSet actualBits = new BitSet();
+			((CharCodeSet)expected).copyTo(expectedBits);
+			((CharCodeSet)actual).copyTo(actualBits);
+			assertEquals(expectedBits, actualBits);
+		}
+	}
+
+	private static void assertSameTokens(ParsingGrammar expected, ParsingGrammar actual, String input) {
+		CharArraySegment expectedInput = new CharArraySegment(input);
+		CharArraySegment actualInput = new CharArraySegment(input);
+		while (true) {
+			Token expectedToken = expected.nextToken(expectedInput);
+			Token actualToken = actual.nextToken(actualInput);
+			if (expectedToken == null) {
+				assertNull(input, actualToken);
+				break;
+			}
+
+			assertNotNull(input, actualToken);
+			assertEquals(input, expectedToken.toString(), actualToken.toString());
+			assertEquals(input, expectedInput.pos(), actualInput.pos());
+		}
+	}
+}
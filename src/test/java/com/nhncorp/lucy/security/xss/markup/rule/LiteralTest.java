@@ -17,6 +17,8 @@ package com.nhncorp.lucy.security.xss.markup.rule;
 
 import static junit.framework.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 public class LiteralTest {
@@ -25,4 +27,49 @@ public class LiteralTest {
 		Literal literal = new Literal(null);
 		assertEquals("", literal.getLiteral());
 	}
+
+	@Test
+	public void testMatchPos() {
+		Literal literal = new Literal("-->");
+		assertEquals(6, literal.matchPos(new CharArraySegment("<!-- a-->")));
+		assertEquals(-1, literal.matchPos(new CharArraySegment("<!-- a--")));
+		assertEquals(2, literal.matchPos(new CharArraySegment("---->")));
+
+		CharArraySegment segment = new CharArraySegment("-->a-->");
+		segment.pos(1);
+		assertEquals(4, literal.matchPos(segment));
+		assertEquals(-1, literal.matchPos(segment.subSegment(1, 6)));
+		assertEquals(3, literal.matchPos(segment.subSegment(1, 7)));
+
+		// 하위 8bit 가 '-' 와 같은 문자도 올바르게 건너뛴다.
+		assertEquals(2, literal.matchPos(new CharArraySegment("\u012d\u013e-->")));
+	}
+
+	@Test
+	public void testMatchPosSameAsNaiveSearch() {
+		Random random = new Random(7);
+		char[] alphabet = {'<', '!', '-', '>', '[', 'e', '\u013e', '\u012d'};
+		String[] literals = {"-->", "<!--", "<![endif]>", "<!--[endif]-->", ">", "--"};
+		for (int i = 0; i < 2000; i++) {
+			char[] chars = new char[1 + random.nextInt(40)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			String text = new String(chars);
+			for (String each : literals) {
+				assertEquals(text, text.indexOf(each), new Literal(each).matchPos(new CharArraySegment(text)));
+			}
+		}
+	}
+
+	@Test
+	public void testSliceToken() {
+		Literal literal = new Literal("<!--");
+		CharArraySegment segment = new CharArraySegment("<!--<!-");
+		Token token = new Token("comment");
+		assertTrue(literal.sliceToken(token, segment));
+		assertEquals("<!--", token.getText());
+		assertFalse(literal.sliceToken(token, segment));
+		assertEquals(4, segment.pos());
+	}
 }
@@ -0,0 +1,145 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * {@link ParseContext} 를 사용해도 토큰 결과가 같은지, Context 가 Thread 별로 재사용되는지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class ParseContextTest {
+	private static final String INPUT = "<!DOCTYPE html><!-- c --><div class='a' id=b>text<br/><!--[if IE]><p>x</p><![endif]--></div><a href=\"<\"";
+
+	@Test
+	public void testSameTokens() {
+		assertSameTokens(false);
+		assertSameTokens(true);
+	}
+
+	@Test
+	public void testReuse() {
+		ParseContext context = ParseContext.acquire();
+		try {
+			CharArraySegment input = context.input("<a><b>");
+			Token first = ParsingGrammar.getInstance().nextToken(input);
+			assertEquals("<a>", first.getText());
+			Token second = ParsingGrammar.getInstance().nextToken(input);
+			assertSame(first, second);
+			assertEquals("<b>", second.getText());
+			assertEquals("b", second.getChildById(Token.TAG_NAME).getText());
+			assertNull(ParsingGrammar.getInstance().nextToken(input));
+		} finally {
+			context.release();
+		}
+
+		assertSame(context, ParseContext.acquire());
+		context.release();
+	}
+
+	@Test
+	public void testReentrant() {
+		ParseContext outer = ParseContext.acquire();
+		try {
+			ParseContext inner = ParseContext.acquire();
+			assertNotSame(outer, inner);
+			inner.release();
+
+			CharArraySegment input = outer.input("<a>");
+			assertEquals("<a>", CompiledGrammar.getInstance().nextToken(input).getText());
+		} finally {
+			outer.release();
+		}
+	}
+
+	@Test
+	public void testLargeBufferDiscarded() {
+		StringBuilder large = new StringBuilder();
+		while (large.length() <= ParseContext.MAX_RETAINED_CHARS) {
+			large.append("<a>");
+		}
+
+		ParseContext context = ParseContext.acquire();
+		char[] buffer = context.input(large.toString()).getArray();
+		context.release();
+
+		context = ParseContext.acquire();
+		try {
+			char[] next = context.input("<a>").getArray();
+			assertNotSame(buffer, next);
+			assertTrue(next.length < ParseContext.MAX_RETAINED_CHARS);
+		} finally {
+			context.release();
+		}
+	}
+
+	@Test
+	public void testThreadLocal() throws InterruptedException {
+		final ParseContext[] contexts = new ParseContext[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				contexts[0] = ParseContext.acquire();
+				contexts[0].release();
+			}
+		};
+		thread.start();
+		thread.join();
+
+		ParseContext context = ParseContext.acquire();
+		context.release();
+		assertNotNull(contexts[0]);
+		assertNotSame(context, contexts[0]);
+	}
+
+	private static void assertSameTokens(boolean compiled) {
+		List<String> expected = new ArrayList<String>();
+		CharArraySegment input = new CharArraySegment(INPUT);
+		Token token;
+		while ((token = nextToken(input, compiled)) != null) {
+			expected.add(token.toString());
+		}
+
+		List<String> actual = new ArrayList<String>();
+		ParseContext context = ParseContext.acquire();
+		try {
+			// 버퍼 재사용을 확인하기 위해 긴 입력을 먼저 파싱한다.
+			input = context.input(INPUT + INPUT);
+			while (nextToken(input, compiled) != null) {
+				continue;
+			}
+
+			input = context.input(INPUT);
+			while ((token = nextToken(input, compiled)) != null) {
+				actual.add(token.toString());
+			}
+		} finally {
+			context.release();
+		}
+
+		assertEquals(expected, actual);
+	}
+
+	private static Token nextToken(CharArraySegment input, boolean compiled) {
+		return compiled ? CompiledGrammar.getInstance().nextToken(input) : ParsingGrammar.getInstance().nextToken(input);
+	}
+}
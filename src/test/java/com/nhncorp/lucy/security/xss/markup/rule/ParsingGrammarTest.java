@@ -24,4 +24,34 @@ public class ParsingGrammarTest {
 	public void testNull() {
 		assertNull(ParsingGrammar.getInstance().tokenize(null));
 	}
+
+	@Test
+	public void testFirstSet() {
+		ParsingGrammar grammar = ParsingGrammar.getInstance();
+		assertTrue(grammar.getRule("startTag").canStartWith('<'));
+		assertFalse(grammar.getRule("startTag").canStartWith('a'));
+		assertFalse(grammar.getRule("comment").canStartWith(' '));
+		assertTrue(grammar.getRule("text").canStartWith('a'));
+		assertTrue(grammar.getRule("text").canStartWith('<'));
+		assertTrue(grammar.getRule("text").canStartWith('\u0000'));
+		assertFalse(grammar.getRule("text").canStartWith('\uFFFF'));
+		assertTrue(grammar.getRule("tagName").canStartWith('_'));
+		assertFalse(grammar.getRule("tagName").canStartWith('1'));
+		// attValue 는 '<' 로 시작하는 값을 허용한다.
+		assertTrue(grammar.getRule("attValue").canStartWith('<'));
+		assertFalse(grammar.getRule("attValue").canStartWith('>'));
+	}
+
+	@Test
+	public void testNextTokenWithFirstSet() {
+		ParsingGrammar grammar = ParsingGrammar.getInstance();
+		CharArraySegment input = new CharArraySegment("abc<p a='<'>\u0000<!-- x -->");
+		assertEquals("text", grammar.nextToken(input).getName());
+		Token token = grammar.nextToken(input);
+		assertEquals("startTag", token.getName());
+		assertEquals("'<'", token.getChild("attribute").getChild("attValue").getText());
+		assertEquals("text", grammar.nextToken(input).getName());
+		assertEquals("comment", grammar.nextToken(input).getName());
+		assertNull(grammar.nextToken(input));
+	}
 }
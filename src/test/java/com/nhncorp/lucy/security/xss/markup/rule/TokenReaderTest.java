@@ -0,0 +1,207 @@
+/*
+ *	Copyright 2014 Naver Corp.
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package com.nhncorp.lucy.security.xss.markup.rule;
+
+import static org.junit.Assert.*;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link TokenReader} 로 버퍼 단위로 읽은 토큰이 전체 입력을 한번에 Tokenizing 한 결과와 같은지 확인한다.
+ *
+ * @author Naver Labs
+ */
+public class TokenReaderTest {
+	private static final String[] FIXTURES = {"bigHtml_1.4M.html", "normalMail50k.html", "StackOverFlowError_Sample.html", "xss-grammar.html", "xss-dirtycodes.txt", "xss-dirtyobject.html", "xss-invalid1.html", "xss-invalid2.html"};
+
+	private static final String[] PIECES = {"<", ">", "/", "/>", "</", "<!", "<!--", "-->", "--", "<!--[if IE]>", "<![endif]-->", "<![endif]>", "<!DOCTYPE", "<?xml", "[if", "=", "\"", "'", " ", "\t", "\r\n", "a", "div", "href", "\u0000", "가", "&amp;", "<<", "<'", "<\"", "< "};
+
+	@Test
+	public void testNeedMoreInput() {
+		CompiledGrammar grammar = CompiledGrammar.getInstance();
+		assertSame(CompiledGrammar.NEED_MORE_INPUT, grammar.nextToken(new CharArraySegment("<a hr"), false));
+		assertSame(CompiledGrammar.NEED_MORE_INPUT, grammar.nextToken(new CharArraySegment("<!-- a --"), false));
+		assertSame(CompiledGrammar.NEED_MORE_INPUT, grammar.nextToken(new CharArraySegment("text"), false));
+		assertSame(CompiledGrammar.NEED_MORE_INPUT, grammar.nextToken(new CharArraySegment("<a b=<"), false));
+
+		CharArraySegment input = new CharArraySegment("<a>te");
+		assertEquals("<a>", grammar.nextToken(input, false).getText());
+		assertSame(CompiledGrammar.NEED_MORE_INPUT, grammar.nextToken(input, false));
+		assertEquals(3, input.pos());
+		assertEquals("te", grammar.nextToken(input, true).getText());
+		assertNull(grammar.nextToken(input, true));
+	}
+
+	@Test
+	public void testEdgeCases() throws IOException {
+		String[] inputs = {"", "a", "<", "<a", "<a>", "</a>", "< /a>", "<!---->", "<!--->", "<!-- a -->", "<!-- a", "<!--[if IE]><p>a</p><![endif]-->", "<!--[if IE]>", "<![if !IE]>", "<![endif]>", "<!DOCTYPE html>", "<!DOCTYPE", "<?xml version=\"1.0\"?>", "<a href=\"x<\"y\">", "<a href='<'>", "<a b=<c>", "<a b=< c>", "<a b c=d />", "<a/>", "<a\t\r\nb\u000B=\u000Cc>", "\u0000\u0000<a>", "text<<b>"};
+		for (String input : inputs) {
+			for (int size = 1; size <= 8; size++) {
+				assertSameTokens(input, size, false);
+				assertSameTokens(input, size, true);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomMarkup() throws IOException {
+		Random random = new Random(20141216L);
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder buffer = new StringBuilder();
+			int count = 1 + random.nextInt(40);
+			for (int j = 0; j < count; j++) {
+				buffer.append(PIECES[random.nextInt(PIECES.length)]);
+			}
+			assertSameTokens(buffer.toString(), 1 + random.nextInt(16), random.nextBoolean());
+		}
+	}
+
+	@Test
+	public void testFixtures() throws IOException {
+		for (String fixture : FIXTURES) {
+			String input = read(fixture);
+			assertSameTokens(input, 64, false);
+			assertSameTokens(input, TokenReader.DEFAULT_BUFFER_SIZE, true);
+		}
+	}
+
+	/**
+	 * 토큰이 버퍼보다 짧으면 버퍼는 늘어나지 않는다.
+	 */
+	@Test
+	public void testBoundedBuffer() throws IOException {
+		StringBuilder buffer = new StringBuilder();
+		while (buffer.length() < 1024 * 1024) {
+			buffer.append("<p class='a'>text <b>bold</b><!-- c --></p>\r\n");
+		}
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			TokenReader tokens = new TokenReader(new StringReader(buffer.toString()), context, 256);
+			int length = 0;
+			Token token;
+			while ((token = tokens.nextToken()) != null) {
+				length += token.getText().length();
+			}
+
+			assertEquals(buffer.length(), length);
+			assertEquals(256, tokens.getBufferSize());
+		} finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * 최대 토큰 크기를 넘는 토큰은 버퍼 끝에서 잘리고, 나머지는 다음 토큰으로 이어진다.
+	 */
+	@Test
+	public void testMaxTokenSize() throws IOException {
+		StringBuilder buffer = new StringBuilder("<!--");
+		while (buffer.length() < 10000) {
+			buffer.append("comment ");
+		}
+		buffer.append("--><a>");
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			TokenReader tokens = new TokenReader(new StringReader(buffer.toString()), context, 64, 1000);
+			StringBuilder text = new StringBuilder();
+			Token token;
+			Token last = null;
+			while ((token = tokens.nextToken()) != null) {
+				assertTrue(token.getText().length() <= 1000);
+				text.append(token.getText());
+				last = token;
+			}
+
+			assertEquals(buffer.toString(), text.toString());
+			assertEquals(Token.START_TAG, last.getId());
+			assertEquals(1000, tokens.getBufferSize());
+		} finally {
+			context.release();
+		}
+	}
+
+	private static void assertSameTokens(String input, int bufferSize, boolean trickle) throws IOException {
+		List<String> expected = new ArrayList<String>();
+		if (input.length() > 0) {
+			CharArraySegment segment = new CharArraySegment(input);
+			Token token;
+			while ((token = CompiledGrammar.getInstance().nextToken(segment)) != null) {
+				expected.add(token.toString());
+			}
+		}
+
+		List<String> actual = new ArrayList<String>();
+		Reader reader = new StringReader(input);
+		if (trickle) {
+			reader = new TrickleReader(reader);
+		}
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			TokenReader tokens = new TokenReader(reader, context, bufferSize);
+			Token token;
+			while ((token = tokens.nextToken()) != null) {
+				actual.add(token.toString());
+			}
+		} finally {
+			context.release();
+		}
+
+		assertEquals(input, expected, actual);
+	}
+
+	private String read(String fileName) throws IOException {
+		InputStream is = this.getClass().getClassLoader().getResourceAsStream(fileName);
+		Reader reader = new InputStreamReader(is, "utf-8");
+		try {
+			StringBuilder buffer = new StringBuilder();
+			char[] chars = new char[8192];
+			int length;
+			while ((length = reader.read(chars)) != -1) {
+				buffer.append(chars, 0, length);
+			}
+			return buffer.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 한번에 한 문자씩만 읽어주는 Reader.
+	 */
+	private static class TrickleReader extends FilterReader {
+		TrickleReader(Reader reader) {
+			super(reader);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return super.read(cbuf, off, Math.min(len, 1));
+		}
+	}
+}
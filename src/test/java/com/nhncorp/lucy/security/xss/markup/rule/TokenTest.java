@@ -43,4 +43,27 @@ public class TokenTest {
 		assertNull(token.getChild(0));
 		assertNull(token.getChild("none"));
 	}
+
+	@Test
+	public void testChildById() {
+		Token token = ParsingGrammar.getInstance().nextToken(new CharArraySegment("<a href='x' id=y />"));
+		assertEquals(Token.START_TAG, token.getId());
+		assertEquals("a", token.getChildById(Token.TAG_NAME).getText());
+		assertSame(token.getChild("tagName"), token.getChildById(Token.TAG_NAME));
+		assertNotNull(token.getChildById(Token.CLOSE_START_END));
+		assertNull(token.getChildById(Token.TEXT));
+		assertNull(token.getChildById(Token.UNDEFINED));
+
+		List<Token> attributes = token.getChildrenById(Token.ATTRIBUTE);
+		assertEquals(token.getChildren("attribute"), attributes);
+		assertEquals(2, attributes.size());
+		assertEquals("href", attributes.get(0).getChildById(Token.ATT_NAME).getText());
+		assertEquals("'x'", attributes.get(0).getChildById(Token.ATT_VALUE).getText());
+		assertEquals("y", attributes.get(1).getChildById(Token.ATT_VALUE).getText());
+
+		token = CompiledGrammar.getInstance().nextToken(new CharArraySegment("</b >"));
+		assertEquals(Token.END_TAG, token.getId());
+		assertEquals("b", token.getChildById(Token.TAG_NAME).getText());
+		assertNull(token.getChildrenById(Token.ATTRIBUTE));
+	}
 }